@@ -2,6 +2,8 @@
 plugins {
     id("java")
     application
+    `java-test-fixtures`
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -24,13 +26,30 @@ dependencies {
     runtimeOnly("org.slf4j:slf4j-simple:2.0.17")
     implementation("ch.qos.logback:logback-classic:1.5.8")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.15.2")
+    implementation("org.hdrhistogram:HdrHistogram:2.2.2")
 
     // Test
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+
+    // Fakes shared by the tests and the benchmarks
+    testFixturesImplementation("dev.langchain4j:langchain4j:1.7.1")
+    jmhImplementation(testFixtures(project))
 }
 
 
 tasks.test {
     useJUnitPlatform()
+}
+
+// Microbenchmarks for the code run on every loop iteration: ./gradlew jmh
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    // Keep per-event logging out of the measurements
+    jvmArgsAppend.add("-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
 }
\ No newline at end of file
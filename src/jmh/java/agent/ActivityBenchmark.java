@@ -0,0 +1,76 @@
+package agent;
+
+import agent.activity.Activity;
+import agent.activity.ReasoningStep;
+import agent.context.ContextWindow;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialisation done for every prompt: the step and activity JSON, the token-budgeted
+ * history window and the beliefs snapshot (including the parent chain of a forked child).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActivityBenchmark {
+
+    @Param({"5", "50", "500"})
+    int historySize;
+
+    @Param({"10", "100"})
+    int beliefCount;
+
+    private Activity activity;
+    private Activity child;
+    private ReasoningStep step;
+    private ContextWindow contextWindow;
+
+    @Setup
+    public void setUp() {
+        activity = new Activity("First subscribe, then set a timer for 5 seconds called \"bench\"");
+        for (int i = 0; i < beliefCount; i++) {
+            activity.setBelief("timer-" + i, i % 2 == 0 ? IntNode.valueOf(i) : TextNode.valueOf("finished " + i));
+        }
+        Map<String, Object> snapshot = activity.getBeliefsSnapshot();
+        for (int i = 0; i < historySize; i++) {
+            activity.addStep(new ReasoningStep(i % 2 == 0 ? "act" : "observe",
+                    "Set timer " + i + " with {\"seconds\": 5}", "Timer " + i + " started\nwaiting for timer.finished", snapshot));
+        }
+        step = activity.lastStep().orElseThrow();
+        child = new Activity("Set a timer for 1 seconds called child", activity);
+        child.setBelief("child-timer", IntNode.valueOf(1));
+        contextWindow = new ContextWindow.Builder().build();
+    }
+
+    @Benchmark
+    public String stepToJson() {
+        return step.toJson();
+    }
+
+    @Benchmark
+    public String activityToJson() {
+        return activity.toJson();
+    }
+
+    @Benchmark
+    public String historyWindow() {
+        // Steady state: every step but the newest was counted on an earlier pass
+        return contextWindow.history(activity, Phase.REASON);
+    }
+
+    @Benchmark
+    public Map<String, Object> beliefsSnapshot() {
+        return activity.getBeliefsSnapshot();
+    }
+
+    @Benchmark
+    public Map<String, Object> childBeliefsSnapshot() {
+        return child.getBeliefsSnapshot();
+    }
+}
@@ -0,0 +1,80 @@
+package agent;
+
+import agent.memory.EmbeddingService;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold startup of 1, 10 and 50 agents sharing one {@link EmbeddingService}, up to the first
+ * embedding. Every agent count runs once in its own fork, so the resident set reported after
+ * the run is not inflated by the counts before it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class AgentStartupBenchmark {
+
+    @Param({"1", "10", "50"})
+    int agents;
+
+    private ChatModel model;
+    private EmbeddingService service;
+    private final List<AsyncAgent<ReactBrain>> started = new ArrayList<>();
+    private long rssBeforeKb;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Never called: building the agents does not reach the provider
+        model = OpenAiChatModel.builder()
+                .baseUrl("http://langchain4j.dev/demo/openai/v1")
+                .apiKey("demo")
+                .modelName("gpt-4o-mini")
+                .build();
+        service = new EmbeddingService.Builder().build();
+        rssBeforeKb = residentSetKb();
+    }
+
+    @Benchmark
+    public void startAgents() {
+        for (int i = 0; i < agents; i++) {
+            started.add(new AsyncAgent.Builder<ReactBrain>()
+                    .model(model)
+                    .agentInterface(ReactBrain.class)
+                    .embeddingService(service)
+                    .build());
+        }
+        service.embed("first retrieval after startup");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        long rssAfterKb = residentSetKb();
+        System.out.printf("agents=%d rssMb=%d rssDeltaMb=%d models=%d%n",
+                agents, rssAfterKb / 1024, (rssAfterKb - rssBeforeKb) / 1024, service.models());
+        started.forEach(AsyncAgent::shutdown);
+        service.close();
+    }
+
+    private static long residentSetKb() throws Exception {
+        Path status = Path.of("/proc/self/status");
+        if (Files.exists(status)) {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        }
+        Runtime rt = Runtime.getRuntime();
+        return (rt.totalMemory() - rt.freeMemory()) / 1024;
+    }
+}
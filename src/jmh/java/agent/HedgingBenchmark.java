@@ -0,0 +1,73 @@
+package agent;
+
+import agent.model.HedgingChatModel;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency distribution of a long-tailed backend (2ms, 150ms for one call in twenty) with
+ * and without a hedge at its p90. Compare the p0.99 rows; the teardown reports the hedge rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HedgingBenchmark {
+
+    @Param({"false", "true"})
+    boolean hedged;
+
+    private ChatModel model;
+    private final ChatRequest request = ChatRequest.builder().messages(UserMessage.from("hello")).build();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = hedged
+                ? new HedgingChatModel.Builder()
+                        .primary(longTail("primary"))
+                        .secondary(longTail("secondary"))
+                        .percentile(0.9)
+                        .initialDelay(Duration.ofMillis(20))
+                        .build()
+                : longTail("primary");
+    }
+
+    @Benchmark
+    public ChatResponse call() {
+        return model.chat(request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (model instanceof HedgingChatModel hedging) {
+            HedgingChatModel.HedgeStats stats = hedging.stats();
+            System.out.printf("hedgeRate=%.3f hedgeDelayMs=%.1f secondaryWins=%d%n",
+                    stats.hedgeRate(), stats.hedgeDelayMillis(), stats.secondaryWins());
+            hedging.close();
+        }
+    }
+
+    private static ChatModel longTail(String reply) {
+        AtomicInteger n = new AtomicInteger();
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                try {
+                    Thread.sleep(n.incrementAndGet() % 20 == 0 ? 150 : 2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted", e);
+                }
+                return ChatResponse.builder().aiMessage(AiMessage.from(reply)).build();
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package agent;
+
+import agent.model.ConcurrencyLimiter;
+import agent.model.LimitedChatModel;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 32 callers against a backend that serves 4 calls in parallel, slows down beyond that
+ * and answers 429 past 8. With the limiter in front, throughput should hold while the
+ * limit settles near the capacity; the teardown reports where it ended up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+public class LimiterOverloadBenchmark {
+
+    private SlowBackend backend;
+    private ConcurrencyLimiter limiter;
+    private LimitedChatModel model;
+    private final ChatRequest request = ChatRequest.builder().messages(UserMessage.from("hello")).build();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = new SlowBackend(4);
+        limiter = new ConcurrencyLimiter.Builder()
+                .initialLimit(32)
+                .maxLimit(64)
+                .build();
+        model = new LimitedChatModel(Phase.REASON, backend, limiter);
+    }
+
+    @Benchmark
+    public boolean call() {
+        try {
+            return model.chat(request) != null;
+        } catch (RuntimeException rejected) {
+            return false;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("limit=%d rejected=%d avgQueueDelayMs=%.2f%n",
+                limiter.limit(), backend.rejected.get(), limiter.averageQueueDelayMillis());
+    }
+
+    /**
+     * Serves {@code capacity} calls in parallel: beyond that, latency grows with the load
+     * and past twice the capacity it answers 429.
+     */
+    static class SlowBackend implements ChatModel {
+        final int capacity;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+
+        SlowBackend(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            int current = inFlight.incrementAndGet();
+            try {
+                if (current > 2 * capacity) {
+                    rejected.incrementAndGet();
+                    throw new RuntimeException("HTTP 429 Too Many Requests");
+                }
+                Thread.sleep(5L * Math.max(1, current * current / (capacity * capacity)));
+                return ChatResponse.builder().aiMessage(AiMessage.from("ok")).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted", e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package agent;
+
+import agent.activity.Activity;
+import agent.memory.HashingEmbeddingModel;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and routing of SSE notifications: a targeted variable, a targeted event,
+ * a message for an unknown activity and a JSON-RPC batch of broadcasts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class McpEventBenchmark {
+
+    @Param({"1", "100", "10000"})
+    int activities;
+
+    private AsyncAgent<ReactBrain> agent;
+    private Activity target;
+    private String variable;
+    private String event;
+    private String unknown;
+    private String broadcastBatch;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        ChatModel idle = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                return ChatResponse.builder().aiMessage(AiMessage.from("{}")).build();
+            }
+        };
+        agent = new AsyncAgent.Builder<ReactBrain>()
+                .model(idle)
+                .agentInterface(ReactBrain.class)
+                .memory(new agent.memory.AgentMemory.Builder().embeddingModel(new HashingEmbeddingModel()).build())
+                .build();
+
+        // Registered but never queued: events are stored as for a busy activity
+        Field registryField = AsyncAgent.class.getDeclaredField("activityRegistry");
+        registryField.setAccessible(true);
+        Map<String, Activity> registry = (Map<String, Activity>) registryField.get(agent);
+        for (int i = 0; i < activities; i++) {
+            Activity activity = new Activity("Set a timer for 1 seconds called t" + i);
+            registry.put(activity.getUuid(), activity);
+            target = activity;
+        }
+
+        String uuid = target.getUuid();
+        variable = "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/message\",\"params\":{\"uuid\":\"" + uuid
+                + "\",\"mcpType\":\"variable\",\"name\":\"kettle\",\"value\":{\"state\":\"running\",\"seconds\":5}}}";
+        event = "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/message\",\"params\":{\"uuid\":\"" + uuid
+                + "\",\"mcpType\":\"event\",\"event\":{\"key\":\"t1\",\"name\":\"timer.finished\",\"message\":\"RING! Timer t1 expired\"}}}";
+        unknown = event.replace(uuid, "00000000-0000-4000-8000-000000000000");
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) batch.append(',');
+            batch.append("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/message\",\"params\":{\"uuid\":\"global\",\"mcpType\":\"event\",\"topic\":\"load.tick\",\"event\":{\"name\":\"load.tick\",\"n\":")
+                    .append(i).append("}}}");
+        }
+        broadcastBatch = batch.append(']').toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        agent.shutdown();
+    }
+
+    @Benchmark
+    public void targetedVariable() {
+        agent.handleMcpEvent(variable);
+    }
+
+    @Benchmark
+    public int targetedEvent() {
+        agent.handleMcpEvent(event);
+        // Drain so the activity's event list does not grow across invocations
+        return target.consumeEvents().size();
+    }
+
+    @Benchmark
+    public void unknownActivity() {
+        agent.handleMcpEvent(unknown);
+    }
+
+    @Benchmark
+    public void broadcastBatch() {
+        agent.handleMcpEvent(broadcastBatch);
+    }
+}
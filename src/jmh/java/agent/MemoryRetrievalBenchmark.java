@@ -0,0 +1,53 @@
+package agent;
+
+import agent.memory.AgentMemory;
+import agent.memory.EpisodicMemory;
+import agent.memory.HashingEmbeddingModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrieval at growing store sizes, with and without the outcome pre-filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemoryRetrievalBenchmark {
+    private static final String[] VERBS = {"set", "cancel", "list", "subscribe", "snooze", "rename"};
+    private static final String[] OBJECTS = {"timer", "alarm", "reminder", "stopwatch", "countdown", "notification"};
+
+    @Param({"100", "1000", "10000"})
+    int storeSize;
+
+    private AgentMemory memory;
+
+    @Setup
+    public void setUp() {
+        memory = new AgentMemory.Builder()
+                .embeddingModel(new HashingEmbeddingModel())
+                .capacity(storeSize)
+                .build();
+        for (int i = 0; i < storeSize; i++) {
+            String verb = VERBS[i % VERBS.length];
+            String object = OBJECTS[(i / VERBS.length) % OBJECTS.length];
+            memory.save(new EpisodicMemory(
+                    verb + " a " + object + " for " + i + " seconds called job" + i,
+                    i % 4 == 0 ? "FAILURE" : "SUCCESS",
+                    "Handled " + object + " " + i,
+                    List.of("Subscribe to notifications", verb + " " + object + " " + i)));
+        }
+    }
+
+    @Benchmark
+    public List<String> retrieve() {
+        return memory.retrieveRelevantMemories("set a timer for 5 seconds called kettle", 3);
+    }
+
+    @Benchmark
+    public List<String> retrieveSuccesses() {
+        return memory.retrieveRelevantMemories("snooze the alarm for 5 seconds", 3, "SUCCESS");
+    }
+}
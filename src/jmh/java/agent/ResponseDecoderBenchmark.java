@@ -0,0 +1,47 @@
+package agent;
+
+import agent.response.ActResult;
+import agent.response.ObserveResult;
+import agent.response.PhaseResponseDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the phase responses that replaced the old cleanJson/parseCompleted pair:
+ * clean JSON, fenced JSON and chatty output with trailing noise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseDecoderBenchmark {
+
+    private static final String ACT = "{\"tool_name\": \"timerTool\", \"tool_names\": [\"timerTool\", \"timerTool\"], \"wait_for\": 2, \"summary\": \"Set two timers\"}";
+    private static final String FENCED_ACT = "```json\n" + ACT + "\n```";
+    private static final String OBSERVE = """
+            Here is my observation:
+            {"completed": "false", "summary": "Waiting for the timer",
+             "new_progress": "1 [x] Subscribe\\n2 [x] Set timer\\n3 [ ] Wait for timer.finished",
+             "update_variables": {"timer_id": 42, "state": "running"},
+             "wake_on": [{"event": "timer.finished"}],}
+            Let me know if you need anything else {""";
+
+    private final PhaseResponseDecoder decoder = new PhaseResponseDecoder();
+
+    @Benchmark
+    public ActResult decodeAct() {
+        return decoder.decode(ACT, ActResult.class);
+    }
+
+    @Benchmark
+    public ActResult decodeFencedAct() {
+        return decoder.decode(FENCED_ACT, ActResult.class);
+    }
+
+    @Benchmark
+    public boolean decodeChattyObservation() {
+        ObserveResult result = decoder.decode(OBSERVE, ObserveResult.class);
+        return result != null && result.completed();
+    }
+}
@@ -0,0 +1,43 @@
+package agent;
+
+import agent.activity.TopicRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One broadcast fanned out to every subscribed activity, each of which also holds a
+ * private subscription that must not slow the fan-out down.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TopicFanOutBenchmark {
+
+    @Param({"1000", "100000"})
+    int subscribers;
+
+    private TopicRegistry registry;
+    private JsonNode tick;
+
+    @Setup
+    public void setUp() {
+        registry = new TopicRegistry();
+        for (int i = 0; i < subscribers; i++) {
+            String uuid = UUID.randomUUID().toString();
+            registry.subscribe(uuid, "clock.tick");
+            registry.subscribe(uuid, "private." + i);
+        }
+        tick = new ObjectMapper().createObjectNode().put("name", "clock.tick");
+    }
+
+    @Benchmark
+    public int publish(Blackhole blackhole) {
+        return registry.publish("clock.tick", tick, (uuid, batch) -> blackhole.consume(batch));
+    }
+}
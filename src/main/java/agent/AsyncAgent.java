@@ -1,28 +1,74 @@
 package agent;
 
 import agent.activity.Activity;
+import agent.activity.EventQuorum;
 import agent.activity.ReasoningStep;
+import agent.activity.TopicRegistry;
+import agent.activity.WakeCondition;
+import agent.activity.WakeIndex;
+import agent.context.ContextWindow;
+import agent.context.HistorySummarizer;
+import agent.jfr.ModelCallEvent;
+import agent.jfr.PhaseExecutionEvent;
+import agent.jfr.SseIngestEvent;
+import agent.journal.EventJournal;
+import agent.journal.EventJournal.Category;
 import agent.memory.AgentMemory;
+import agent.memory.EmbeddingService;
 import agent.memory.EpisodicMemory;
+import agent.memory.ToolStep;
+import agent.metrics.AgentMetrics;
+import agent.metrics.MetricsServer;
+import agent.metrics.PhaseMetrics;
+import agent.model.ConcurrencyLimiter;
+import agent.model.HedgingChatModel;
+import agent.model.LimitedChatModel;
+import agent.model.ModelRouter;
+import agent.model.PhaseChatModel;
+import agent.model.StructuredOutputChatModel;
+import agent.recording.TraceReplayer;
+import agent.recording.TraceWriter;
+import agent.tracing.ActivityTracer;
+import agent.tracing.OpenSpan;
+import agent.tracing.SpanExporter;
+import agent.replay.ProcedureBinder;
+import agent.replay.RecordingToolProvider;
+import agent.replay.ReplayPlan;
+import agent.response.ActResult;
+import agent.response.ObserveResult;
+import agent.response.PhaseResponseDecoder;
+import agent.response.ReflectResult;
+import agent.tools.CachingToolProvider;
+import agent.tools.DeferredToolProvider;
+import agent.tools.ToolDispatcher;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agentic.AgenticServices;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.mcp.McpToolProvider;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.ollama.OllamaChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.service.tool.ToolProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
@@ -32,76 +78,315 @@ public class AsyncAgent<T extends ReactBrain> {
     private final ChatModel model;
     private final Class<T> agentInterface;
     private final T agentBrain;
+    private final Object[] tools;
+    private final ToolProvider mcpToolProvider;
+    private final CachingToolProvider toolCatalog;
+    private final RecordingToolProvider toolProvider;
+    private final ToolDispatcher toolDispatcher;
+    private final boolean procedureReplay;
+    private final int maxForks;
+    private final double replayThreshold;
+    private volatile Activity currentActivity;
+    // Event loop thread only: the JFR event and spans of the pass in progress
+    private PhaseExecutionEvent currentExecution;
+    private OpenSpan currentPhaseSpan = OpenSpan.NOOP;
+    private OpenSpan currentModelSpan = OpenSpan.NOOP;
+    private final ActivityTracer tracer;
+    private final EventJournal journal;
+    private final ContextWindow contextWindow;
+    private final HistorySummarizer historySummarizer;
+    private final boolean ownsJournal;
+    private final Map<Phase, ChatModel> phaseModels = new EnumMap<>(Phase.class);
+    private final ModelRouter modelRouter;
+    private final Map<BrainKey, T> phaseBrains = new ConcurrentHashMap<>();
+    private final PhaseMetrics phaseMetrics = new PhaseMetrics();
+    private final AgentMetrics metrics;
+    private final MetricsServer metricsServer;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final ChatModel hedgeModel;
+    private final double hedgePercentile;
+    private final List<HedgingChatModel> hedgedModels = new CopyOnWriteArrayList<>();
+    // One pool for the primary and hedge calls of every phase brain
+    private final ExecutorService hedgeExecutor;
+    private final Duration wakeTimeout;
+    // Deadlines of waits on explicit wake conditions, by activity
+    private final ScheduledExecutorService wakeTimer;
+    private final Map<String, ScheduledFuture<?>> wakeDeadlines = new ConcurrentHashMap<>();
+    private final boolean structuredOutput;
+    private final TraceWriter traceWriter;
+    private final TraceReplayer traceReplayer;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final AgentMemory agentMemory;
     private final UUID agentId = UUID.randomUUID();
     private final Logger logger = LoggerFactory.getLogger(AsyncAgent.class);
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PhaseResponseDecoder responseDecoder = new PhaseResponseDecoder();
     private final Map<String, Activity> activityRegistry = new ConcurrentHashMap<>();
+    private final WakeIndex wakeIndex = new WakeIndex();
+    private final TopicRegistry topicRegistry = new TopicRegistry();
 
     private final String sseUrl;
 
     private final BlockingQueue<Activity> activityQueue = new LinkedBlockingQueue<>();
     private final AtomicBoolean loopRunning = new AtomicBoolean(true);
 
-    private static final int WINDOW_SIZE = 5;
+    private static final String CHILD_COMPLETED_EVENT = "child.completed";
+    private static final String WAKE_TIMEOUT_EVENT = "wake.timeout";
 
     private AsyncAgent(Builder<T> builder) {
-        this.agentMemory = new AgentMemory();
+        if (builder.memory != null) {
+            this.agentMemory = builder.memory;
+        } else if (builder.embeddingService != null) {
+            this.agentMemory = new AgentMemory.Builder().embeddingModel(builder.embeddingService).build();
+        } else {
+            this.agentMemory = new AgentMemory();
+        }
         this.model = builder.model;
         this.agentInterface = builder.agentInterface;
         this.sseUrl = builder.sseUrl;
+        this.tools = builder.tools;
+        // Tool listings are served from memory when a catalog cache is configured
+        if (builder.toolCatalog != null) {
+            this.toolCatalog = builder.toolCatalog;
+        } else if (builder.mcpToolProvider != null && builder.toolCacheTtl != null) {
+            this.toolCatalog = new CachingToolProvider.Builder()
+                    .source("mcp", builder.mcpToolProvider)
+                    .ttl(builder.toolCacheTtl)
+                    .build();
+        } else {
+            this.toolCatalog = null;
+        }
+        this.mcpToolProvider = toolCatalog != null ? toolCatalog : builder.mcpToolProvider;
+        // Tool calls are recorded per activity so successful runs can be replayed
+        if (mcpToolProvider != null && builder.asyncTools) {
+            // The model only chooses calls; they run on the dispatcher and report back as events
+            this.toolDispatcher = builder.toolDispatcher.provider(mcpToolProvider).build();
+            this.toolProvider = new RecordingToolProvider(new DeferredToolProvider(mcpToolProvider, this::deferToolCall), this::onToolExecuted);
+        } else {
+            this.toolDispatcher = null;
+            this.toolProvider = mcpToolProvider == null ? null : new RecordingToolProvider(mcpToolProvider, this::onToolExecuted);
+        }
+        this.procedureReplay = builder.procedureReplay;
+        this.maxForks = builder.maxForks;
+        this.replayThreshold = builder.replayThreshold;
+        this.modelRouter = builder.modelRouter;
+        this.concurrencyLimiter = builder.concurrencyLimiter;
+        this.hedgeModel = builder.hedgeModel;
+        this.hedgeExecutor = hedgeModel == null ? null : Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "hedged-model-call");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.hedgePercentile = builder.hedgePercentile;
+        this.wakeTimeout = builder.wakeTimeout;
+        this.wakeTimer = wakeTimeout.isZero() ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "wake-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.structuredOutput = builder.structuredOutput;
+        this.traceWriter = builder.traceWriter;
+        this.traceReplayer = builder.traceReplayer;
+        this.tracer = builder.spanExporter == null ? null : new ActivityTracer(builder.spanExporter);
+        this.contextWindow = builder.contextWindow != null ? builder.contextWindow
+                : PrefixCachedBrain.class.isAssignableFrom(agentInterface)
+                        // Its prompts share a prefix only while the history window holds still
+                        ? new ContextWindow.Builder().loopHistoryBudget(2000).blockSize(8).build()
+                        : new ContextWindow.Builder().build();
+        // Folds happen on their own schedule, so a replayed trace could not reproduce them
+        this.historySummarizer = builder.summarizeHistory && builder.traceReplayer == null
+                ? builder.historySummarizer
+                        .contextWindow(contextWindow)
+                        .summarize((summary, steps) -> callBrain(Phase.SUMMARIZE, summary, steps))
+                        .build()
+                : null;
+        this.ownsJournal = builder.journal == null;
+        this.journal = ownsJournal ? new EventJournal.Builder().build() : builder.journal;
+        this.metrics = new AgentMetrics(phaseMetrics, this::activityCounts, agentMemory::size);
+        if (builder.metricsPort >= 0) {
+            try {
+                this.metricsServer = new MetricsServer(metrics, builder.metricsPort);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot start the metrics endpoint", e);
+            }
+        } else {
+            this.metricsServer = null;
+        }
+
+        this.agentBrain = buildBrain(model, true);
+
+        // Each phase gets its own brain bound to its own (possibly cheaper) model
+        for (Phase phase : Phase.values()) {
+            ChatModel phaseModel = builder.phaseModels.getOrDefault(phase, model);
+            phaseModels.put(phase, phaseModel);
+            brainFor(phase, phaseModel);
+        }
 
+        if (this.sseUrl != null && !this.sseUrl.isEmpty()) {
+            startSseListener();
+        }
+
+        executor.submit(this::eventLoop);
+
+        if (traceReplayer != null) {
+            traceReplayer.start(start -> enqueue(start.goal(), start.topics().toArray(String[]::new)), this::handleMcpEvent);
+        }
+    }
+
+    private T buildBrain(ChatModel chatModel, boolean withTools) {
         var agent = AgenticServices
                 .agentBuilder(agentInterface)
-                .chatModel(model)
+                .chatModel(chatModel)
                 .beforeAgentInvocation(request -> logger.debug("[BEFORE AGENT] {}", request))
                 .afterAgentInvocation(response -> logger.debug("[AFTER AGENT] {}", response));
 
-        if (builder.tools != null && builder.tools.length > 0) {
-            agent.tools(builder.tools);
+        if (withTools && tools != null && tools.length > 0) {
+            agent.tools(tools);
         }
 
-        if (builder.mcpToolProvider != null) {
-            agent.toolProvider(builder.mcpToolProvider);
+        if (withTools && toolProvider != null) {
+            agent.toolProvider(toolProvider);
         }
 
-        this.agentBrain = agent.build();
+        return agent.build();
+    }
 
-        if (this.sseUrl != null && !this.sseUrl.isEmpty()) {
-            startSseListener();
-        }
+    private ChatModel limited(Phase phase, ChatModel chatModel) {
+        return concurrencyLimiter == null ? chatModel : new LimitedChatModel(phase, chatModel, concurrencyLimiter);
+    }
 
-        executor.submit(this::eventLoop);
+    private T brainFor(Phase phase, ChatModel chatModel) {
+        return phaseBrains.computeIfAbsent(new BrainKey(phase, chatModel), key -> {
+            // The limiter sits on each backend call, so a hedge takes a slot of its own;
+            // metrics measure the (possibly hedged) call including any wait for a slot
+            ChatModel wrapped = limited(phase, chatModel);
+            if (hedgeModel != null && hedgeModel != chatModel) {
+                HedgingChatModel hedged = new HedgingChatModel.Builder()
+                        .primary(wrapped)
+                        .secondary(limited(phase, hedgeModel))
+                        .percentile(hedgePercentile)
+                        .executor(hedgeExecutor)
+                        .build();
+                hedgedModels.add(hedged);
+                wrapped = hedged;
+            }
+            JsonSchema schema = structuredOutput ? responseSchema(phase) : null;
+            if (schema != null) {
+                wrapped = new StructuredOutputChatModel(wrapped, schema);
+            }
+            wrapped = new PhaseChatModel(phase, wrapped, phaseMetrics);
+            // Summaries run off the loop: no tool catalog to ship and no activity to attribute calls to
+            return buildBrain(wrapped, phase != Phase.SUMMARIZE);
+        });
+    }
+
+    private static JsonSchema responseSchema(Phase phase) {
+        return switch (phase) {
+            case ACT -> ActResult.jsonSchema();
+            case OBSERVE -> ObserveResult.jsonSchema();
+            case REFLECT -> ReflectResult.jsonSchema();
+            default -> null;
+        };
+    }
+
+    /**
+     * Queue a new activity for the goal, subscribed to the given broadcast topics.
+     * Returns the activity uuid, or null for a blank request.
+     */
+    public String request(String request, String... topics) {
+        Activity activity = enqueue(request, topics);
+        return activity == null ? null : activity.getUuid();
+    }
+
+    /**
+     * Like {@link #request(String, String...)}, but returns a future completed with the
+     * activity once it is done (after reflection).
+     */
+    public CompletableFuture<Activity> submit(String request, String... topics) {
+        Activity activity = enqueue(request, topics);
+        if (activity == null) return CompletableFuture.failedFuture(new IllegalArgumentException("blank request"));
+        return activity.completion();
     }
 
-    public void request(String request) {
-        if (request == null || request.isBlank()) return;
+    private Activity enqueue(String request, String... topics) {
+        if (request == null || request.isBlank()) return null;
         Activity activity = new Activity(request);
+        for (String topic : topics) {
+            topicRegistry.subscribe(activity.getUuid(), topic);
+        }
+        if (traceWriter != null) traceWriter.start(activity.getUuid(), null, request, List.of(topics));
+        if (tracer != null) tracer.startActivity(activity.getUuid(), request, null);
+        if (procedureReplay && toolProvider != null) {
+            long lookup = System.nanoTime();
+            OpenSpan span = span(activity, null, "memory.procedure_lookup");
+            EpisodicMemory procedure = agentMemory.findReplayableProcedure(request, replayThreshold);
+            span.attribute("memory.found", procedure != null).end();
+            metrics.recordRetrieval(System.nanoTime() - lookup);
+            ReplayPlan plan = ProcedureBinder.bind(procedure, request, activity.getUuid());
+            if (plan != null) {
+                activity.setReplayPlan(plan);
+                activity.setStatus(Activity.Status.REPLAYING);
+                journal.record(Category.REPLAY, activity.getUuid(), "⏯️ Replaying learned procedure", plan.sourceGoal(), plan.steps().size());
+            }
+        }
         activityRegistry.put(activity.getUuid(), activity);
+        schedule(activity);
+        journal.record(Category.ACTIVITY, activity.getUuid(), "Queued Activity", request);
+        return activity;
+    }
+
+    /**
+     * Deliver broadcast messages (no uuid) for {@code topic} to the activity as well.
+     * Use {@link TopicRegistry#ALL} to receive every broadcast.
+     */
+    public void subscribe(String activityUuid, String topic) {
+        topicRegistry.subscribe(activityUuid, topic);
+    }
+
+    public void unsubscribe(String activityUuid, String topic) {
+        topicRegistry.unsubscribe(activityUuid, topic);
+    }
+
+    private void schedule(Activity activity) {
+        activity.markQueued();
         activityQueue.offer(activity);
-        logger.info("Queued Activity {} (goal={})", activity.getUuid(), request);
     }
 
     private void eventLoop() {
         logger.info("🚦 Agent event loop started");
         while (loopRunning.get() && !Thread.currentThread().isInterrupted()) {
+            PhaseExecutionEvent execution = null;
             try {
                 Activity activity = activityQueue.poll(500, TimeUnit.MILLISECONDS);
                 if (activity == null) continue;
 
                 Activity.Status status = activity.getStatus();
                 String phase = status == null ? "UNKNOWN" : status.name();
+                long queuedAt = activity.getQueuedAtNanos();
+                long queueWait = queuedAt == 0 ? 0 : System.nanoTime() - queuedAt;
+                if (queuedAt != 0) metrics.recordQueueWait(queueWait);
+                execution = new PhaseExecutionEvent();
+                execution.begin();
+                if (execution.isEnabled()) {
+                    execution.activityId = activity.getUuid();
+                    execution.phase = phase;
+                    execution.queueWait = queueWait;
+                    currentExecution = execution;
+                }
+                if (tracer != null) {
+                    if (queuedAt != 0) tracer.startedAt(activity.getUuid(), null, "queue", queuedAt).end();
+                    currentPhaseSpan = tracer.start(activity.getUuid(), null, "phase " + phase);
+                }
                 logger.debug("Processing activity {} phase={}", activity.getUuid(), phase);
 
-                String history = this.extractActivityHistory(activity, WINDOW_SIZE);
+                if (historySummarizer != null && status != Activity.Status.COMPLETED) historySummarizer.onStep(activity);
                 String activityUuid = activity.getUuid();
                 String contextJson;
                 try {
                     Map<String, Object> ctx = new HashMap<>();
                     ctx.put("activityUuid", activityUuid);
-                    ctx.put("variables", activity.getBeliefsSnapshot());
+                    ctx.put("variables", contextWindow.beliefs(activity.getBeliefsSnapshot()));
                     contextJson = objectMapper.writeValueAsString(ctx);
                 } catch (Exception e) {
                     logger.debug("Failed to serialize context", e);
@@ -110,71 +395,88 @@ public class AsyncAgent<T extends ReactBrain> {
 
                 // ---  PROGRESS TRACKER EXTRACTION ---
                 String progressTracker = "(No plan yet. Create one in Observation phase.)";
-                JsonNode progressNode = activity.getBelief("goal_progress");
+                JsonNode progressNode = activity.getBelief(Activity.PROGRESS_BELIEF);
                 if (progressNode != null && !progressNode.isNull()) {
                     progressTracker = progressNode.asText();
                 }
 
                 switch (status) {
+                    case REPLAYING -> replayStep(activity);
                     case REASONING -> {
                         if (activity.hasEvents()) {
-                            logger.info("⚡ Events pending for Activity {} in REASONING phase. Skipping to OBSERVATION.", activityUuid);
+                            journal.record(Category.PHASE, activityUuid, "⚡ Events pending in REASONING phase. Skipping to OBSERVATION.");
                             activity.setStatus(Activity.Status.OBSERVATION);
-                            activityQueue.offer(activity);
+                            schedule(activity);
                             break;
                         }
+                        String history = contextWindow.history(activity, Phase.REASON);
+                        long retrieval = System.nanoTime();
+                        OpenSpan retrievalSpan = span(activity, currentPhaseSpan, "memory.retrieve");
                         List<String> relevantMemories = agentMemory.retrieveRelevantMemories(activity.getGoal(), 2);
+                        retrievalSpan.attribute("memory.results", relevantMemories.size()).end();
+                        metrics.recordRetrieval(System.nanoTime() - retrieval);
                         String memoriesText = "No relevant past memories found.";
                         if (!relevantMemories.isEmpty()) {
                             memoriesText = String.join("\n\n--- MEMORY ---\n", relevantMemories);
-                            logger.info("🧠 Found {} relevant memories for reasoning.", relevantMemories.size());
+                            journal.record(Category.MODEL, activityUuid, "🧠 Relevant memories for reasoning", relevantMemories.size());
                         }
-                        String reasoningResult = invokeAgentMethod("reason", activity.getGoal(), history, contextJson, progressTracker, memoriesText);
+                        String reasoningResult = invokeAgentMethod(activity, Phase.REASON, activity.getGoal(), history, contextJson, progressTracker, memoriesText);
 
                         Map<String, Object> snapshot = activity.getBeliefsSnapshot();
                         activity.addStep(new ReasoningStep("reason", activity.getGoal(), reasoningResult, snapshot));
 
                         activity.setStatus(Activity.Status.ACTION);
-                        logger.info("Activity {} moved to ACTION", activity.getUuid());
-                        activityQueue.offer(activity);
+                        journal.record(Category.PHASE, activity.getUuid(), "Moved to ACTION");
+                        schedule(activity);
                     }
                     case ACTION -> {
-
-                        String actionResultJson = invokeAgentMethod("act", activity.getGoal(), history, contextJson, progressTracker);
-                        logger.info("🛠️ Action Result: {}", actionResultJson);
-
-                        String toolName = null;
+                        String history = contextWindow.history(activity, Phase.ACT);
+                        String actionResultJson;
+                        int tracedBefore = activity.getToolTrace().size();
+                        currentActivity = activity;
                         try {
-                            String cleanAction = cleanJson(actionResultJson);
-                            JsonNode node = objectMapper.readTree(cleanAction);
-                            if (node.has("tool_name") && !node.get("tool_name").isNull()) {
-                                toolName = node.get("tool_name").asText();
-                            }
-                        } catch (Exception e) {
+                            actionResultJson = invokeAgentMethod(activity, Phase.ACT, activity.getGoal(), history, contextJson, progressTracker);
+                        } finally {
+                            currentActivity = null;
+                        }
+                        journal.record(Category.MODEL, activityUuid, "🛠️ Action Result", actionResultJson);
+
+                        ActResult action = responseDecoder.decode(actionResultJson, ActResult.class);
+                        if (action == null) {
                             logger.warn("⚠️ Invalid JSON in ACT response: {}", actionResultJson);
+                            action = ActResult.EMPTY;
                         }
 
                         Map<String, Object> snapshot = activity.getBeliefsSnapshot();
                         activity.addStep(new ReasoningStep("act", activity.getGoal(), actionResultJson, snapshot));
 
-                        if (toolName != null && !toolName.isEmpty() && !toolName.equalsIgnoreCase("null")) {
-                            logger.info("🛠️ Tool Call Detected: '{}'. Checking for immediate events...", toolName);
-                            if (activity.hasEvents()) {
-                                logger.info("⚡ Event arrived DURING action execution! Skipping suspension for Activity {}.", activityUuid);
-                                activity.setStatus(Activity.Status.OBSERVATION);
-                                activityQueue.offer(activity);
+                        // Recorded calls are authoritative; local tools are only known from the report
+                        int calls = Math.max(activity.getToolTrace().size() - tracedBefore, action.calls().size());
+                        if (calls > 0) {
+                            journal.record(Category.TOOL, activityUuid, "🛠️ Tool Call Detected. Checking for immediate events...", action.calls());
+                            if (calls > 1) {
+                                activity.setQuorum(new EventQuorum(calls, action.waitFor()));
+                                journal.record(Category.TOOL, activityUuid, "🧺 Batch of tool calls, waking after required events", calls, activity.getQuorum().required());
+                            }
+                            // Suspend before checking: an async tool result landing in between then wakes us itself
+                            activity.setStatus(Activity.Status.WAITING_FOR_EVENT);
+                            if (shouldResumeNow(activity)) {
+                                journal.record(Category.PHASE, activityUuid, "⚡ Event arrived DURING action execution! Skipping suspension.");
+                                wake(activity, "event during action");
                             } else {
-                                logger.info("💤 Suspending Activity {} (Waiting for future event)", activityUuid);
-                                activity.setStatus(Activity.Status.WAITING_FOR_EVENT);
+                                journal.record(Category.PHASE, activityUuid, "💤 Suspending (Waiting for future event)");
+                                armWakeDeadline(activity);
                             }
                         } else {
-                            logger.info("⏩ No Tool Call. Proceeding to OBSERVE immediately.");
+                            journal.record(Category.PHASE, activityUuid, "⏩ No Tool Call. Proceeding to OBSERVE immediately.");
                             activity.setStatus(Activity.Status.OBSERVATION);
-                            activityQueue.offer(activity);
+                            schedule(activity);
                         }
                     }
                     case OBSERVATION -> {
+                        activity.setQuorum(null);
                         List<JsonNode> eventsList = activity.consumeEvents();
+                        activity.recordEvents(traceableEventNames(eventsList));
                         String eventsJson = "[]";
                         try {
                             eventsJson = objectMapper.writeValueAsString(eventsList);
@@ -183,84 +485,104 @@ public class AsyncAgent<T extends ReactBrain> {
                         }
                         logger.debug("Serialized events for activity {}: {}", activityUuid, eventsJson);
 
-                        String obsResult = invokeAgentMethod("observe", activity.getGoal(), history, contextJson, eventsJson, progressTracker);
+                        String history = contextWindow.history(activity, Phase.OBSERVE);
+                        // Children do not fork again, so only a root activity hears about it
+                        String forkOption = maxForks > 0 && activity.getParent() == null ? ReactBrain.FORK_OPTION : "";
+                        String obsResult = invokeAgentMethod(activity, Phase.OBSERVE, activity.getGoal(), history, contextJson, eventsJson, progressTracker, forkOption);
+
+                        // Decoded once: progress, variables and the completion flag all come from here
+                        ObserveResult observation = responseDecoder.decode(obsResult, ObserveResult.class);
+                        if (observation == null) {
+                            logger.warn("⚠️ Could not parse JSON for completion check. Keeping activity alive. Response: {}", obsResult);
+                            observation = ObserveResult.EMPTY;
+                        }
 
                         // --- 2. UPDATE PROGRESS & VARIABLES ---
-                        try {
-                            String cleanObs = cleanJson(obsResult);
-                            JsonNode obsNode = objectMapper.readTree(cleanObs);
-
-                            // A. Update PROGRESS TRACKER
-                            if (obsNode.has("new_progress")) {
-                                String newProgress = obsNode.get("new_progress").asText();
-                                // Save as special TextNode variable
-                                activity.setBelief("goal_progress", TextNode.valueOf(newProgress));
-                                logger.info("📝 PROGRESS UPDATED for {}:\n{}", activityUuid, newProgress);
-                            }
+                        // A. Update PROGRESS TRACKER
+                        if (observation.newProgress() != null) {
+                            String newProgress = observation.newProgress();
+                            // Save as special TextNode variable
+                            activity.setBelief(Activity.PROGRESS_BELIEF, TextNode.valueOf(newProgress));
+                            journal.record(Category.MODEL, activityUuid, "📝 PROGRESS UPDATED", newProgress);
+                        }
 
-                            // B. Update other variables (technical beliefs)
-                            if (obsNode.has("update_variables") && obsNode.get("update_variables").isObject()) {
-                                JsonNode updates = obsNode.get("update_variables");
-                                updates.fields().forEachRemaining(entry -> {
-                                    activity.setBelief(entry.getKey(), entry.getValue());
-                                    logger.info("🧠 Belief Update for {}: {} -> {}", activityUuid, entry.getKey(), entry.getValue());
-                                });
-                            }
-                        } catch (Exception e) { /* ignore non-json */ }
+                        // B. Update other variables (technical beliefs)
+                        observation.updateVariables().forEach((key, value) -> {
+                            activity.setBelief(key, value);
+                            journal.record(Category.BELIEF, activityUuid, "🧠 Belief Update", key, value);
+                        });
+
+                        // C. What the next wait should react to (none: any event)
+                        wakeIndex.register(activityUuid, observation.wakeOn());
+                        if (!observation.wakeOn().isEmpty()) {
+                            journal.record(Category.MODEL, activityUuid, "⏰ Wake conditions", observation.wakeOn());
+                        }
 
                         Map<String, Object> snapshot = activity.getBeliefsSnapshot();
                         activity.addStep(new ReasoningStep("observe", activity.getGoal(), obsResult, snapshot, eventsList));
 
 
 
-                        boolean completed = parseCompleted(obsResult);
-                        if (completed) {
+                        if (observation.completed()) {
                             activity.setStatus(Activity.Status.COMPLETED);
-                            logger.info("Activity {} marked COMPLETED by observe", activity.getUuid());
+                            journal.record(Category.PHASE, activity.getUuid(), "Marked COMPLETED by observe");
+                        } else if (fork(activity, observation.fork())) {
+                            // Resumed by the join once every child has completed
+                            break;
                         } else {
                             activity.setStatus(Activity.Status.REASONING);
-                            logger.info("Activity {} cycled back to REASONING", activity.getUuid());
+                            journal.record(Category.PHASE, activity.getUuid(), "Cycled back to REASONING");
                         }
-                        activityQueue.offer(activity);
+                        schedule(activity);
                     }
                     case COMPLETED -> {
-                        logger.info("🎉 Activity {} completed. Starting REFLECTION & MEMORY STORAGE...", activity.getUuid());
-                        String fullHistory = extractActivityHistory(activity, 100);
-                        String reflectionJson = invokeAgentMethod("reflect",
+                        if (activity.getParent() != null) {
+                            // The parent reflects on the whole run, children's tool calls included
+                            join(activity);
+                            finish(activity);
+                            break;
+                        }
+                        ReplayPlan replayed = activity.getReplayPlan();
+                        if (replayed != null && replayed.finished()) {
+                            // Nothing new to learn: the procedure already is in memory
+                            journal.record(Category.ACTIVITY, activity.getUuid(), "🎉 Completed by replay without model calls");
+                            finish(activity);
+                            break;
+                        }
+                        journal.record(Category.ACTIVITY, activity.getUuid(), "🎉 Completed. Starting REFLECTION & MEMORY STORAGE...");
+                        String fullHistory = contextWindow.history(activity, Phase.REFLECT);
+                        String reflectionJson = invokeAgentMethod(activity, Phase.REFLECT,
                                 activity.getGoal(),
                                 "COMPLETED",
                                 fullHistory
                         );
                         if (reflectionJson != null && !reflectionJson.isBlank()) {
                             try {
-                                String cleanJson = cleanJson(reflectionJson);
-                                JsonNode memNode = objectMapper.readTree(cleanJson);
-
-
-                                String summary = memNode.has("summary") ? memNode.get("summary").asText() : "";
-                                String outcome = memNode.has("outcome") ? memNode.get("outcome").asText() : "UNKNOWN";
-
-                                List<String> procedure = new ArrayList<>();
-                                if (memNode.has("successful_procedure")) {
-                                    memNode.get("successful_procedure").forEach(n -> procedure.add(n.asText()));
+                                ReflectResult reflection = responseDecoder.decode(reflectionJson, ReflectResult.class);
+                                if (reflection == null) {
+                                    throw new IllegalArgumentException("Invalid JSON in REFLECT response: " + reflectionJson);
                                 }
 
                                 EpisodicMemory memory = new agent.memory.EpisodicMemory(
                                         activity.getGoal(),
-                                        outcome,
-                                        summary,
-                                        procedure
+                                        reflection.outcome(),
+                                        reflection.summary(),
+                                        reflection.successfulProcedure(),
+                                        reflection.lessonsLearned(),
+                                        reflection.keywords(),
+                                        ProcedureBinder.generalize(activity.getToolTrace(), activity.getUuid())
                                 );
 
+                                OpenSpan saveSpan = span(activity, currentPhaseSpan, "memory.save");
                                 agentMemory.save(memory);
+                                saveSpan.attribute("memory.outcome", reflection.outcome()).end();
 
                             } catch (Exception e) {
                                 logger.warn("Failed to save memory for activity {}", activity.getUuid(), e);
                             }
                         }
 
-                        activityRegistry.remove(activity.getUuid());
-
+                        finish(activity);
                     }
                     default -> {
                         logger.warn("Unknown activity status for {}: {}", activity.getUuid(), status);
@@ -271,6 +593,11 @@ public class AsyncAgent<T extends ReactBrain> {
                 logger.info("Event loop interrupted");
             } catch (Exception e) {
                 logger.error("Error while processing activity", e);
+            } finally {
+                currentExecution = null;
+                if (execution != null) execution.commit();
+                currentPhaseSpan.end();
+                currentPhaseSpan = OpenSpan.NOOP;
             }
         }
         logger.info("🛑 Agent event loop stopped");
@@ -280,49 +607,278 @@ public class AsyncAgent<T extends ReactBrain> {
 
 
 
-    private boolean parseCompleted(String obsResult) {
-        if (obsResult == null || obsResult.isBlank()) return false;
+    /**
+     * Run the next step of a learned procedure directly against the tools. Any unexpected
+     * event or tool error hands the activity back to the LLM loop.
+     */
+    private void replayStep(Activity activity) {
+        ReplayPlan plan = activity.getReplayPlan();
+        if (plan == null) {
+            activity.setStatus(Activity.Status.OBSERVATION);
+            schedule(activity);
+            return;
+        }
 
+        List<JsonNode> events = activity.consumeEvents();
+        List<String> eventNames = events.stream().map(AsyncAgent::eventName).toList();
+        for (JsonNode event : events) {
+            String name = eventName(event);
+            if (ToolDispatcher.ERROR_EVENT.equals(name)
+                    || (ToolDispatcher.RESULT_EVENT.equals(name) && looksLikeToolError(event.path("result").asText(null)))) {
+                abandonReplay(activity, events, "tool " + event.path("tool").asText() + " failed");
+                return;
+            }
+        }
+        if (!plan.acceptEvents(eventNames)) {
+            abandonReplay(activity, events, "unexpected events " + eventNames);
+            return;
+        }
+        activity.recordEvents(traceableEventNames(events));
+
+        if (plan.awaitingEvents()) {
+            journal.record(Category.REPLAY, activity.getUuid(), "💤 Replay waiting for events", eventNames);
+            activity.setStatus(Activity.Status.WAITING_FOR_EVENT);
+            if (activity.hasEvents() && activity.compareAndSetStatus(Activity.Status.WAITING_FOR_EVENT, Activity.Status.REPLAYING)) {
+                schedule(activity);
+            }
+            return;
+        }
+
+        if (!plan.hasNext()) {
+            activity.setBelief(Activity.PROGRESS_BELIEF, TextNode.valueOf(plan.completedProgress()));
+            activity.setStatus(Activity.Status.COMPLETED);
+            schedule(activity);
+            return;
+        }
+
+        if (toolDispatcher != null) {
+            // Wait for the result event before the next step; suspend first so a fast result can wake us
+            ToolStep step = plan.next(ToolDispatcher.RESULT_EVENT);
+            activity.recordToolCall(step.toolName(), step.arguments());
+            activity.addStep(new ReasoningStep("replay", step.toolName() + " " + step.arguments(), "dispatched", activity.getBeliefsSnapshot()));
+            activity.setStatus(Activity.Status.WAITING_FOR_EVENT);
+            dispatchTool(activity, step.toolName(), step.arguments());
+            journal.record(Category.REPLAY, activity.getUuid(), "⏯️ Replay dispatched", step.toolName());
+            return;
+        }
+
+        ToolStep step = plan.next();
+        String result;
         try {
-            String cleanObs = cleanJson(obsResult);
-            JsonNode node = objectMapper.readTree(cleanObs);
+            result = toolProvider.execute(step.toolName(), step.arguments(), activity.getUuid());
+        } catch (Exception e) {
+            abandonReplay(activity, List.of(), "tool " + step.toolName() + " failed: " + e.getMessage());
+            return;
+        }
+        activity.recordToolCall(step.toolName(), step.arguments());
+        activity.addStep(new ReasoningStep("replay", step.toolName() + " " + step.arguments(), result, activity.getBeliefsSnapshot()));
+        journal.record(Category.REPLAY, activity.getUuid(), "⏯️ Replayed", step.toolName(), result);
 
-            if (node.has("completed")) {
-                JsonNode completedNode = node.get("completed");
-                if (completedNode.isBoolean()) {
-                    return completedNode.asBoolean();
-                }
-                if (completedNode.isTextual()) {
-                    return Boolean.parseBoolean(completedNode.asText());
-                }
+        if (looksLikeToolError(result)) {
+            abandonReplay(activity, List.of(), "tool " + step.toolName() + " returned an error");
+            return;
+        }
+        if (plan.awaitingEvents()) {
+            activity.setStatus(Activity.Status.WAITING_FOR_EVENT);
+            if (activity.hasEvents() && activity.compareAndSetStatus(Activity.Status.WAITING_FOR_EVENT, Activity.Status.REPLAYING)) {
+                schedule(activity);
             }
+        } else {
+            schedule(activity);
+        }
+    }
 
-            if (node.has("result")) {
-                JsonNode resultNode = node.get("result");
-                if (resultNode.has("completed")) {
-                    return resultNode.get("completed").asBoolean(false);
-                }
+    private void abandonReplay(Activity activity, List<JsonNode> events, String reason) {
+        logger.warn("↩️ Replay diverged for Activity {} ({}). Falling back to the LLM loop.", activity.getUuid(), reason);
+        activity.setReplayPlan(null);
+        events.forEach(activity::pushEvent);
+        activity.setStatus(Activity.Status.OBSERVATION);
+        schedule(activity);
+    }
+
+    /**
+     * Called by the model's tool executor in async mode: dispatch and acknowledge at once.
+     */
+    private String deferToolCall(ToolExecutionRequest request) {
+        Activity activity = currentActivity;
+        if (activity == null) {
+            // Not inside an ACT phase: nobody to deliver the result to, and running it inline would block the caller
+            logger.warn("⚠️ Tool {} requested outside an ACTION phase, not executed", request.name());
+            return "Error: tool '" + request.name() + "' was not executed. Tools can only be called in the ACTION phase.";
+        }
+        dispatchTool(activity, request.name(), request.arguments());
+        return "Tool call dispatched asynchronously. Its result will arrive later as a '" + ToolDispatcher.RESULT_EVENT + "' event.";
+    }
+
+    private void dispatchTool(Activity activity, String toolName, String arguments) {
+        journal.record(Category.TOOL, activity.getUuid(), "🚀 Dispatching", toolName, toolDispatcher.timeout(toolName));
+        // Runs past the ACT phase, so it hangs off the activity rather than the model call
+        OpenSpan span = span(activity, null, "tool " + toolName).attribute("tool.mode", "async");
+        toolDispatcher.dispatch(toolName, arguments, activity.getUuid())
+                .whenComplete((result, error) -> {
+                    if (error != null) span.error(error.toString());
+                    span.end();
+                    deliverToolOutcome(activity, toolName, result, error);
+                });
+    }
+
+    /**
+     * Deliver a tool outcome as an event. Results wake the activity like any other event,
+     * so wake conditions that leave them out only store them; failures and timeouts always wake.
+     */
+    private void deliverToolOutcome(Activity activity, String toolName, String result, Throwable error) {
+        if (!activityRegistry.containsKey(activity.getUuid())) return;
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("tool", toolName);
+        if (error == null) {
+            event.put("name", ToolDispatcher.RESULT_EVENT);
+            event.put("result", result);
+            journal.record(Category.TOOL, activity.getUuid(), "📬 Tool finished", toolName, result);
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            event.put("name", ToolDispatcher.ERROR_EVENT);
+            event.put("error", String.valueOf(cause.getMessage()));
+            event.put("timeout", cause instanceof TimeoutException);
+            logger.warn("⚠️ Tool {} failed for Activity {}: {}", toolName, activity.getUuid(), cause.toString());
+        }
+        activity.pushEvent(event);
+        if (activity.getStatus() == Activity.Status.WAITING_FOR_EVENT && completes(activity, event)) {
+            wake(activity, "tool " + toolName + (error == null ? " result" : " failure"));
+        }
+    }
+
+    /**
+     * Wake policy for one event: wake conditions decide, except that tool failures always
+     * count and a replay always takes the tool results it is waiting for.
+     */
+    private boolean wakesOn(Activity activity, JsonNode event) {
+        String name = eventName(event);
+        if (ToolDispatcher.ERROR_EVENT.equals(name)) return true;
+        if (ToolDispatcher.RESULT_EVENT.equals(name) && activity.getReplayPlan() != null) return true;
+        return wakeIndex.wakesOnEvent(activity.getUuid(), name);
+    }
+
+    /**
+     * Wake policy plus batch accounting: with a pending batch, a matching event only
+     * counts towards the quorum, except failures which wake at once.
+     */
+    private boolean completes(Activity activity, JsonNode event) {
+        if (!wakesOn(activity, event)) return false;
+        EventQuorum quorum = activity.getQuorum();
+        if (quorum == null || ToolDispatcher.ERROR_EVENT.equals(eventName(event))) return true;
+        boolean reached = quorum.arrive(event);
+        logger.debug("Batch for Activity {}: {}", activity.getUuid(), quorum);
+        return reached;
+    }
+
+    /**
+     * Event names worth recording in a procedure; tool results depend on the dispatch mode
+     * and joins never happen during a replay.
+     */
+    private static List<String> traceableEventNames(List<JsonNode> events) {
+        return events.stream()
+                .map(AsyncAgent::eventName)
+                .filter(name -> !name.equals(ToolDispatcher.RESULT_EVENT) && !name.equals(ToolDispatcher.ERROR_EVENT)
+                        && !name.equals(CHILD_COMPLETED_EVENT))
+                .toList();
+    }
+
+    private void onToolExecuted(ToolExecutionRequest request, String result, long startNanos) {
+        Activity activity = currentActivity;
+        if (activity != null) {
+            activity.recordToolCall(request.name(), request.arguments());
+            if (tracer != null && currentModelSpan != OpenSpan.NOOP) {
+                tracer.startedAt(activity.getUuid(), currentModelSpan.spanId(), "tool " + request.name(), startNanos)
+                        .attribute("tool.mode", "inline")
+                        .end();
             }
+        }
+    }
 
-        } catch (Exception e) {
+    private static boolean looksLikeToolError(String result) {
+        if (result == null) return true;
+        String lower = result.toLowerCase(Locale.ROOT);
+        return result.contains("❌") || lower.startsWith("error") || lower.contains("there was an error");
+    }
 
-            logger.warn("⚠️ Could not parse JSON for completion check. Keeping activity alive. Response: {}", obsResult);
+    private static String eventName(JsonNode event) {
+        for (String field : new String[]{"name", "event", "type"}) {
+            JsonNode value = event.get(field);
+            if (value != null && value.isTextual()) return value.asText();
         }
+        return "unknown";
+    }
 
-        return false;
+    /**
+     * One brain call for the activity: answered from the trace when replaying, and
+     * recorded with its latency when a trace is being written.
+     */
+    private String invokeAgentMethod(Activity activity, Phase phase, Object... args) {
+        ModelCallEvent event = new ModelCallEvent();
+        event.begin();
+        OpenSpan span = span(activity, currentPhaseSpan, "model " + phase);
+        currentModelSpan = span;
+        int promptTokens = contextWindow.promptTokens(args);
+        phaseMetrics.recordPromptTokens(phase, promptTokens);
+        long start = System.nanoTime();
+        String result;
+        try {
+            if (traceReplayer != null) {
+                result = traceReplayer.respond(activity, phase);
+            } else {
+                result = callBrain(phase, args);
+                if (traceWriter != null) traceWriter.phase(activity.getUuid(), phase, System.nanoTime() - start, result);
+            }
+        } finally {
+            currentModelSpan = OpenSpan.NOOP;
+        }
+        long duration = System.nanoTime() - start;
+        if (span != OpenSpan.NOOP) {
+            span.attribute("prompt.chars", promptChars(args))
+                    .attribute("prompt.tokens", promptTokens)
+                    .attribute("response.chars", result.length())
+                    .attribute("replayed", traceReplayer != null);
+            if (result.isEmpty()) span.error("empty response");
+            span.end();
+        }
+        metrics.recordPhase(phase, duration);
+        PhaseExecutionEvent execution = currentExecution;
+        boolean commit = event.shouldCommit();
+        if (commit || execution != null) {
+            int prompt = promptChars(args);
+            if (execution != null) execution.addModelCall(duration, prompt, result.length());
+            if (commit) {
+                event.activityId = activity.getUuid();
+                event.phase = phase.name();
+                event.promptChars = prompt;
+                event.responseChars = result.length();
+                event.replayed = traceReplayer != null;
+                event.commit();
+            }
+        }
+        return result;
     }
 
-    private String invokeAgentMethod(String methodName, Object... args) {
+    private String callBrain(Phase phase, Object... args) {
+        String methodName = phase.methodName();
         try {
+            ChatModel chosen = phaseModels.get(phase);
+            if (modelRouter != null) {
+                String goal = args.length > 0 && args[0] != null ? args[0].toString() : null;
+                ChatModel routed = modelRouter.route(phase, goal, promptChars(args));
+                if (routed != null) chosen = routed;
+            }
+            T brain = brainFor(phase, chosen);
+
             Method target = null;
-            for (Method m : agentBrain.getClass().getMethods()) {
+            for (Method m : brain.getClass().getMethods()) {
                 if (m.getName().equalsIgnoreCase(methodName) && m.getParameterCount() == args.length) {
                     target = m;
                     break;
                 }
             }
             if (target == null) {
-                for (Method m : agentBrain.getClass().getMethods()) {
+                for (Method m : brain.getClass().getMethods()) {
                     if (m.getName().equalsIgnoreCase(methodName)) {
                         target = m;
                         break;
@@ -337,7 +893,7 @@ public class AsyncAgent<T extends ReactBrain> {
             Object result;
             int paramCount = target.getParameterCount();
             if (paramCount == 0) {
-                result = target.invoke(agentBrain);
+                result = target.invoke(brain);
             } else {
                 Object[] invokeArgs = args;
                 if (args.length != paramCount) {
@@ -349,7 +905,7 @@ public class AsyncAgent<T extends ReactBrain> {
                         invokeArgs[i] = null;
                     }
                 }
-                result = target.invoke(agentBrain, invokeArgs);
+                result = target.invoke(brain, invokeArgs);
             }
             return result == null ? "" : result.toString();
         } catch (Exception e) {
@@ -358,9 +914,25 @@ public class AsyncAgent<T extends ReactBrain> {
         }
     }
 
+    private static int promptChars(Object... args) {
+        int chars = 0;
+        for (Object arg : args) {
+            if (arg != null) chars += arg.toString().length();
+        }
+        return chars;
+    }
+
     public void shutdown() {
         loopRunning.set(false);
         executor.shutdownNow();
+        if (hedgeExecutor != null) hedgeExecutor.shutdownNow();
+        if (wakeTimer != null) wakeTimer.shutdownNow();
+        if (toolDispatcher != null) toolDispatcher.close();
+        if (traceReplayer != null) traceReplayer.stop();
+        if (traceWriter != null) traceWriter.flush();
+        if (metricsServer != null) metricsServer.close();
+        if (historySummarizer != null) historySummarizer.close();
+        if (ownsJournal) journal.close();
     }
 
     private void startSseListener() {
@@ -389,25 +961,116 @@ public class AsyncAgent<T extends ReactBrain> {
         }));
     }
 
-    private void handleMcpEvent(String json) {
+    void handleMcpEvent(String json) {
+        if (traceWriter != null) traceWriter.event(json);
+        SseIngestEvent event = new SseIngestEvent();
+        event.begin();
         try {
             JsonNode root = objectMapper.readTree(json);
-            JsonNode params = root.has("params") ? root.get("params") : root;
+            // A JSON-RPC batch is fanned out in one pass: each subscriber gets its share at once
+            List<Map.Entry<String, JsonNode>> broadcasts = new ArrayList<>();
+            if (root.isArray()) {
+                for (JsonNode message : root) {
+                    routeMcpMessage(message, broadcasts);
+                }
+            } else {
+                routeMcpMessage(root, broadcasts);
+            }
+            publishBroadcasts(broadcasts);
+            metrics.recordSseMessages(root.isArray() ? root.size() : 1);
+            event.messages = root.isArray() ? root.size() : 1;
+            event.broadcasts = broadcasts.size();
+        } catch (Exception e) {
+            event.failed = true;
+            logger.error("Failed to handle MCP event", e);
+        }
+        if (event.shouldCommit()) {
+            event.size = json.length();
+            event.commit();
+        }
+    }
 
+    private void routeMcpMessage(JsonNode root, List<Map.Entry<String, JsonNode>> broadcasts) {
+        if (CachingToolProvider.isListChanged(root) && (toolCatalog != null || toolDispatcher != null)) {
+            if (toolCatalog != null) toolCatalog.onMessage(root);
+            if (toolDispatcher != null) toolDispatcher.invalidate();
+            logger.info("🧰 Tool list changed, cached tool listings invalidated");
+            return;
+        }
+        JsonNode params = root.has("params") ? root.get("params") : root;
+        if (!params.hasNonNull("uuid") || "global".equals(params.get("uuid").asText())) {
+            broadcasts.add(Map.entry(topicOf(params), params));
+            return;
+        }
+        String msgUuid = params.get("uuid").asText();
+        Activity targetActivity = activityRegistry.get(msgUuid);
+        if (targetActivity == null) {
+            metrics.recordSseDropped();
+            logger.debug("Received message for unknown or completed activity: {}", msgUuid);
+            return;
+        }
+        applyMcpMessage(targetActivity, params);
+    }
+
+    private void publishBroadcasts(List<Map.Entry<String, JsonNode>> broadcasts) {
+        if (broadcasts.isEmpty()) return;
+        int reached = topicRegistry.publishBatch(broadcasts, (activityUuid, messages) -> {
+            Activity activity = activityRegistry.get(activityUuid);
+            if (activity == null) {
+                topicRegistry.unsubscribeAll(activityUuid);
+                return;
+            }
+            messages.forEach(message -> applyMcpMessage(activity, message));
+        });
+        journal.record(Category.BROADCAST, null, "📢 Broadcast messages to activities", broadcasts.size(), reached);
+    }
+
+    /**
+     * Topic of a broadcast: explicit {@code topic}, else the variable or event name.
+     */
+    private static String topicOf(JsonNode params) {
+        if (params.hasNonNull("topic")) return params.get("topic").asText();
+        String mcpType = params.has("mcpType") ? params.get("mcpType").asText() : "";
+        if ("variable".equalsIgnoreCase(mcpType)) {
+            if (params.hasNonNull("name")) return params.get("name").asText();
+            if (params.hasNonNull("key")) return params.get("key").asText();
+        }
+        return eventName(eventPayload(params));
+    }
+
+    private static JsonNode eventPayload(JsonNode params) {
+        JsonNode eventPayload;
+        if (params.has("payload")) eventPayload = params.get("payload");
+        else if (params.has("event")) eventPayload = params.get("event");
+        else eventPayload = params;
+
+        if (eventPayload.has("event") && eventPayload.get("event").isObject() && !eventPayload.has("key")) {
+            eventPayload = eventPayload.get("event");
+        }
+        return eventPayload;
+    }
+
+    private void applyMcpMessage(Activity targetActivity, JsonNode params) {
+        if (tracer == null) {
+            deliverMcpMessage(targetActivity, params);
+            return;
+        }
+        OpenSpan span = tracer.start(targetActivity.getUuid(), null, "event delivery");
+        boolean waiting = targetActivity.getStatus() == Activity.Status.WAITING_FOR_EVENT;
+        deliverMcpMessage(targetActivity, params);
+        span.attribute("mcp.type", params.path("mcpType").asText())
+                .attribute("message.name", topicOf(params))
+                .attribute("activity.woken", waiting && targetActivity.getStatus() != Activity.Status.WAITING_FOR_EVENT)
+                .end();
+    }
+
+    private void deliverMcpMessage(Activity targetActivity, JsonNode params) {
+        try {
+            String msgUuid = targetActivity.getUuid();
             String mcpType = null;
             if (params.has("mcpType")) {
                 mcpType = params.get("mcpType").asText();
             }
-            String msgUuid = params.has("uuid") ? params.get("uuid").asText() : "global";
-            if (msgUuid == null) {
-                logger.warn("Received MCP message without UUID, ignoring: {}", params);
-                return;
-            }
-            Activity targetActivity = activityRegistry.get(msgUuid);
-            if (targetActivity == null) {
-                logger.debug("Received message for unknown or completed activity: {}", msgUuid);
-                return;
-            }
             if ("variable".equalsIgnoreCase(mcpType)) {
                 String name = null;
                 if (params.has("name")) name = params.get("name").asText();
@@ -417,78 +1080,256 @@ public class AsyncAgent<T extends ReactBrain> {
                 JsonNode value = params.has("value") ? params.get("value") : NullNode.getInstance();
 
                 targetActivity.setBelief(name, value);
-                logger.info("🔁 Belief stored in Activity {}: {} -> {}", msgUuid, name, value);
+                journal.record(Category.BELIEF, msgUuid, "🔁 Belief stored", name, value);
+                if (targetActivity.getStatus() == Activity.Status.WAITING_FOR_EVENT && wakeIndex.wakesOnBelief(msgUuid, name, value)) {
+                    wake(targetActivity, "belief " + name);
+                }
                 return;
             }
 
             if ("event".equalsIgnoreCase(mcpType)) {
-                JsonNode eventPayload = null;
-                if (params.has("payload")) eventPayload = params.get("payload");
-                else if (params.has("event")) eventPayload = params.get("event");
-                else eventPayload = params;
-
-                if (eventPayload.has("event") && eventPayload.get("event").isObject() && !eventPayload.has("key")) {
-                    eventPayload = eventPayload.get("event");
-                }
+                JsonNode eventPayload = eventPayload(params);
 
                 targetActivity.pushEvent(eventPayload);
-                logger.info("📥 Event pushed to Activity {}: {}", msgUuid, eventPayload);
+                journal.record(Category.EVENT, msgUuid, "📥 Event pushed", eventPayload);
 
                 if (targetActivity.getStatus() == Activity.Status.WAITING_FOR_EVENT) {
-                    targetActivity.setStatus(Activity.Status.OBSERVATION);
-                    activityQueue.offer(targetActivity);
-                    logger.info("🔔 WAKING UP Activity {} -> Resumed to OBSERVATION", msgUuid);
+                    String name = eventName(eventPayload);
+                    if (completes(targetActivity, eventPayload)) {
+                        wake(targetActivity, "event " + name);
+                    } else {
+                        logger.debug("Event {} for {} matches no wake condition. Stored without waking.", name, msgUuid);
+                    }
                 } else {
                     logger.debug("Event received for {} but activity is busy ({}). Event queued inside activity.", msgUuid, targetActivity.getStatus());
                 }
                 return;
             }
 
-            logger.info("⚪ Ignored MCP message (not event/variable): {}", params);
+            journal.record(Category.EVENT, null, "⚪ Ignored MCP message (not event/variable)", params);
 
         } catch (Exception e) {
             logger.error("Failed to handle MCP event", e);
         }
     }
 
-    private String cleanJson(String response) {
-        if (response == null) return "{}";
-        String trimmed = response.trim();
+    /**
+     * Whether something that already arrived would wake the activity if it suspended now.
+     */
+    private boolean shouldResumeNow(Activity activity) {
+        String uuid = activity.getUuid();
+        boolean ready = false;
+        for (JsonNode event : activity.peekEvents()) {
+            // Keep counting so every early event reaches the batch quorum
+            ready |= completes(activity, event);
+        }
+        if (ready) return true;
+        for (WakeCondition condition : wakeIndex.conditions(uuid)) {
+            if (condition instanceof WakeCondition.BeliefEquals belief && belief.matches(activity.getBelief(belief.key()))) return true;
+        }
+        return false;
+    }
 
-        // Remove markdown blocks ```json ... ``` or ``` ... ```
-        if (trimmed.startsWith("```")) {
-            int start = trimmed.indexOf("{");
-            int end = trimmed.lastIndexOf("}");
-            if (start != -1 && end != -1) {
-                return trimmed.substring(start, end + 1);
-            }
+    private void finish(Activity activity) {
+        activityRegistry.remove(activity.getUuid());
+        wakeIndex.unregister(activity.getUuid());
+        cancelWakeDeadline(activity.getUuid());
+        topicRegistry.unsubscribeAll(activity.getUuid());
+        if (tracer != null) tracer.finishActivity(activity.getUuid(), String.valueOf(activity.getStatus()));
+        activity.completion().complete(activity);
+    }
+
+    private OpenSpan span(Activity activity, OpenSpan parent, String name) {
+        if (tracer == null) return OpenSpan.NOOP;
+        return tracer.start(activity.getUuid(), parent == null || parent == OpenSpan.NOOP ? null : parent.spanId(), name);
+    }
+
+    /**
+     * Spawn one child activity per independent sub-goal and suspend the parent until
+     * they have all joined. Children do not fork again. Returns false when nothing was forked.
+     */
+    private boolean fork(Activity parent, List<String> subGoals) {
+        if (subGoals.isEmpty() || maxForks == 0 || parent.getParent() != null) return false;
+        if (subGoals.size() > maxForks) {
+            logger.warn("⚠️ Activity {} asked for {} children, running the first {}", parent.getUuid(), subGoals.size(), maxForks);
+            subGoals = subGoals.subList(0, maxForks);
+        }
+        parent.setStatus(Activity.Status.WAITING_FOR_EVENT);
+        Set<String> topics = topicRegistry.topics(parent.getUuid());
+        for (String subGoal : subGoals) {
+            Activity child = new Activity(subGoal, parent);
+            parent.addChild(child.getUuid());
+            topics.forEach(topic -> topicRegistry.subscribe(child.getUuid(), topic));
+            if (traceWriter != null) traceWriter.start(child.getUuid(), parent.getUuid(), subGoal, topics);
+            if (tracer != null) tracer.startActivity(child.getUuid(), subGoal, parent.getUuid());
+            activityRegistry.put(child.getUuid(), child);
+            schedule(child);
+            journal.record(Category.ACTIVITY, parent.getUuid(), "🍴 Forked child", child.getUuid(), subGoal);
+        }
+        return true;
+    }
+
+    /**
+     * Merge a completed child into its parent: its own beliefs, its tool calls and a
+     * 'child.completed' event. The last child to finish resumes the parent.
+     */
+    private void join(Activity child) {
+        Activity parent = child.getParent();
+        Map<String, JsonNode> results = child.ownBeliefs();
+        results.remove(Activity.PROGRESS_BELIEF);
+        results.forEach(parent::setBelief);
+        parent.appendToolTrace(child.getToolTrace());
+
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("name", CHILD_COMPLETED_EVENT);
+        event.put("child", child.getUuid());
+        event.put("goal", child.getGoal());
+        JsonNode progress = child.getBelief(Activity.PROGRESS_BELIEF);
+        if (progress != null) event.set("progress", progress);
+        event.set("variables", objectMapper.valueToTree(results));
+        parent.pushEvent(event);
+        journal.record(Category.ACTIVITY, parent.getUuid(), "🔗 Child joined", child.getUuid());
+
+        if (parent.childFinished(child.getUuid())) {
+            wake(parent, "join of its children");
         }
-        return trimmed;
     }
 
-    private String extractActivityHistory(Activity activity, int windowSize) {
-        StringBuilder historyBuilder = new StringBuilder();
-        List<ReasoningStep> steps = activity.getHistory();
-        int start = Math.max(0, steps.size() - windowSize);
-        for (int i = start; i < steps.size(); i++) {
-            ReasoningStep step = steps.get(i);
-            historyBuilder.append(step.toJson()).append("\n");
+    private void wake(Activity activity, String reason) {
+        if (activity.hasPendingChildren()) {
+            logger.debug("Activity {} still waits for its children, ignoring {}", activity.getUuid(), reason);
+            return;
         }
-        return historyBuilder.toString();
+        Activity.Status resumed = activity.getReplayPlan() != null ? Activity.Status.REPLAYING : Activity.Status.OBSERVATION;
+        // Events can be delivered from the loop, SSE and tool threads at once: only one wakes
+        if (!activity.compareAndSetStatus(Activity.Status.WAITING_FOR_EVENT, resumed)) return;
+        // Conditions are one-shot: the next observation sets new ones
+        wakeIndex.unregister(activity.getUuid());
+        cancelWakeDeadline(activity.getUuid());
+        schedule(activity);
+        journal.record(Category.ACTIVITY, activity.getUuid(), "🔔 WAKING UP", reason, resumed);
+    }
+
+    /**
+     * Resume the activity only on the given events or belief values while it waits,
+     * replacing any conditions set by its last observation.
+     */
+    public void wakeOn(String activityUuid, WakeCondition... conditions) {
+        wakeIndex.register(activityUuid, List.of(conditions));
+        Activity activity = activityRegistry.get(activityUuid);
+        if (activity != null && activity.getStatus() == Activity.Status.WAITING_FOR_EVENT) armWakeDeadline(activity);
+    }
+
+    /**
+     * Bound a wait on explicit wake conditions: if none of them has matched after
+     * {@code wakeTimeout}, a 'wake.timeout' event resumes the activity so the next
+     * observation can re-plan. Waits on any event are left alone.
+     */
+    private void armWakeDeadline(Activity activity) {
+        String uuid = activity.getUuid();
+        if (wakeTimer == null || !wakeIndex.hasConditions(uuid) || activity.hasPendingChildren()) return;
+        List<WakeCondition> conditions = wakeIndex.conditions(uuid);
+        ScheduledFuture<?> deadline = wakeTimer.schedule(() -> {
+            // Conditions replaced in the meantime belong to another wait with its own deadline
+            if (wakeIndex.conditions(uuid) != conditions || activity.getStatus() != Activity.Status.WAITING_FOR_EVENT) return;
+            ObjectNode event = objectMapper.createObjectNode();
+            event.put("name", WAKE_TIMEOUT_EVENT);
+            event.put("after_ms", wakeTimeout.toMillis());
+            event.set("wake_on", objectMapper.valueToTree(conditions));
+            activity.pushEvent(event);
+            logger.warn("⏳ Activity {} waited {} for {}, resuming", uuid, wakeTimeout, conditions);
+            wake(activity, "wake timeout");
+        }, wakeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = wakeDeadlines.put(uuid, deadline);
+        if (previous != null) previous.cancel(false);
+    }
+
+    private void cancelWakeDeadline(String activityUuid) {
+        ScheduledFuture<?> deadline = wakeDeadlines.remove(activityUuid);
+        if (deadline != null) deadline.cancel(false);
     }
 
     public T brain() {
         return agentBrain;
     }
 
+    /**
+     * Per-phase model call counts, latency and token usage.
+     */
+    public PhaseMetrics phaseMetrics() {
+        return phaseMetrics;
+    }
+
+    /**
+     * Latency histograms, queue and SSE counters of this agent; see {@link AgentMetrics#snapshot()}.
+     */
+    public AgentMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Port of the Prometheus endpoint, or -1 when it is not enabled.
+     */
+    public int metricsPort() {
+        return metricsServer == null ? -1 : metricsServer.port();
+    }
+
+    private Map<Activity.Status, Integer> activityCounts() {
+        Map<Activity.Status, Integer> counts = new EnumMap<>(Activity.Status.class);
+        for (Activity activity : activityRegistry.values()) {
+            Activity.Status status = activity.getStatus();
+            if (status != null) counts.merge(status, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * The limiter in front of model calls, or null when none is configured.
+     */
+    public ConcurrencyLimiter concurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Hedge rate and latency percentiles of every hedged model, empty when hedging is off.
+     */
+    public List<HedgingChatModel.HedgeStats> hedgeStats() {
+        return hedgedModels.stream().map(HedgingChatModel::stats).toList();
+    }
+
+    private record BrainKey(Phase phase, ChatModel model) {}
+
     public static class Builder<T extends ReactBrain> {
         private ChatModel model;
         private Class<T> agentInterface;
         private Object[] tools;
         private ArrayList<Document> documents;
         private McpToolProvider mcpToolProvider;
+        private CachingToolProvider toolCatalog;
+        private Duration toolCacheTtl;
         private String sseUrl;
-
+        private AgentMemory memory;
+        private EmbeddingService embeddingService;
+        private final Map<Phase, ChatModel> phaseModels = new EnumMap<>(Phase.class);
+        private ModelRouter modelRouter;
+        private ConcurrencyLimiter concurrencyLimiter;
+        private ChatModel hedgeModel;
+        private double hedgePercentile = 0.95;
+        private boolean structuredOutput;
+        private boolean procedureReplay;
+        private int maxForks;
+        private Duration wakeTimeout = Duration.ofMinutes(10);
+        private boolean asyncTools;
+        private final ToolDispatcher.Builder toolDispatcher = new ToolDispatcher.Builder();
+        private double replayThreshold = 0.9;
+        private TraceWriter traceWriter;
+        private TraceReplayer traceReplayer;
+        private int metricsPort = -1;
+        private SpanExporter spanExporter;
+        private EventJournal journal;
+        private ContextWindow contextWindow;
+        private boolean summarizeHistory;
+        private final HistorySummarizer.Builder historySummarizer = new HistorySummarizer.Builder();
 
         public Builder<T> model(ChatModel model) {
             this.model = model;
@@ -497,11 +1338,194 @@ public class AsyncAgent<T extends ReactBrain> {
 
 
 
+        /**
+         * Model used for a single phase instead of the default {@link #model(ChatModel)}.
+         */
+        public Builder<T> phaseModel(Phase phase, ChatModel model) {
+            this.phaseModels.put(phase, model);
+            return this;
+        }
+
+        /**
+         * Per-call routing policy, consulted before the per-phase model.
+         */
+        public Builder<T> modelRouter(ModelRouter modelRouter) {
+            this.modelRouter = modelRouter;
+            return this;
+        }
+
+        /**
+         * Adaptive limiter wrapped around every phase model call; may be shared between agents.
+         */
+        public Builder<T> concurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        /**
+         * Opt-in hedging: a call still running after the given percentile (0..1) of recent
+         * latencies is also sent to {@code secondary}, and the first answer wins.
+         */
+        public Builder<T> hedgeWith(ChatModel secondary, double percentile) {
+            this.hedgeModel = secondary;
+            this.hedgePercentile = percentile;
+            return this;
+        }
+
+        /**
+         * Request native JSON-schema output for the ACT, OBSERVE and REFLECT phases.
+         * Only enable it for backends that support structured output.
+         */
+        public Builder<T> structuredOutput(boolean structuredOutput) {
+            this.structuredOutput = structuredOutput;
+            return this;
+        }
+
+        /**
+         * Serve the agent's metrics in Prometheus text format at
+         * {@code http://localhost:<port>/metrics}; 0 picks a free port.
+         */
+        public Builder<T> metricsPort(int port) {
+            this.metricsPort = port;
+            return this;
+        }
+
+        /**
+         * Trace every activity (trace id = activity uuid) and send the spans to the exporter,
+         * e.g. an {@link agent.tracing.OtlpJsonFileExporter}. The caller closes the exporter.
+         */
+        public Builder<T> traceSpans(SpanExporter spanExporter) {
+            this.spanExporter = spanExporter;
+            return this;
+        }
+
+        /**
+         * Journal for the loop's per-activity chatter. By default the agent runs its own,
+         * writing to the {@code agent.journal} logger; a supplied one is closed by the caller.
+         */
+        public Builder<T> journal(EventJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * Token budgets for history and belief values in prompts, and the tokenizer that
+         * counts them; see {@link ContextWindow.Builder}.
+         */
+        public Builder<T> contextWindow(ContextWindow contextWindow) {
+            this.contextWindow = contextWindow;
+            return this;
+        }
+
+        /**
+         * Fold steps older than the newest {@code keepRecent} into a running summary that
+         * prompts carry instead of them. Summaries are SUMMARIZE calls made off the event
+         * loop; give that phase a cheap model with {@link #phaseModel(Phase, ChatModel)}.
+         */
+        public Builder<T> summarizeHistory(int keepRecent) {
+            this.summarizeHistory = true;
+            this.historySummarizer.keepRecent(keepRecent);
+            return this;
+        }
+
+        /**
+         * Cap on the running summary when {@link #summarizeHistory(int)} is on.
+         */
+        public Builder<T> maxSummaryTokens(int tokens) {
+            this.historySummarizer.maxSummaryTokens(tokens);
+            return this;
+        }
+
+        /**
+         * Record requests, brain responses and SSE messages to a binary trace.
+         */
+        public Builder<T> recordTo(TraceWriter traceWriter) {
+            this.traceWriter = traceWriter;
+            return this;
+        }
+
+        /**
+         * Drive the agent from a recorded trace: brain calls are answered from it and its
+         * requests and SSE messages are fed back in. No model is needed.
+         */
+        public Builder<T> replayFrom(TraceReplayer traceReplayer) {
+            this.traceReplayer = traceReplayer;
+            return this;
+        }
+
+        /**
+         * Replay the recorded tool calls of a successful memory whose relevance to a new goal
+         * is at least {@code minScore}, instead of running the LLM loop. Needs an MCP tool provider.
+         */
+        public Builder<T> procedureReplay(double minScore) {
+            this.procedureReplay = true;
+            this.replayThreshold = minScore;
+            return this;
+        }
+
+        /**
+         * Opt-in fork/join: one observation may fork up to {@code maxForks} child activities
+         * for independent sub-goals. Off (0) by default, and the OBSERVE prompt only
+         * mentions 'fork' when it is on.
+         */
+        public Builder<T> maxForks(int maxForks) {
+            if (maxForks < 0) throw new IllegalArgumentException("maxForks must not be negative");
+            this.maxForks = maxForks;
+            return this;
+        }
+
+        /**
+         * Longest wait on the wake conditions of an observation before the activity resumes
+         * anyway with a 'wake.timeout' event; {@link Duration#ZERO} waits indefinitely.
+         */
+        public Builder<T> wakeTimeout(Duration wakeTimeout) {
+            if (wakeTimeout.isNegative()) throw new IllegalArgumentException("wakeTimeout must not be negative");
+            this.wakeTimeout = wakeTimeout;
+            return this;
+        }
+
+        /**
+         * Run MCP tool calls off the event loop: the ACT phase returns as soon as the model
+         * has chosen its calls, and each result comes back as a 'tool.result' event (or
+         * 'tool.error' on failure or after {@code defaultTimeout}).
+         */
+        public Builder<T> asyncTools(Duration defaultTimeout) {
+            this.asyncTools = true;
+            this.toolDispatcher.defaultTimeout(defaultTimeout);
+            return this;
+        }
+
+        /**
+         * Timeout for one tool when {@link #asyncTools(Duration)} is on.
+         */
+        public Builder<T> toolTimeout(String toolName, Duration timeout) {
+            this.toolDispatcher.timeout(toolName, timeout);
+            return this;
+        }
+
         public Builder<T> agentInterface(Class<T> agentInterface) {
             this.agentInterface = agentInterface;
             return this;
         }
 
+        /**
+         * Keep the MCP tool list in memory for up to {@code ttl}, refreshed early when the
+         * SSE stream reports notifications/tools/list_changed.
+         */
+        public Builder<T> cacheTools(Duration ttl) {
+            this.toolCacheTtl = ttl;
+            return this;
+        }
+
+        /**
+         * Serve tools from a catalog cache over several MCP servers; takes precedence over
+         * {@link #mcpToolProvider(McpToolProvider)}.
+         */
+        public Builder<T> toolCatalog(CachingToolProvider catalog) {
+            this.toolCatalog = catalog;
+            return this;
+        }
+
         public Builder<T> mcpToolProvider(McpToolProvider provider) {
             this.mcpToolProvider = provider;
             return this;
@@ -522,7 +1546,29 @@ public class AsyncAgent<T extends ReactBrain> {
             return this;
         }
 
+        public Builder<T> memory(AgentMemory memory) {
+            this.memory = memory;
+            return this;
+        }
+
+        /**
+         * Embedding service backing the agent memory; defaults to {@link EmbeddingService#shared()}.
+         * Ignored when a preconfigured {@link #memory(AgentMemory)} is supplied.
+         */
+        public Builder<T> embeddingService(EmbeddingService embeddingService) {
+            this.embeddingService = embeddingService;
+            return this;
+        }
+
         public AsyncAgent<T> build() {
+            if (model == null && traceReplayer != null) {
+                model = new ChatModel() {
+                    @Override
+                    public ChatResponse doChat(ChatRequest request) {
+                        throw new IllegalStateException("No model calls while replaying a trace");
+                    }
+                };
+            }
             Objects.requireNonNull(model, "model must not be null");
             Objects.requireNonNull(agentInterface, "agentInterface must not be null");
             return new AsyncAgent<>(this);
@@ -0,0 +1,31 @@
+package agent;
+
+/**
+ * The brain calls made while driving an activity, one per {@link ReactBrain} method.
+ * Priority orders queued model calls (lower runs first): phases that move an
+ * in-flight activity forward go before planning, and bookkeeping (reflection, then
+ * history summaries) goes last.
+ */
+public enum Phase {
+    REASON("reason", 2),
+    ACT("act", 0),
+    OBSERVE("observe", 1),
+    REFLECT("reflect", 3),
+    SUMMARIZE("summarize", 4);
+
+    private final String methodName;
+    private final int priority;
+
+    Phase(String methodName, int priority) {
+        this.methodName = methodName;
+        this.priority = priority;
+    }
+
+    public String methodName() {
+        return methodName;
+    }
+
+    public int priority() {
+        return priority;
+    }
+}
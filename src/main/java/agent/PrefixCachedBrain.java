@@ -0,0 +1,98 @@
+package agent;
+
+import dev.langchain4j.agentic.Agent;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+
+/**
+ * {@link ReactBrain} with its prompts laid out for provider and Ollama prefix caches.
+ *
+ * Every phase prompt starts with the same bytes: the static instructions, then the goal
+ * (fixed for the activity), then the history (new steps are appended at its end). Only
+ * after that come the phase's own instructions and the volatile parts: progress, context,
+ * events and memories. Consecutive phases of one activity therefore share everything up
+ * to the last history step. Unless given its own {@link agent.context.ContextWindow}, the
+ * agent renders this layout with one history budget for the loop phases and drops old
+ * steps eight at a time, so the prefix only breaks when a block leaves the window or a
+ * summary is folded in.
+ *
+ * Select it with {@code agentInterface(PrefixCachedBrain.class)}.
+ */
+public interface PrefixCachedBrain extends ReactBrain {
+
+    String SHARED_PREFIX = """
+        You are the BRAIN of an asynchronous, event-driven agent.
+
+        SYSTEM ARCHITECTURE (CRITICAL):
+        1. ASYNCHRONOUS TOOLS: Your tools are non-blocking. Calling a tool only INITIATES an action (e.g., "Start Timer").
+        2. SSE EVENTS: The actual result or completion arrives later as an asynchronous Event via SSE.
+        3. BELIEF UPDATES: These events automatically update your 'CONTEXT' (Variables/Beliefs).
+        4. HISTORY IS KEY: Since actions are split from results, you must strictly check 'HISTORY' to know if you have already started an action.
+
+        You work in phases: REASONING plans the next step, ACTION executes it with tools,
+        OBSERVATION checks events and updates the plan, REFLECTION turns a finished activity
+        into a reusable memory. The instructions for the current phase follow the history.
+
+        MAIN GOAL: {{goal}}
+
+        HISTORY (summary of earlier steps, then the latest steps, oldest first):
+        {{history}}
+        """;
+
+    @Agent("""
+        You are the BRAIN of an asynchronous, event-driven agent.
+
+        Follow the REASON-ACT-OBSERVE loop to solve problems step-by-step.
+    """)
+    @UserMessage(SHARED_PREFIX + """
+        === CURRENT PHASE ===
+        You are the REASONING phase.
+
+        """ + REASON_TASK + """
+
+        === RELEVANT PAST MEMORIES (Use these as a guide) ===
+        {{memories}}
+        === PROGRESS TRACKER (The Master Plan) ===
+        {{progress}}
+        CURRENT CONTEXT (Variables): {{context}}
+        """)
+    @Override
+    String reason(@V("goal") String goal, @V("history") String history, @V("context") String context, @V("progress") String progress, @V("memories") String memories);
+
+    @UserMessage(SHARED_PREFIX + """
+        === CURRENT PHASE ===
+        You are the ACTION phase, if i ask to do a tool call you need to perform it via remote procedure call.
+
+        """ + ACT_TASK + "\n" + ACT_RULES + """
+
+        PROGRESS: {{progress}}
+        CONTEXT: {{context}}
+        """)
+    @Override
+    String act(@V("goal") String goal, @V("history") String history, @V("context") String context, @V("progress") String progress);
+
+    @UserMessage(SHARED_PREFIX + """
+        === CURRENT PHASE ===
+        You are the OBSERVATION phase.
+
+        """ + OBSERVE_TASK + """
+
+        CURRENT PROGRESS TRACKER:
+        {{progress}}
+        CONTEXT EVENTS: {{events}}
+        CONTEXT: {{context}}
+        """)
+    @Override
+    String observe(@V("goal") String goal, @V("history") String history, @V("context") String context, @V("events") String events, @V("progress") String progress, @V("fork") String fork);
+
+    @UserMessage(SHARED_PREFIX + """
+        === CURRENT PHASE ===
+        You are the REFLECTION phase.
+
+        """ + REFLECT_TASK + """
+
+        FINAL STATUS: {{status}}
+        """)
+    @Override
+    String reflect(@V("goal") String goal, @V("status") String status, @V("history") String history);
+}
@@ -1,20 +1,39 @@
 
 package agent.activity;
 
+import agent.jfr.BeliefUpdateEvent;
+import agent.memory.ToolStep;
+import agent.replay.ReplayPlan;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Activity {
+    private static final AtomicReferenceFieldUpdater<Activity, Status> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(Activity.class, Status.class, "status");
+
     private final UUID uuid;
     private final String goal;
     private volatile Status status;
     private final List<ReasoningStep> history = new CopyOnWriteArrayList<>();
     private final Map<String, JsonNode> beliefs = new ConcurrentHashMap<>();
     private final List<JsonNode> incomingEvents = new CopyOnWriteArrayList<>();
+    private final List<ToolStep> toolTrace = new CopyOnWriteArrayList<>();
+    private volatile ReplayPlan replayPlan;
+    private volatile EventQuorum quorum;
+    private final Activity parent;
+    private final Set<String> pendingChildren = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<Activity> completion = new CompletableFuture<>();
+    private volatile long queuedAtNanos;
+    private volatile HistorySummary historySummary = HistorySummary.EMPTY;
+    public static final String PROGRESS_BELIEF = "goal_progress";
+
     public enum Status {
+        REPLAYING,
         REASONING,
         ACTION,
         WAITING_FOR_EVENT,
@@ -23,8 +42,17 @@ public class Activity {
     }
 
     public Activity(String goal) {
+        this(goal, null);
+    }
+
+    /**
+     * A child activity for one independent sub-goal. It reads the parent's beliefs
+     * (except its progress tracker) but writes only its own.
+     */
+    public Activity(String goal, Activity parent) {
         this.uuid = UUID.randomUUID();
         this.goal = goal;
+        this.parent = parent;
         this.status = Status.OBSERVATION;
     }
 
@@ -42,16 +70,46 @@ public class Activity {
         return !incomingEvents.isEmpty();
     }
 
+    /**
+     * Pending events, without consuming them.
+     */
+    public List<JsonNode> peekEvents() {
+        return new ArrayList<>(incomingEvents);
+    }
+
     public void setBelief(String key, JsonNode value) {
         if (value != null) {
+            BeliefUpdateEvent event = new BeliefUpdateEvent();
+            event.begin();
             beliefs.put(key, value);
+            if (event.shouldCommit()) {
+                event.activityId = uuid.toString();
+                event.key = key;
+                event.valueChars = value.isTextual() ? value.asText().length() : value.toString().length();
+                event.commit();
+            }
         }
     }
 
     public JsonNode getBelief(String key) {
-        return beliefs.get(key);
+        JsonNode own = beliefs.get(key);
+        if (own != null || parent == null || key.equals(PROGRESS_BELIEF)) return own;
+        return parent.getBelief(key);
     }
     public Map<String, Object> getBeliefsSnapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        if (parent != null) {
+            snapshot.putAll(parent.getBeliefsSnapshot());
+            snapshot.remove(PROGRESS_BELIEF);
+        }
+        snapshot.putAll(beliefs);
+        return snapshot;
+    }
+
+    /**
+     * Beliefs written by this activity itself, without inherited ones.
+     */
+    public Map<String, JsonNode> ownBeliefs() {
         return new HashMap<>(beliefs);
     }
     private String beliefsToJson() {
@@ -65,6 +123,95 @@ public class Activity {
         sb.append("}");
         return sb.toString();
     }
+    /**
+     * Record a tool call made by the model for this activity.
+     */
+    public void recordToolCall(String toolName, String arguments) {
+        toolTrace.add(new ToolStep(toolName, arguments, List.of()));
+    }
+
+    /**
+     * Attach observed event names to the last recorded tool call.
+     */
+    public void recordEvents(List<String> eventNames) {
+        if (toolTrace.isEmpty() || eventNames.isEmpty()) return;
+        int last = toolTrace.size() - 1;
+        ToolStep step = toolTrace.get(last);
+        List<String> expected = new ArrayList<>(step.expectedEvents());
+        expected.addAll(eventNames);
+        toolTrace.set(last, new ToolStep(step.toolName(), step.arguments(), expected));
+    }
+
+    /**
+     * Append a finished child's tool calls so the parent's procedure covers them.
+     */
+    public void appendToolTrace(List<ToolStep> steps) {
+        toolTrace.addAll(steps);
+    }
+
+    public List<ToolStep> getToolTrace() {
+        return Collections.unmodifiableList(toolTrace);
+    }
+
+    /**
+     * Pending batch of tool calls, or null when the last ACTION made at most one.
+     */
+    public EventQuorum getQuorum() {
+        return quorum;
+    }
+
+    public void setQuorum(EventQuorum quorum) {
+        this.quorum = quorum;
+    }
+
+    /**
+     * Completed with this activity once the agent has finished with it.
+     */
+    public CompletableFuture<Activity> completion() {
+        return completion;
+    }
+
+    public Activity getParent() {
+        return parent;
+    }
+
+    public void addChild(String childUuid) {
+        pendingChildren.add(childUuid);
+    }
+
+    /**
+     * Mark a child as joined; true when it was the last one still running.
+     */
+    public boolean childFinished(String childUuid) {
+        return pendingChildren.remove(childUuid) && pendingChildren.isEmpty();
+    }
+
+    public boolean hasPendingChildren() {
+        return !pendingChildren.isEmpty();
+    }
+
+    /**
+     * Stamp the moment the activity entered the loop's queue.
+     */
+    public void markQueued() {
+        queuedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * {@link System#nanoTime()} of the last {@link #markQueued()}, or 0 if never queued that way.
+     */
+    public long getQueuedAtNanos() {
+        return queuedAtNanos;
+    }
+
+    public ReplayPlan getReplayPlan() {
+        return replayPlan;
+    }
+
+    public void setReplayPlan(ReplayPlan replayPlan) {
+        this.replayPlan = replayPlan;
+    }
+
     public String getUuid() {
         return uuid.toString();
     }
@@ -81,6 +228,14 @@ public class Activity {
         this.status = status;
     }
 
+    /**
+     * Move to {@code update} only from {@code expected}; lets exactly one of several
+     * racing wakers resume a suspended activity.
+     */
+    public boolean compareAndSetStatus(Status expected, Status update) {
+        return STATUS.compareAndSet(this, expected, update);
+    }
+
     public boolean isCompleted() {
         return this.status == Status.COMPLETED;
     }
@@ -95,6 +250,17 @@ public class Activity {
         return Collections.unmodifiableList(history);
     }
 
+    /**
+     * Summary of the steps that aged out of the prompt window; empty until the first fold.
+     */
+    public HistorySummary getHistorySummary() {
+        return historySummary;
+    }
+
+    public void setHistorySummary(HistorySummary historySummary) {
+        this.historySummary = historySummary;
+    }
+
     public Optional<ReasoningStep> lastStep() {
         if (history.isEmpty()) return Optional.empty();
         return Optional.of(history.get(history.size() - 1));
@@ -0,0 +1,64 @@
+package agent.activity;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Completion counter for a batch of tool calls issued in one ACTION phase: the
+ * activity stays asleep until {@code required} of the {@code expected} completion
+ * events have arrived.
+ */
+public class EventQuorum {
+    private final int expected;
+    private final int required;
+    private int arrived;
+    private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @param required events needed to wake; values outside 1..expected mean all of them
+     */
+    public EventQuorum(int expected, int required) {
+        if (expected < 1) throw new IllegalArgumentException("expected must be positive");
+        this.expected = expected;
+        this.required = required < 1 || required > expected ? expected : required;
+    }
+
+    /**
+     * Count one completion event; true once the quorum is reached.
+     */
+    public synchronized boolean arrive() {
+        arrived++;
+        return arrived >= required;
+    }
+
+    /**
+     * Count {@code event} unless it was counted before: the loop and the thread delivering
+     * an event may both evaluate it.
+     */
+    public synchronized boolean arrive(Object event) {
+        if (counted.add(event)) arrived++;
+        return arrived >= required;
+    }
+
+    public synchronized boolean reached() {
+        return arrived >= required;
+    }
+
+    public synchronized int arrived() {
+        return arrived;
+    }
+
+    public int expected() {
+        return expected;
+    }
+
+    public int required() {
+        return required;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return arrived + "/" + required + " of " + expected;
+    }
+}
@@ -0,0 +1,13 @@
+package agent.activity;
+
+/**
+ * Running summary of an activity's oldest steps: {@code steps} is how many steps from
+ * the start of the history it covers, {@code tokens} its size in the prompt.
+ */
+public record HistorySummary(String text, int steps, int tokens) {
+    public static final HistorySummary EMPTY = new HistorySummary("", 0, 0);
+
+    public boolean isEmpty() {
+        return steps == 0;
+    }
+}
@@ -0,0 +1,122 @@
+package agent.activity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Topic subscriptions for broadcast events (messages without an activity uuid).
+ *
+ * Each topic keeps its own subscriber set, so publishing touches only the activities
+ * interested in that topic. A batch spanning several topics is delivered to every
+ * subscriber in one call, however many of its topics it matched.
+ */
+public class TopicRegistry {
+    /**
+     * Topic that receives every broadcast event.
+     */
+    public static final String ALL = "*";
+
+    private final Map<String, Set<String>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> topicsByActivity = new ConcurrentHashMap<>();
+
+    public void subscribe(String activityUuid, String topic) {
+        // Add inside compute so a concurrent removal of an emptied set cannot drop it
+        subscribers.compute(topic, (t, ids) -> add(ids, activityUuid));
+        topicsByActivity.compute(activityUuid, (a, topics) -> add(topics, topic));
+    }
+
+    public void unsubscribe(String activityUuid, String topic) {
+        subscribers.computeIfPresent(topic, (t, ids) -> remove(ids, activityUuid));
+        topicsByActivity.computeIfPresent(activityUuid, (a, topics) -> remove(topics, topic));
+    }
+
+    /**
+     * Drop every subscription of a finished activity.
+     */
+    public void unsubscribeAll(String activityUuid) {
+        Set<String> topics = topicsByActivity.remove(activityUuid);
+        if (topics == null) return;
+        for (String topic : topics) {
+            subscribers.computeIfPresent(topic, (t, ids) -> remove(ids, activityUuid));
+        }
+    }
+
+    public Set<String> topics(String activityUuid) {
+        return Collections.unmodifiableSet(topicsByActivity.getOrDefault(activityUuid, Set.of()));
+    }
+
+    /**
+     * Topics with at least one subscriber; empty topics are dropped.
+     */
+    public int topicCount() {
+        return subscribers.size();
+    }
+
+    public int subscriberCount(String topic) {
+        Set<String> ids = subscribers.get(topic);
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Deliver one event to the subscribers of its topic (and of {@link #ALL}).
+     * Returns the number of activities reached.
+     */
+    public int publish(String topic, JsonNode event, BiConsumer<String, List<JsonNode>> delivery) {
+        return publishBatch(List.of(Map.entry(topic, event)), delivery);
+    }
+
+    /**
+     * Deliver a batch of (topic, event) pairs. Every subscriber receives, in a single call,
+     * the events of the batch it is subscribed to, in batch order.
+     */
+    public int publishBatch(List<Map.Entry<String, JsonNode>> batch, BiConsumer<String, List<JsonNode>> delivery) {
+        if (batch.size() == 1) {
+            // Common case: no grouping, no per-call allocation beyond the event list
+            Map.Entry<String, JsonNode> only = batch.get(0);
+            List<JsonNode> events = List.of(only.getValue());
+            Set<String> direct = subscribersOf(only.getKey());
+            int reached = 0;
+            for (String activityUuid : direct) {
+                delivery.accept(activityUuid, events);
+                reached++;
+            }
+            for (String activityUuid : subscribersOf(ALL)) {
+                if (direct.contains(activityUuid)) continue;
+                delivery.accept(activityUuid, events);
+                reached++;
+            }
+            return reached;
+        }
+
+        Map<String, List<JsonNode>> perActivity = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonNode> entry : batch) {
+            Set<String> reached = new HashSet<>();
+            for (String activityUuid : subscribersOf(entry.getKey())) {
+                if (reached.add(activityUuid)) perActivity.computeIfAbsent(activityUuid, a -> new ArrayList<>()).add(entry.getValue());
+            }
+            for (String activityUuid : subscribersOf(ALL)) {
+                if (reached.add(activityUuid)) perActivity.computeIfAbsent(activityUuid, a -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+        perActivity.forEach(delivery);
+        return perActivity.size();
+    }
+
+    private static Set<String> add(Set<String> set, String value) {
+        if (set == null) set = ConcurrentHashMap.newKeySet();
+        set.add(value);
+        return set;
+    }
+
+    private static Set<String> remove(Set<String> set, String value) {
+        set.remove(value);
+        return set.isEmpty() ? null : set;
+    }
+
+    private Set<String> subscribersOf(String topic) {
+        return subscribers.getOrDefault(topic, Set.of());
+    }
+}
@@ -0,0 +1,45 @@
+package agent.activity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Condition under which a waiting activity is resumed. While an activity has conditions,
+ * events and belief updates that match none of them are stored without waking it.
+ */
+public sealed interface WakeCondition permits WakeCondition.EventNamed, WakeCondition.BeliefEquals {
+
+    static WakeCondition onEvent(String eventName) {
+        return new EventNamed(eventName);
+    }
+
+    static WakeCondition whenBelief(String key, JsonNode value) {
+        return new BeliefEquals(key, value);
+    }
+
+    /**
+     * Parse one entry of an observation's {@code wake_on} list: either an event name, or
+     * {@code {"event": name}}, or {@code {"belief": key, "equals": value}}. Returns null otherwise.
+     */
+    static WakeCondition fromJson(JsonNode node) {
+        if (node == null) return null;
+        if (node.isTextual() && !node.asText().isBlank()) return onEvent(node.asText());
+        if (!node.isObject()) return null;
+        if (node.hasNonNull("event")) return onEvent(node.get("event").asText());
+        if (node.hasNonNull("belief") && node.has("equals")) return whenBelief(node.get("belief").asText(), node.get("equals"));
+        return null;
+    }
+
+    record EventNamed(String eventName) implements WakeCondition {}
+
+    record BeliefEquals(String key, JsonNode value) implements WakeCondition {
+
+        /**
+         * Scalars compare by text so that 5 and "5" match; models are loose about JSON types.
+         */
+        public boolean matches(JsonNode actual) {
+            if (actual == null) return false;
+            if (value.isValueNode() && actual.isValueNode()) return value.asText().equals(actual.asText());
+            return value.equals(actual);
+        }
+    }
+}
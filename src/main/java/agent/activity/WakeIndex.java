@@ -0,0 +1,80 @@
+package agent.activity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wake conditions of all activities, indexed by event name and belief key so an incoming
+ * message is checked with a couple of map lookups instead of scanning conditions.
+ */
+public class WakeIndex {
+    private final Map<String, Set<String>> byEvent = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, WakeCondition.BeliefEquals>> byBelief = new ConcurrentHashMap<>();
+    private final Map<String, List<WakeCondition>> byActivity = new ConcurrentHashMap<>();
+
+    /**
+     * Replace the conditions of an activity; an empty list means "wake on anything".
+     */
+    public synchronized void register(String activityUuid, List<WakeCondition> conditions) {
+        unregister(activityUuid);
+        if (conditions == null || conditions.isEmpty()) return;
+        byActivity.put(activityUuid, List.copyOf(conditions));
+        for (WakeCondition condition : conditions) {
+            if (condition instanceof WakeCondition.EventNamed event) {
+                byEvent.computeIfAbsent(event.eventName(), k -> ConcurrentHashMap.newKeySet()).add(activityUuid);
+            } else if (condition instanceof WakeCondition.BeliefEquals belief) {
+                // One expected value per key and activity; the last one registered wins
+                byBelief.computeIfAbsent(belief.key(), k -> new ConcurrentHashMap<>()).put(activityUuid, belief);
+            }
+        }
+    }
+
+    public synchronized void unregister(String activityUuid) {
+        List<WakeCondition> previous = byActivity.remove(activityUuid);
+        if (previous == null) return;
+        for (WakeCondition condition : previous) {
+            if (condition instanceof WakeCondition.EventNamed event) {
+                Set<String> ids = byEvent.get(event.eventName());
+                if (ids != null && ids.remove(activityUuid) && ids.isEmpty()) byEvent.remove(event.eventName());
+            } else if (condition instanceof WakeCondition.BeliefEquals belief) {
+                Map<String, WakeCondition.BeliefEquals> ids = byBelief.get(belief.key());
+                if (ids != null && ids.remove(activityUuid) != null && ids.isEmpty()) byBelief.remove(belief.key());
+            }
+        }
+    }
+
+    public boolean hasConditions(String activityUuid) {
+        return byActivity.containsKey(activityUuid);
+    }
+
+    public List<WakeCondition> conditions(String activityUuid) {
+        return byActivity.getOrDefault(activityUuid, List.of());
+    }
+
+    /**
+     * True when the event should resume the activity: it has no conditions or one names the event.
+     */
+    public boolean wakesOnEvent(String activityUuid, String eventName) {
+        if (!hasConditions(activityUuid)) return true;
+        Set<String> ids = byEvent.get(eventName);
+        return ids != null && ids.contains(activityUuid);
+    }
+
+    /**
+     * True when the belief update satisfies one of the activity's belief conditions.
+     */
+    public boolean wakesOnBelief(String activityUuid, String key, JsonNode value) {
+        Map<String, WakeCondition.BeliefEquals> ids = byBelief.get(key);
+        if (ids == null) return false;
+        WakeCondition.BeliefEquals condition = ids.get(activityUuid);
+        return condition != null && condition.matches(value);
+    }
+
+    public int size() {
+        return byActivity.size();
+    }
+}
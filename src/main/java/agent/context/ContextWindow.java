@@ -0,0 +1,229 @@
+package agent.context;
+
+import agent.Phase;
+import agent.activity.Activity;
+import agent.activity.HistorySummary;
+import agent.activity.ReasoningStep;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Token budgets for the variable parts of a prompt.
+ *
+ * History is filled from the newest step back until the phase budget is spent, so a
+ * prompt holds many short steps or a few long ones; belief values above a per-value cap
+ * are cut. Each step is serialised and counted once and then cached. Steps already folded
+ * into the activity's {@link HistorySummary} are replaced by the summary, which is paid
+ * for out of the same budget.
+ *
+ * With a block size above one the window start only moves in whole blocks of steps,
+ * counted from the summary, so consecutive prompts keep the same history prefix until
+ * the next block is dropped; prompt prefix caches depend on that.
+ */
+public class ContextWindow {
+    static final String TRUNCATED = "…[truncated]";
+    static final String SUMMARY_LABEL = "SUMMARY OF EARLIER STEPS: ";
+
+    private final TokenCounter counter;
+    private final Map<Phase, Integer> historyBudgets;
+    private final int maxBeliefTokens;
+    private final int blockSize;
+    private final int summaryLabelTokens;
+
+    // Steps are immutable, so their JSON and its size never change
+    private final Map<ReasoningStep, SizedStep> steps = new WeakHashMap<>();
+    private String lastHistory;
+    private int lastHistoryTokens;
+
+    private ContextWindow(Builder builder) {
+        this.counter = builder.counter != null ? builder.counter : TokenCounter.openAi("gpt-4o-mini");
+        this.historyBudgets = new EnumMap<>(builder.historyBudgets);
+        this.maxBeliefTokens = builder.maxBeliefTokens;
+        this.blockSize = builder.blockSize;
+        this.summaryLabelTokens = counter.count(SUMMARY_LABEL + "\n");
+    }
+
+    public String history(Activity activity, Phase phase) {
+        HistorySummary summary = activity.getHistorySummary();
+        List<ReasoningStep> steps = activity.getHistory();
+        if (summary.isEmpty()) return history(steps, historyBudget(phase));
+        List<ReasoningStep> recent = steps.subList(Math.min(summary.steps(), steps.size()), steps.size());
+        int summaryTokens = summaryLabelTokens + summary.tokens();
+        String history = history(recent, Math.max(1, historyBudget(phase) - summaryTokens));
+        synchronized (this) {
+            lastHistory = SUMMARY_LABEL + summary.text() + "\n" + history;
+            lastHistoryTokens += summaryTokens;
+            return lastHistory;
+        }
+    }
+
+    /**
+     * The most recent steps that fit in {@code budgetTokens}, oldest first, one JSON per line.
+     * When not even the newest step fits it is included cut to the budget. The first step
+     * kept is aligned to the block size whenever the aligned window still holds a step.
+     */
+    public synchronized String history(List<ReasoningStep> history, int budgetTokens) {
+        List<SizedStep> selected = new ArrayList<>();
+        int used = 0;
+        for (int i = history.size() - 1; i >= 0; i--) {
+            SizedStep step = steps.computeIfAbsent(history.get(i), this::size);
+            if (used + step.tokens() > budgetTokens) {
+                if (selected.isEmpty()) {
+                    String cut = truncate(step.json(), budgetTokens);
+                    selected.add(new SizedStep(cut, counter.count(cut)));
+                }
+                break;
+            }
+            selected.add(step);
+            used += step.tokens();
+        }
+        int omitted = history.size() - selected.size();
+        int aligned = (omitted + blockSize - 1) / blockSize * blockSize;
+        if (aligned > omitted && aligned < history.size()) {
+            // Selected is newest first: drop the oldest steps up to the block boundary
+            selected.subList(history.size() - aligned, selected.size()).clear();
+            omitted = aligned;
+        }
+        StringBuilder out = new StringBuilder();
+        int tokens = 0;
+        if (omitted > 0) {
+            String marker = "(" + omitted + " earlier steps omitted)\n";
+            out.append(marker);
+            tokens += counter.count(marker);
+        }
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            out.append(selected.get(i).json()).append('\n');
+            tokens += selected.get(i).tokens();
+        }
+        lastHistory = out.toString();
+        lastHistoryTokens = tokens;
+        return lastHistory;
+    }
+
+    /**
+     * A copy of the beliefs with every value longer than the cap cut to it.
+     */
+    public Map<String, Object> beliefs(Map<String, Object> snapshot) {
+        Map<String, Object> trimmed = null;
+        for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+            Object value = entry.getValue();
+            String text = value instanceof JsonNode node && node.isTextual() ? node.asText() : String.valueOf(value);
+            // A token spans at least one character: short values never need counting
+            if (text.length() <= maxBeliefTokens || counter.count(text) <= maxBeliefTokens) continue;
+            if (trimmed == null) trimmed = new LinkedHashMap<>(snapshot);
+            trimmed.put(entry.getKey(), TextNode.valueOf(truncate(text, maxBeliefTokens)));
+        }
+        return trimmed == null ? snapshot : trimmed;
+    }
+
+    /**
+     * Tokens in the variable parts of a prompt. The last history returned by this window
+     * is recognised and not counted again.
+     */
+    public synchronized int promptTokens(Object... args) {
+        int tokens = 0;
+        for (Object arg : args) {
+            if (arg == null) continue;
+            if (arg == lastHistory) tokens += lastHistoryTokens;
+            else tokens += counter.count(String.valueOf(arg));
+        }
+        return tokens;
+    }
+
+    public int historyBudget(Phase phase) {
+        return historyBudgets.get(phase);
+    }
+
+    public TokenCounter counter() {
+        return counter;
+    }
+
+    /**
+     * Cut {@code text} to at most {@code maxTokens}, marking the cut.
+     */
+    public String truncate(String text, int maxTokens) {
+        int tokens = counter.count(text);
+        if (tokens <= maxTokens) return text;
+        int budget = Math.max(0, maxTokens - counter.count(TRUNCATED));
+        int chars = (int) ((long) text.length() * budget / tokens);
+        // Token density varies along the text: shrink until the cut fits
+        while (chars > 0 && counter.count(text.substring(0, chars)) > budget) {
+            chars = chars * 9 / 10;
+        }
+        return text.substring(0, chars) + TRUNCATED;
+    }
+
+    private SizedStep size(ReasoningStep step) {
+        String json = step.toJson();
+        return new SizedStep(json, counter.count(json) + 1);
+    }
+
+    private record SizedStep(String json, int tokens) {}
+
+    public static class Builder {
+        private TokenCounter counter;
+        private final Map<Phase, Integer> historyBudgets = new EnumMap<>(Phase.class);
+        private int maxBeliefTokens = 256;
+        private int blockSize = 1;
+
+        public Builder() {
+            historyBudgets.put(Phase.REASON, 1500);
+            historyBudgets.put(Phase.ACT, 1500);
+            historyBudgets.put(Phase.OBSERVE, 2000);
+            historyBudgets.put(Phase.REFLECT, 6000);
+        }
+
+        /**
+         * Tokenizer used for every count; defaults to {@link TokenCounter#openAi(String)} for gpt-4o-mini.
+         */
+        public Builder counter(TokenCounter counter) {
+            this.counter = counter;
+            return this;
+        }
+
+        /**
+         * Tokens of history sent with the given phase.
+         */
+        public Builder historyBudget(Phase phase, int tokens) {
+            if (tokens < 1) throw new IllegalArgumentException("tokens must be positive");
+            this.historyBudgets.put(phase, tokens);
+            return this;
+        }
+
+        /**
+         * One history budget for REASON, ACT and OBSERVE, so consecutive phases render the same history.
+         */
+        public Builder loopHistoryBudget(int tokens) {
+            historyBudget(Phase.REASON, tokens);
+            historyBudget(Phase.ACT, tokens);
+            return historyBudget(Phase.OBSERVE, tokens);
+        }
+
+        /**
+         * Drop old steps this many at a time instead of one by one; 1, the default, keeps
+         * as many steps as fit.
+         */
+        public Builder blockSize(int steps) {
+            if (steps < 1) throw new IllegalArgumentException("steps must be positive");
+            this.blockSize = steps;
+            return this;
+        }
+
+        public Builder maxBeliefTokens(int tokens) {
+            if (tokens < 1) throw new IllegalArgumentException("tokens must be positive");
+            this.maxBeliefTokens = tokens;
+            return this;
+        }
+
+        public ContextWindow build() {
+            return new ContextWindow(this);
+        }
+    }
+}
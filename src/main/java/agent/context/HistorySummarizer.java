@@ -0,0 +1,171 @@
+package agent.context;
+
+import agent.activity.Activity;
+import agent.activity.HistorySummary;
+import agent.activity.ReasoningStep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+
+/**
+ * Folds the steps that age out of the prompt window into a running summary kept on the
+ * {@link Activity}, so prompts hold the summary plus a recent window and stay the same
+ * size however long the activity runs.
+ *
+ * Folding runs on its own low-priority thread, never on the event loop: a prompt built
+ * before a fold completes simply uses the previous summary. At most one fold per activity
+ * is in flight, and a failed fold is retried on the next step.
+ */
+public class HistorySummarizer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HistorySummarizer.class);
+
+    private final BinaryOperator<String> summarize;
+    private final ContextWindow contextWindow;
+    private final int keepRecent;
+    private final int batchSize;
+    private final int maxSummaryTokens;
+    private final int maxStepTokens;
+    private final ExecutorService lane = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "history-summarizer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong folds = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private HistorySummarizer(Builder builder) {
+        this.summarize = builder.summarize;
+        this.contextWindow = builder.contextWindow;
+        this.keepRecent = builder.keepRecent;
+        this.batchSize = builder.batchSize;
+        this.maxSummaryTokens = builder.maxSummaryTokens;
+        this.maxStepTokens = builder.maxStepTokens;
+    }
+
+    /**
+     * Schedule a fold when at least a batch of steps sits outside the recent window.
+     * Returns true when one was scheduled.
+     */
+    public boolean onStep(Activity activity) {
+        int foldUpTo = activity.getHistory().size() - keepRecent;
+        if (foldUpTo - activity.getHistorySummary().steps() < batchSize) return false;
+        String uuid = activity.getUuid();
+        if (!inFlight.add(uuid)) return false;
+        try {
+            lane.execute(() -> {
+                try {
+                    fold(activity, foldUpTo);
+                } finally {
+                    inFlight.remove(uuid);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Lane closed: the agent is shutting down
+            inFlight.remove(uuid);
+            return false;
+        }
+        return true;
+    }
+
+    private void fold(Activity activity, int foldUpTo) {
+        HistorySummary current = activity.getHistorySummary();
+        try {
+            // Snapshot: the loop keeps appending steps while this lane folds
+            List<ReasoningStep> aged = List.copyOf(activity.getHistory()).subList(current.steps(), foldUpTo);
+            StringBuilder steps = new StringBuilder();
+            for (ReasoningStep step : aged) {
+                steps.append(contextWindow.truncate(step.toJson(), maxStepTokens)).append('\n');
+            }
+            String response = summarize.apply(current.text(), steps.toString());
+            if (response == null || response.isBlank()) throw new IllegalStateException("empty summary");
+            String text = contextWindow.truncate(response.trim(), maxSummaryTokens);
+            activity.setHistorySummary(new HistorySummary(text, foldUpTo, contextWindow.counter().count(text)));
+            folds.incrementAndGet();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("⚠️ History summarization failed for Activity {}: {}", activity.getUuid(), e.getMessage());
+        }
+    }
+
+    public long folds() {
+        return folds.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        lane.shutdownNow();
+    }
+
+    public static class Builder {
+        private BinaryOperator<String> summarize;
+        private ContextWindow contextWindow;
+        private int keepRecent = 6;
+        private int batchSize = 4;
+        private int maxSummaryTokens = 400;
+        private int maxStepTokens = 300;
+
+        /**
+         * The model call: (previous summary, aged steps as JSON lines) to the new summary.
+         */
+        public Builder summarize(BinaryOperator<String> summarize) {
+            this.summarize = summarize;
+            return this;
+        }
+
+        /**
+         * Window whose tokenizer caps the summary and the steps sent to be folded.
+         */
+        public Builder contextWindow(ContextWindow contextWindow) {
+            this.contextWindow = contextWindow;
+            return this;
+        }
+
+        /**
+         * Newest steps always left out of the summary.
+         */
+        public Builder keepRecent(int keepRecent) {
+            if (keepRecent < 1) throw new IllegalArgumentException("keepRecent must be positive");
+            this.keepRecent = keepRecent;
+            return this;
+        }
+
+        /**
+         * Aged steps needed before a fold is worth a model call.
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder maxSummaryTokens(int tokens) {
+            this.maxSummaryTokens = tokens;
+            return this;
+        }
+
+        public Builder maxStepTokens(int tokens) {
+            this.maxStepTokens = tokens;
+            return this;
+        }
+
+        public HistorySummarizer build() {
+            if (summarize == null) throw new IllegalStateException("summarize is required");
+            if (contextWindow == null) throw new IllegalStateException("contextWindow is required");
+            return new HistorySummarizer(this);
+        }
+    }
+}
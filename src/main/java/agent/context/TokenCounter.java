@@ -0,0 +1,29 @@
+package agent.context;
+
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+
+/**
+ * Counts the tokens a text costs in a prompt. Implementations run locally: they are
+ * called for every prompt the loop assembles.
+ */
+@FunctionalInterface
+public interface TokenCounter {
+
+    int count(String text);
+
+    /**
+     * The OpenAI BPE tokenizer for {@code modelName}. Exact for OpenAI models and a close
+     * enough estimate for other providers.
+     */
+    static TokenCounter openAi(String modelName) {
+        OpenAiTokenCountEstimator estimator = new OpenAiTokenCountEstimator(modelName);
+        return estimator::estimateTokenCountInText;
+    }
+
+    /**
+     * Four characters per token; for tests and when no tokenizer is available.
+     */
+    static TokenCounter approximate() {
+        return text -> (text.length() + 3) / 4;
+    }
+}
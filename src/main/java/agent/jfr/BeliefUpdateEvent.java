@@ -0,0 +1,23 @@
+package agent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("agent.BeliefUpdate")
+@Label("Belief Update")
+@Category("Agent")
+@StackTrace(false)
+public class BeliefUpdateEvent extends jdk.jfr.Event {
+    @Label("Activity")
+    public String activityId;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Value Size")
+    @DataAmount(DataAmount.BYTES)
+    public int valueChars;
+}
@@ -0,0 +1,32 @@
+package agent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One hybrid memory search, embedding of the query included.
+ */
+@Name("agent.MemoryRetrieval")
+@Label("Memory Retrieval")
+@Category("Agent")
+@StackTrace(false)
+public class MemoryRetrievalEvent extends jdk.jfr.Event {
+    @Label("Store Size")
+    public int storeSize;
+
+    @Label("Keyword Candidates")
+    public int keywordCandidates;
+
+    @Label("Vector Fallback")
+    @Description("Whether a filtered vector search topped up the keyword candidates")
+    public boolean vectorFallback;
+
+    @Label("Outcome Filter")
+    public String outcome;
+
+    @Label("Results")
+    public int results;
+}
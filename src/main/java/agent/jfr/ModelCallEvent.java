@@ -0,0 +1,33 @@
+package agent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A single brain call; its duration is the model latency including tool execution.
+ */
+@Name("agent.ModelCall")
+@Label("Model Call")
+@Category("Agent")
+@StackTrace(false)
+public class ModelCallEvent extends jdk.jfr.Event {
+    @Label("Activity")
+    public String activityId;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Prompt Size")
+    @DataAmount(DataAmount.BYTES)
+    public int promptChars;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    public int responseChars;
+
+    @Label("Replayed")
+    public boolean replayed;
+}
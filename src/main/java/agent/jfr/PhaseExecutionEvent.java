@@ -0,0 +1,57 @@
+package agent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One pass of the event loop over an activity: the status it was in, how long it sat in
+ * the queue, and how much of the pass was spent in brain calls.
+ */
+@Name("agent.PhaseExecution")
+@Label("Activity Phase")
+@Category("Agent")
+@StackTrace(false)
+public class PhaseExecutionEvent extends jdk.jfr.Event {
+    @Label("Activity")
+    public String activityId;
+
+    @Label("Phase")
+    @Description("Status the activity was processed in")
+    public String phase;
+
+    @Label("Queue Wait")
+    @Timespan
+    public long queueWait;
+
+    @Label("Model Duration")
+    @Description("Time spent in brain calls during this pass")
+    @Timespan
+    public long modelDuration;
+
+    @Label("Model Calls")
+    public int modelCalls;
+
+    @Label("Prompt Size")
+    @Description("Characters of prompt variables sent to the brain")
+    @DataAmount(DataAmount.BYTES)
+    public long promptChars;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    public long responseChars;
+
+    /**
+     * Account one brain call made during this pass.
+     */
+    public void addModelCall(long durationNanos, int promptChars, int responseChars) {
+        this.modelCalls++;
+        this.modelDuration += durationNanos;
+        this.promptChars += promptChars;
+        this.responseChars += responseChars;
+    }
+}
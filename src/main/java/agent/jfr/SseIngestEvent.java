@@ -0,0 +1,29 @@
+package agent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parsing and routing of one SSE data line.
+ */
+@Name("agent.SseIngest")
+@Label("SSE Ingest")
+@Category("Agent")
+@StackTrace(false)
+public class SseIngestEvent extends jdk.jfr.Event {
+    @Label("Size")
+    @DataAmount(DataAmount.BYTES)
+    public int size;
+
+    @Label("Messages")
+    public int messages;
+
+    @Label("Broadcasts")
+    public int broadcasts;
+
+    @Label("Failed")
+    public boolean failed;
+}
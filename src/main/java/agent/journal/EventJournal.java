@@ -0,0 +1,274 @@
+package agent.journal;
+
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured journal of what the agent does, written off the hot path.
+ *
+ * Producers claim a slot of a preallocated ring buffer with a CAS and store references
+ * only (a constant message plus up to two detail objects); a background thread formats
+ * each entry as one JSON line, truncating details to a size cap, and hands it to a
+ * {@link JournalSink}. Nothing is formatted on the caller's thread and a full ring drops
+ * the entry instead of blocking. High-volume categories can be sampled 1-in-N.
+ */
+public class EventJournal implements AutoCloseable {
+
+    public enum Category {
+        /** Activity queued, forked, joined, woken or completed. */
+        ACTIVITY,
+        /** Phase transitions of the loop. */
+        PHASE,
+        /** Model results: actions, progress, wake conditions. */
+        MODEL,
+        TOOL,
+        /** SSE events delivered to an activity. */
+        EVENT,
+        /** Belief updates, from SSE or observation. */
+        BELIEF,
+        BROADCAST,
+        REPLAY
+    }
+
+    private final Entry[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLongArray sampleCounters = new AtomicLongArray(Category.values().length);
+    private final int[] sampleRates = new int[Category.values().length];
+    private final int maxDetailChars;
+    private final JournalSink sink;
+    private final long idleParkNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private EventJournal(Builder builder) {
+        int capacity = Integer.highestOneBit(Math.max(2, builder.capacity - 1)) << 1;
+        this.ring = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) ring[i] = new Entry(i - capacity);
+        this.mask = capacity - 1;
+        this.maxDetailChars = builder.maxDetailChars;
+        this.sink = builder.sink;
+        this.idleParkNanos = builder.idleParkNanos;
+        for (Category category : Category.values()) {
+            sampleRates[category.ordinal()] = builder.sampleRates.getOrDefault(category, 1);
+        }
+        this.writer = new Thread(this::drainLoop, "event-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void record(Category category, String activityUuid, String message) {
+        record(category, activityUuid, message, null, null);
+    }
+
+    public void record(Category category, String activityUuid, String message, Object detail) {
+        record(category, activityUuid, message, detail, null);
+    }
+
+    /**
+     * Journal an entry. {@code message} should be a constant; details are formatted with
+     * {@code toString()} later, on the writer thread, so they must not be mutated afterwards.
+     */
+    public void record(Category category, String activityUuid, String message, Object detail, Object extra) {
+        int rate = sampleRates[category.ordinal()];
+        if (rate != 1) {
+            if (rate == 0 || sampleCounters.getAndIncrement(category.ordinal()) % rate != 0) {
+                sampledOut.incrementAndGet();
+                return;
+            }
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= ring.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Entry entry = ring[(int) sequence & mask];
+        entry.timeMillis = System.currentTimeMillis();
+        entry.category = category;
+        entry.activityUuid = activityUuid;
+        entry.message = message;
+        entry.detail = detail;
+        entry.extra = extra;
+        entry.published = sequence; // volatile write publishes the fields above
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public long sampledOut() {
+        return sampledOut.get();
+    }
+
+    /**
+     * Entries written to the sink so far.
+     */
+    public long written() {
+        return consumed.get();
+    }
+
+    /**
+     * Stop the writer after it has drained what was recorded.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            int written = drain(line);
+            if (written > 0) {
+                sink.flush();
+            } else if (!running) {
+                if (claimed.get() == consumed.get()) return;
+                Thread.onSpinWait(); // a producer is between claim and publish
+            } else {
+                LockSupport.parkNanos(idleParkNanos);
+            }
+        }
+    }
+
+    private int drain(StringBuilder line) {
+        int written = 0;
+        long next = consumed.get();
+        while (true) {
+            Entry entry = ring[(int) next & mask];
+            if (entry.published != next) return written;
+            line.setLength(0);
+            format(entry, line);
+            // Release the slot before the sink call so producers are not held up by I/O
+            entry.detail = null;
+            entry.extra = null;
+            consumed.lazySet(++next);
+            try {
+                sink.write(line.toString());
+            } catch (RuntimeException e) {
+                LoggerFactory.getLogger(EventJournal.class).warn("Journal sink failed", e);
+            }
+            written++;
+        }
+    }
+
+    private void format(Entry entry, StringBuilder out) {
+        out.append("{\"ts\":\"").append(Instant.ofEpochMilli(entry.timeMillis)).append('"');
+        out.append(",\"cat\":\"").append(entry.category).append('"');
+        if (entry.activityUuid != null) out.append(",\"activity\":\"").append(entry.activityUuid).append('"');
+        out.append(",\"msg\":");
+        quote(out, entry.message, Integer.MAX_VALUE);
+        if (entry.detail != null) {
+            out.append(",\"detail\":");
+            quote(out, String.valueOf(entry.detail), maxDetailChars);
+        }
+        if (entry.extra != null) {
+            out.append(",\"extra\":");
+            quote(out, String.valueOf(entry.extra), maxDetailChars);
+        }
+        out.append('}');
+    }
+
+    private static void quote(StringBuilder out, String value, int maxChars) {
+        out.append('"');
+        int end = Math.min(value.length(), maxChars);
+        for (int i = 0; i < end; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        if (end < value.length()) out.append("…(+").append(value.length() - end).append(" chars)");
+        out.append('"');
+    }
+
+    private static final class Entry {
+        volatile long published;
+        long timeMillis;
+        Category category;
+        String activityUuid;
+        String message;
+        Object detail;
+        Object extra;
+
+        Entry(long initial) {
+            this.published = initial;
+        }
+    }
+
+    public static class Builder {
+        private int capacity = 8192;
+        private int maxDetailChars = 512;
+        private JournalSink sink = JournalSink.logger(LoggerFactory.getLogger("agent.journal"));
+        private long idleParkNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        private final Map<Category, Integer> sampleRates = new EnumMap<>(Category.class);
+
+        public Builder() {
+            // Per-event chatter dominates at high activity rates
+            sampleRates.put(Category.EVENT, 10);
+            sampleRates.put(Category.BELIEF, 10);
+        }
+
+        /**
+         * Ring size, rounded up to a power of two.
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Details longer than this are cut and marked with the number of chars dropped.
+         */
+        public Builder maxDetailChars(int maxDetailChars) {
+            this.maxDetailChars = maxDetailChars;
+            return this;
+        }
+
+        public Builder sink(JournalSink sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Keep 1 in {@code everyN} entries of the category; 1 keeps all, 0 none.
+         * EVENT and BELIEF default to 1 in 10.
+         */
+        public Builder sample(Category category, int everyN) {
+            if (everyN < 0) throw new IllegalArgumentException("everyN must not be negative");
+            this.sampleRates.put(category, everyN);
+            return this;
+        }
+
+        public EventJournal build() {
+            return new EventJournal(this);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package agent.journal;
+
+import org.slf4j.Logger;
+
+/**
+ * Destination of formatted journal lines. Only called from the journal's writer thread.
+ */
+@FunctionalInterface
+public interface JournalSink {
+
+    void write(String line);
+
+    default void flush() {
+    }
+
+    /**
+     * Hand each line to an slf4j logger at INFO.
+     */
+    static JournalSink logger(Logger logger) {
+        return logger::info;
+    }
+}
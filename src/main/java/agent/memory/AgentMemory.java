@@ -1,20 +1,28 @@
 package agent.memory;
 
+import agent.jfr.MemoryRetrievalEvent;
 import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.store.embedding.CosineSimilarity;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
-import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
 public class AgentMemory {
+    private static final Logger logger = LoggerFactory.getLogger(AgentMemory.class);
 
     // Embedding model that converts text to numeric vectors
     private final EmbeddingModel embeddingModel;
@@ -22,55 +30,276 @@ public class AgentMemory {
     // In-memory embedding store for now
     private final EmbeddingStore<TextSegment> embeddingStore;
 
+    // Usage statistics per stored entry, keyed by embedding id
+    private final Map<String, MemoryRecord> records = new ConcurrentHashMap<>();
+
+    // Cheap indexes consulted before any vector is scored
+    private final KeywordIndex keywordIndex = new KeywordIndex();
+    private final Map<String, Set<String>> outcomeIndex = new ConcurrentHashMap<>();
+
+    private static final double MIN_RELEVANCE = 0.6;
+
+    private final int capacity;
+    private final double consolidationThreshold;
+    private final long recencyHalfLifeMillis;
+    private final double vectorWeight;
+
     public AgentMemory() {
-        // Initialize here to keep other classes simple
-        this.embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        this(new Builder());
+    }
+
+    private AgentMemory(Builder builder) {
+        // Agents share the process-wide embedding service unless a model is injected
+        this.embeddingModel = builder.embeddingModel != null ? builder.embeddingModel : EmbeddingService.shared();
         this.embeddingStore = new InMemoryEmbeddingStore<>();
+        this.capacity = builder.capacity;
+        this.consolidationThreshold = builder.consolidationThreshold;
+        this.recencyHalfLifeMillis = builder.recencyHalfLife.toMillis();
+        this.vectorWeight = builder.vectorWeight;
     }
 
     /**
-     * Save a new episodic memory
+     * Save a new episodic memory. Near-duplicates of an existing memory are merged
+     * into it instead of being stored again; the store is then trimmed to capacity.
      */
-    public void save(EpisodicMemory memory) {
+    public synchronized void save(EpisodicMemory memory) {
         // Convert memory to text for embedding
         String textContent = memory.toTextContent();
 
-        // Create a TextSegment with metadata (useful for future filtering)
+        // Create a TextSegment with metadata used to pre-filter retrieval
+        String outcome = normalizeOutcome(memory.getOutcome());
         Metadata metadata = new Metadata();
-        metadata.put("outcome", "SUCCESS"); // Example: store only successes in the vector DB
+        metadata.put("outcome", outcome);
         metadata.put("original_goal", memory.getOriginalGoal());
+        metadata.put("keywords", String.join(",", memory.getKeywords()));
 
         TextSegment segment = TextSegment.from(textContent, metadata);
 
         // Compute the embedding vector
         Embedding embedding = embeddingModel.embed(segment).content();
+        long now = System.currentTimeMillis();
+
+        MemoryRecord duplicate = findDuplicate(embedding);
+        if (duplicate != null) {
+            // Prefer successful procedures: a failure never overwrites a success
+            boolean replace = "SUCCESS".equals(outcome)
+                    || !"SUCCESS".equals(normalizeOutcome(duplicate.memory().getOutcome()));
+            if (replace) unindex(duplicate);
+            duplicate.merge(memory, embedding, segment, replace, now);
+            if (replace) {
+                embeddingStore.remove(duplicate.id());
+                embeddingStore.addAll(List.of(duplicate.id()), List.of(embedding), List.of(segment));
+                index(duplicate);
+            }
+            logger.debug("🧠 Memory consolidated: {}", memory.getOriginalGoal());
+            return;
+        }
 
         // Add to the store
-        embeddingStore.add(embedding, segment);
+        String id = embeddingStore.add(embedding, segment);
+        MemoryRecord record = new MemoryRecord(id, memory, embedding, segment, now);
+        records.put(id, record);
+        index(record);
+        evictIfNeeded(now);
 
-        System.out.println("Memory saved: " + memory.getOriginalGoal());
+        logger.info("🧠 Memory saved: {}", memory.getOriginalGoal());
     }
 
     /**
      * Retrieve memories similar to a new goal (for RAG)
      */
     public List<String> retrieveRelevantMemories(String currentGoal, int maxResults) {
+        return retrieveRelevantMemories(currentGoal, maxResults, null);
+    }
+
+    /**
+     * Hybrid retrieval restricted to memories with the given outcome (null for any).
+     * Keyword candidates are scored with BM25 and only their vectors are compared;
+     * a filtered vector search tops up the list when keywords find too few. The final
+     * ranking fuses both scores.
+     */
+    public List<String> retrieveRelevantMemories(String currentGoal, int maxResults, String outcome) {
+        return search(currentGoal, maxResults, outcome).stream()
+                .map(scored -> scored.record().segment().text())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The best SUCCESS memory with recorded tool steps whose fused relevance to the goal
+     * is at least {@code minScore}, or null. Used to replay a learned procedure.
+     */
+    public EpisodicMemory findReplayableProcedure(String goal, double minScore) {
+        for (ScoredRecord scored : search(goal, 3, "SUCCESS")) {
+            if (scored.score() < minScore) break;
+            EpisodicMemory memory = scored.record().memory();
+            if (!memory.getToolSteps().isEmpty()) return memory;
+        }
+        return null;
+    }
+
+    private List<ScoredRecord> search(String currentGoal, int maxResults, String outcome) {
+        MemoryRetrievalEvent event = new MemoryRetrievalEvent();
+        event.begin();
+        // Metadata pre-filter
+        String outcomeFilter = outcome == null ? null : normalizeOutcome(outcome);
+        Set<String> allowed = outcomeFilter == null ? null : outcomeIndex.getOrDefault(outcomeFilter, Set.of());
+        if (allowed != null && allowed.isEmpty()) return List.of();
+
         // Compute embedding for the new goal
         Embedding queryEmbedding = embeddingModel.embed(currentGoal).content();
 
-        // Build the search request
+        // Keyword candidates: only these vectors are scored
+        Map<String, Double> lexical = keywordIndex.search(KeywordIndex.tokenize(currentGoal), allowed);
+        Map<String, Double> semantic = new HashMap<>();
+        for (String id : lexical.keySet()) {
+            MemoryRecord record = records.get(id);
+            if (record != null) {
+                semantic.put(id, RelevanceScore.fromCosineSimilarity(CosineSimilarity.between(queryEmbedding, record.embedding())));
+            }
+        }
+
+        // Too few keyword candidates: fall back to a vector search with the same metadata filter
+        boolean fallback = semantic.size() < maxResults;
+        if (fallback) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(queryEmbedding)
+                    .maxResults(maxResults)
+                    .minScore(MIN_RELEVANCE) // Apply a minimum score filter for efficiency
+                    .filter(outcomeFilter == null ? null : metadataKey("outcome").isEqualTo(outcomeFilter))
+                    .build();
+            for (EmbeddingMatch<TextSegment> match : embeddingStore.search(request).matches()) {
+                semantic.putIfAbsent(match.embeddingId(), match.score());
+            }
+        }
+
+        // Fuse: weighted vector relevance plus max-normalized BM25
+        double maxLexical = lexical.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        List<ScoredRecord> ranked = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : semantic.entrySet()) {
+            MemoryRecord record = records.get(entry.getKey());
+            if (record == null || entry.getValue() < MIN_RELEVANCE) continue;
+            double keywordScore = maxLexical > 0 ? lexical.getOrDefault(entry.getKey(), 0.0) / maxLexical : 0;
+            ranked.add(new ScoredRecord(record, vectorWeight * entry.getValue() + (1 - vectorWeight) * keywordScore));
+        }
+        ranked.sort(Comparator.comparingDouble(ScoredRecord::score).reversed());
+        List<ScoredRecord> top = ranked.subList(0, Math.min(maxResults, ranked.size()));
+
+        // Retrieval keeps a memory alive: count the hit and refresh its recency
+        long now = System.currentTimeMillis();
+        top.forEach(scored -> scored.record().recordHit(now));
+
+        if (event.shouldCommit()) {
+            event.storeSize = records.size();
+            event.keywordCandidates = lexical.size();
+            event.vectorFallback = fallback;
+            event.outcome = outcomeFilter;
+            event.results = top.size();
+            event.commit();
+        }
+        return top;
+    }
+
+    /**
+     * Number of distinct memories currently stored.
+     */
+    public int size() {
+        return records.size();
+    }
+
+    private MemoryRecord findDuplicate(Embedding embedding) {
+        if (records.isEmpty()) return null;
         EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
-                .queryEmbedding(queryEmbedding)
-                .maxResults(maxResults)
-                .minScore(0.6) // Apply a minimum score filter for efficiency
+                .queryEmbedding(embedding)
+                .maxResults(1)
+                .minScore(consolidationThreshold)
                 .build();
+        List<EmbeddingMatch<TextSegment>> matches = embeddingStore.search(request).matches();
+        return matches.isEmpty() ? null : records.get(matches.get(0).embeddingId());
+    }
+
+    private void evictIfNeeded(long now) {
+        while (records.size() > capacity) {
+            MemoryRecord victim = null;
+            double lowest = Double.MAX_VALUE;
+            for (MemoryRecord record : records.values()) {
+                double score = record.retentionScore(now, recencyHalfLifeMillis);
+                if (score < lowest) {
+                    lowest = score;
+                    victim = record;
+                }
+            }
+            if (victim == null) return;
+            records.remove(victim.id());
+            unindex(victim);
+            embeddingStore.remove(victim.id());
+            logger.debug("🧠 Memory evicted: {}", victim.memory().getOriginalGoal());
+        }
+    }
 
-        // Execute the search
-        EmbeddingSearchResult<TextSegment> result = embeddingStore.search(request);
+    private void index(MemoryRecord record) {
+        EpisodicMemory memory = record.memory();
+        List<String> terms = KeywordIndex.tokenize(memory.getOriginalGoal());
+        memory.getKeywords().forEach(keyword -> terms.addAll(KeywordIndex.tokenize(keyword)));
+        keywordIndex.index(record.id(), terms);
+        outcomeIndex.computeIfAbsent(normalizeOutcome(memory.getOutcome()), o -> ConcurrentHashMap.newKeySet()).add(record.id());
+    }
 
-        // Return only the text of matched memories
-        return result.matches().stream()
-                .map(match -> match.embedded().text())
-                .collect(Collectors.toList());
+    private void unindex(MemoryRecord record) {
+        keywordIndex.remove(record.id());
+        Set<String> ids = outcomeIndex.get(normalizeOutcome(record.memory().getOutcome()));
+        if (ids != null) ids.remove(record.id());
+    }
+
+    private static String normalizeOutcome(String outcome) {
+        return outcome == null || outcome.isBlank() ? "UNKNOWN" : outcome.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private record ScoredRecord(MemoryRecord record, double score) {}
+
+    public static class Builder {
+        private EmbeddingModel embeddingModel;
+        private int capacity = 1000;
+        private double consolidationThreshold = 0.95;
+        private Duration recencyHalfLife = Duration.ofDays(7);
+        private double vectorWeight = 0.7;
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Maximum number of memories kept; the lowest retention score is evicted first.
+         */
+        public Builder capacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Relevance score (0..1) above which a new memory is merged into an existing one.
+         */
+        public Builder consolidationThreshold(double threshold) {
+            this.consolidationThreshold = threshold;
+            return this;
+        }
+
+        public Builder recencyHalfLife(Duration halfLife) {
+            this.recencyHalfLife = halfLife;
+            return this;
+        }
+
+        /**
+         * Weight of vector relevance in the fused score; the rest goes to BM25.
+         */
+        public Builder vectorWeight(double vectorWeight) {
+            this.vectorWeight = vectorWeight;
+            return this;
+        }
+
+        public AgentMemory build() {
+            return new AgentMemory(this);
+        }
     }
-}
\ No newline at end of file
+}
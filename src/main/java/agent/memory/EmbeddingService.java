@@ -0,0 +1,263 @@
+package agent.memory;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide embedding service shared by all agents.
+ *
+ * A bounded pool of workers drains a common queue: requests from different agents
+ * that arrive within the batch window are embedded together in one {@code embedAll}
+ * call. Each worker asks the factory for its model on first use.
+ *
+ * {@link AllMiniLmL6V2EmbeddingModel}, the default, loads its ONNX model once per
+ * process and shares it between instances, so the pool bounds concurrent inference
+ * and every agent reuses the one loaded model. A factory building e.g. an
+ * {@code OnnxEmbeddingModel} per call gives every worker a model of its own.
+ */
+public class EmbeddingService implements EmbeddingModel, AutoCloseable {
+    private static volatile EmbeddingService shared;
+
+    private final Supplier<EmbeddingModel> modelFactory;
+    private final int poolSize;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final long requestTimeoutNanos;
+
+    private final BlockingQueue<EmbeddingRequest> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private volatile boolean eagerModels = false;
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger models = new AtomicInteger();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong segments = new AtomicLong();
+
+    private EmbeddingService(Builder builder) {
+        this.modelFactory = builder.modelFactory;
+        this.poolSize = builder.poolSize;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.batchWindowNanos = builder.batchWindow.toNanos();
+        this.requestTimeoutNanos = builder.requestTimeout.toNanos();
+    }
+
+    /**
+     * The process-wide instance, created with default settings on first access.
+     */
+    public static EmbeddingService shared() {
+        EmbeddingService instance = shared;
+        if (instance == null) {
+            synchronized (EmbeddingService.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new Builder().build();
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        if (textSegments.isEmpty()) return Response.from(List.of());
+        if (!running.get()) throw new IllegalStateException("EmbeddingService is closed");
+        ensureStarted();
+
+        EmbeddingRequest request = new EmbeddingRequest(textSegments);
+        queue.add(request);
+        // close() may have drained the queue between the check above and the add
+        if (!running.get() && queue.remove(request)) {
+            request.result.completeExceptionally(new IllegalStateException("EmbeddingService is closed"));
+        }
+        try {
+            return Response.from(request.result.get(requestTimeoutNanos, TimeUnit.NANOSECONDS));
+        } catch (InterruptedException e) {
+            queue.remove(request);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for embeddings", e);
+        } catch (TimeoutException e) {
+            queue.remove(request);
+            throw new IllegalStateException("No embeddings within " + Duration.ofNanos(requestTimeoutNanos), e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Start the workers and create their models now instead of on the first request.
+     */
+    public void warmUp() {
+        eagerModels = true;
+        ensureStarted();
+        embed("warm-up");
+    }
+
+    public int poolSize() { return poolSize; }
+    /**
+     * Models the workers have obtained from the factory so far; at most {@link #poolSize()}.
+     */
+    public int models() { return models.get(); }
+    public long batches() { return batches.get(); }
+    public long embeddedSegments() { return segments.get(); }
+
+    @Override
+    public void close() {
+        running.set(false);
+        workers.forEach(Thread::interrupt);
+        EmbeddingRequest pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException("EmbeddingService is closed"));
+        }
+    }
+
+    private void ensureStarted() {
+        if (!started.compareAndSet(false, true)) return;
+        for (int i = 0; i < poolSize; i++) {
+            Thread worker = new Thread(this::work, "embedding-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private void work() {
+        EmbeddingModel model = null;
+        if (eagerModels) {
+            try {
+                model = newModel();
+            } catch (RuntimeException e) {
+                // Retried, and reported to callers, when the first request arrives
+            }
+        }
+        List<EmbeddingRequest> batch = new ArrayList<>();
+        while (running.get()) {
+            try {
+                EmbeddingRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                if (model == null) {
+                    try {
+                        model = newModel();
+                    } catch (RuntimeException e) {
+                        first.result.completeExceptionally(e);
+                        continue;
+                    }
+                }
+
+                int size = first.segments.size();
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (size < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    EmbeddingRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                    size += next.segments.size();
+                }
+                embedBatch(model, batch, size);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                // No-op for answered requests; the rest were dequeued and must not be lost
+                batch.forEach(request -> request.result.completeExceptionally(new IllegalStateException("EmbeddingService is closed")));
+                batch.clear();
+            }
+        }
+    }
+
+    private void embedBatch(EmbeddingModel model, List<EmbeddingRequest> batch, int size) {
+        List<TextSegment> all = new ArrayList<>(size);
+        batch.forEach(request -> all.addAll(request.segments));
+        try {
+            List<Embedding> embeddings = model.embedAll(all).content();
+            // Count before completing: a caller holding its result sees the batch counted
+            batches.incrementAndGet();
+            segments.addAndGet(all.size());
+            int offset = 0;
+            for (EmbeddingRequest request : batch) {
+                int end = offset + request.segments.size();
+                request.result.complete(new ArrayList<>(embeddings.subList(offset, end)));
+                offset = end;
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(request -> request.result.completeExceptionally(e));
+        }
+    }
+
+    private EmbeddingModel newModel() {
+        EmbeddingModel model = modelFactory.get();
+        models.incrementAndGet();
+        return model;
+    }
+
+    private static class EmbeddingRequest {
+        final List<TextSegment> segments;
+        final CompletableFuture<List<Embedding>> result = new CompletableFuture<>();
+
+        EmbeddingRequest(List<TextSegment> segments) {
+            this.segments = segments;
+        }
+    }
+
+    public static class Builder {
+        private Supplier<EmbeddingModel> modelFactory = AllMiniLmL6V2EmbeddingModel::new;
+        private int poolSize = Runtime.getRuntime().availableProcessors();
+        private int maxBatchSize = 32;
+        private Duration batchWindow = Duration.ofMillis(1);
+        private Duration requestTimeout = Duration.ofMinutes(1);
+
+        /**
+         * Called once per worker for the model it embeds with.
+         */
+        public Builder modelFactory(Supplier<EmbeddingModel> modelFactory) {
+            this.modelFactory = modelFactory;
+            return this;
+        }
+
+        public Builder poolSize(int poolSize) {
+            if (poolSize < 1) throw new IllegalArgumentException("poolSize must be positive");
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be positive");
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * How long a worker waits for more requests to join a batch once it has one.
+         */
+        public Builder batchWindow(Duration batchWindow) {
+            this.batchWindow = batchWindow;
+            return this;
+        }
+
+        /**
+         * Longest a caller waits for its embeddings, including creating the first model.
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        public EmbeddingService build() {
+            return new EmbeddingService(this);
+        }
+    }
+}
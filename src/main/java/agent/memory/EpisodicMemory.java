@@ -10,20 +10,36 @@ public class EpisodicMemory {
     private final String outcome; // "SUCCESS" or "FAILURE"
     private final String summary;
     private final List<String> successfulProcedure; // Steps that worked
+    private final List<String> lessonsLearned;
+    private final List<String> keywords; // Indexed for keyword retrieval
+    private final List<ToolStep> toolSteps; // Recorded tool calls, used for replay
     private final Instant timestamp;
 
     public EpisodicMemory(String originalGoal, String outcome, String summary, List<String> successfulProcedure) {
+        this(originalGoal, outcome, summary, successfulProcedure, List.of(), List.of());
+    }
+
+    public EpisodicMemory(String originalGoal, String outcome, String summary, List<String> successfulProcedure,
+                          List<String> lessonsLearned, List<String> keywords) {
+        this(originalGoal, outcome, summary, successfulProcedure, lessonsLearned, keywords, List.of());
+    }
+
+    public EpisodicMemory(String originalGoal, String outcome, String summary, List<String> successfulProcedure,
+                          List<String> lessonsLearned, List<String> keywords, List<ToolStep> toolSteps) {
         this.id = UUID.randomUUID().toString();
         this.originalGoal = originalGoal;
         this.outcome = outcome;
         this.summary = summary;
         this.successfulProcedure = successfulProcedure;
+        this.lessonsLearned = lessonsLearned == null ? List.of() : lessonsLearned;
+        this.keywords = keywords == null ? List.of() : keywords;
+        this.toolSteps = toolSteps == null ? List.of() : List.copyOf(toolSteps);
         this.timestamp = Instant.now();
     }
 
     // Crucial method for RAG: the text the AI will read when retrieving this memory
     public String toTextContent() {
-        return String.format("""
+        String text = String.format("""
             PAST TASK: %s
             OUTCOME: %s
             SUMMARY: %s
@@ -35,9 +51,21 @@ public class EpisodicMemory {
                 summary,
                 String.join("\n- ", successfulProcedure)
         );
+        if (!lessonsLearned.isEmpty()) {
+            text += "LESSONS LEARNED:\n- " + String.join("\n- ", lessonsLearned) + "\n";
+        }
+        return text;
     }
 
 
+    public String getId() { return id; }
     public String getOriginalGoal() { return originalGoal; }
+    public String getOutcome() { return outcome; }
+    public String getSummary() { return summary; }
+    public List<String> getSuccessfulProcedure() { return successfulProcedure; }
+    public List<String> getLessonsLearned() { return lessonsLearned; }
+    public List<String> getKeywords() { return keywords; }
+    public List<ToolStep> getToolSteps() { return toolSteps; }
+    public Instant getTimestamp() { return timestamp; }
 
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package agent.memory;
+
+import java.util.*;
+
+/**
+ * Inverted index over memory keywords with Okapi BM25 scoring.
+ * Used to narrow the candidate set before any vector is scored.
+ */
+class KeywordIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "that", "the", "then", "this", "to", "with", "your", "you");
+
+    // term -> (memory id -> term frequency)
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, Integer> documentLengths = new HashMap<>();
+    private final Map<String, Set<String>> documentTerms = new HashMap<>();
+    private long totalLength;
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 1 && !STOPWORDS.contains(token)) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    synchronized void index(String id, Collection<String> tokens) {
+        remove(id);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) frequencies.merge(token, 1, Integer::sum);
+        frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+        documentTerms.put(id, frequencies.keySet());
+        documentLengths.put(id, tokens.size());
+        totalLength += tokens.size();
+    }
+
+    synchronized void remove(String id) {
+        Integer length = documentLengths.remove(id);
+        if (length == null) return;
+        totalLength -= length;
+        for (String term : documentTerms.remove(id)) {
+            Map<String, Integer> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(id);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+
+    /**
+     * BM25 score of every document containing at least one query term,
+     * restricted to {@code allowed} when it is not null.
+     */
+    synchronized Map<String, Double> search(Collection<String> queryTerms, Set<String> allowed) {
+        Map<String, Double> scores = new HashMap<>();
+        int n = documentLengths.size();
+        if (n == 0) return scores;
+        double avgLength = Math.max(1.0, (double) totalLength / n);
+        for (String term : new HashSet<>(queryTerms)) {
+            Map<String, Integer> docs = postings.get(term);
+            if (docs == null) continue;
+            double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+            for (Map.Entry<String, Integer> doc : docs.entrySet()) {
+                if (allowed != null && !allowed.contains(doc.getKey())) continue;
+                double tf = doc.getValue();
+                double length = documentLengths.getOrDefault(doc.getKey(), 0);
+                double score = idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * length / avgLength));
+                scores.merge(doc.getKey(), score, Double::sum);
+            }
+        }
+        return scores;
+    }
+}
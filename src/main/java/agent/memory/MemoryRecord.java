@@ -0,0 +1,72 @@
+package agent.memory;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookkeeping for a stored memory: the embedded entry plus the usage
+ * statistics used by consolidation and eviction.
+ */
+class MemoryRecord {
+    private final String id;
+    private volatile EpisodicMemory memory;
+    private volatile Embedding embedding;
+    private volatile TextSegment segment;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger merges = new AtomicInteger();
+    private volatile long lastAccessMillis;
+
+    MemoryRecord(String id, EpisodicMemory memory, Embedding embedding, TextSegment segment, long nowMillis) {
+        this.id = id;
+        this.memory = memory;
+        this.embedding = embedding;
+        this.segment = segment;
+        this.lastAccessMillis = nowMillis;
+    }
+
+    String id() { return id; }
+    EpisodicMemory memory() { return memory; }
+    Embedding embedding() { return embedding; }
+    TextSegment segment() { return segment; }
+    int hits() { return hits.get(); }
+    int merges() { return merges.get(); }
+    long lastAccessMillis() { return lastAccessMillis; }
+
+    void recordHit(long nowMillis) {
+        hits.incrementAndGet();
+        lastAccessMillis = nowMillis;
+    }
+
+    /**
+     * Fold a near-duplicate into this record. Hits and merge count are kept,
+     * recency is refreshed and the content is replaced only when requested.
+     */
+    void merge(EpisodicMemory newer, Embedding newerEmbedding, TextSegment newerSegment, boolean replaceContent, long nowMillis) {
+        merges.incrementAndGet();
+        lastAccessMillis = nowMillis;
+        if (replaceContent) {
+            this.memory = newer;
+            this.embedding = newerEmbedding;
+            this.segment = newerSegment;
+        }
+    }
+
+    /**
+     * Retention score: exponential recency decay, boosted by how often the memory
+     * was retrieved or re-learned, and weighted by outcome. Lowest is evicted first.
+     */
+    double retentionScore(long nowMillis, long halfLifeMillis) {
+        double age = Math.max(0, nowMillis - lastAccessMillis);
+        double recency = Math.pow(0.5, age / Math.max(1, halfLifeMillis));
+        double usage = 1.0 + Math.log1p(hits.get() + merges.get());
+        return recency * usage * outcomeWeight(memory.getOutcome());
+    }
+
+    private static double outcomeWeight(String outcome) {
+        if ("SUCCESS".equalsIgnoreCase(outcome)) return 1.0;
+        if ("FAILURE".equalsIgnoreCase(outcome)) return 0.5;
+        return 0.75;
+    }
+}
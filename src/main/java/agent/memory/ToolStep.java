@@ -0,0 +1,17 @@
+package agent.memory;
+
+import java.util.List;
+
+/**
+ * One recorded tool call of a successful activity and the event names that followed it.
+ * Arguments are the raw JSON sent to the tool, with the activity id replaced by
+ * {@link #ACTIVITY_UUID} so the step can be replayed for another activity.
+ */
+public record ToolStep(String toolName, String arguments, List<String> expectedEvents) {
+
+    public static final String ACTIVITY_UUID = "{{activityUuid}}";
+
+    public ToolStep {
+        expectedEvents = expectedEvents == null ? List.of() : List.copyOf(expectedEvents);
+    }
+}
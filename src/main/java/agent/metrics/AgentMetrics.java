@@ -0,0 +1,234 @@
+package agent.metrics;
+
+import agent.Phase;
+import agent.activity.Activity;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runtime metrics of one agent: brain call latency per phase, time spent queued,
+ * activities by status, SSE throughput and drops, memory size and retrieval latency,
+ * plus the model call and token counters of {@link PhaseMetrics}.
+ *
+ * Recording never blocks: latencies go to HdrHistogram recorders and counts to adders.
+ * {@link #snapshot()} folds the recorders into cumulative histograms; it and
+ * {@link #prometheus()} are meant for occasional readers such as a scrape endpoint.
+ */
+public class AgentMetrics {
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    private final Map<Phase, Latency> phaseLatency = new EnumMap<>(Phase.class);
+    private final Latency queueWait = new Latency();
+    private final Latency memoryRetrieval = new Latency();
+    private final LongAdder sseMessages = new LongAdder();
+    private final LongAdder sseDropped = new LongAdder();
+    private final RateMeter sseRate = new RateMeter(RATE_WINDOW_SECONDS);
+    private final PhaseMetrics modelCalls;
+    private final Supplier<Map<Activity.Status, Integer>> activityCounts;
+    private final IntSupplier memorySize;
+
+    public AgentMetrics(PhaseMetrics modelCalls, Supplier<Map<Activity.Status, Integer>> activityCounts, IntSupplier memorySize) {
+        this.modelCalls = modelCalls;
+        this.activityCounts = activityCounts;
+        this.memorySize = memorySize;
+        for (Phase phase : Phase.values()) {
+            phaseLatency.put(phase, new Latency());
+        }
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        phaseLatency.get(phase).record(nanos);
+    }
+
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    public void recordRetrieval(long nanos) {
+        memoryRetrieval.record(nanos);
+    }
+
+    public void recordSseMessages(int count) {
+        sseMessages.add(count);
+        sseRate.mark(count);
+    }
+
+    /**
+     * An SSE message addressed to an activity the agent does not know (or no longer runs).
+     */
+    public void recordSseDropped() {
+        sseDropped.increment();
+    }
+
+    public synchronized Snapshot snapshot() {
+        Map<Phase, LatencyStats> phases = new EnumMap<>(Phase.class);
+        phaseLatency.forEach((phase, latency) -> phases.put(phase, latency.stats()));
+        Map<Activity.Status, Integer> activities = new EnumMap<>(Activity.Status.class);
+        for (Activity.Status status : Activity.Status.values()) activities.put(status, 0);
+        activities.putAll(activityCounts.get());
+        return new Snapshot(
+                phases,
+                queueWait.stats(),
+                activities,
+                sseMessages.sum(),
+                sseRate.perSecond(),
+                sseDropped.sum(),
+                memorySize.getAsInt(),
+                memoryRetrieval.stats(),
+                modelCalls.snapshot());
+    }
+
+    /**
+     * The current snapshot in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String prometheus() {
+        Snapshot s = snapshot();
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "agent_phase_latency_seconds", "summary", "Brain call latency per phase, tool execution included");
+        s.phaseLatency().forEach((phase, stats) -> summary(out, "agent_phase_latency_seconds", "phase=\"" + phase + "\"", stats));
+        header(out, "agent_queue_wait_seconds", "summary", "Time activities spent in the loop queue");
+        summary(out, "agent_queue_wait_seconds", "", s.queueWait());
+        header(out, "agent_activities", "gauge", "Live activities by status");
+        s.activities().forEach((status, count) -> sample(out, "agent_activities", "status=\"" + status + "\"", count));
+
+        header(out, "agent_sse_messages_total", "counter", "SSE messages received");
+        sample(out, "agent_sse_messages_total", "", s.sseMessages());
+        header(out, "agent_sse_messages_per_second", "gauge", "SSE messages per second over the last minute");
+        sample(out, "agent_sse_messages_per_second", "", s.sseMessagesPerSecond());
+        header(out, "agent_sse_dropped_total", "counter", "SSE messages for unknown or finished activities");
+        sample(out, "agent_sse_dropped_total", "", s.sseDropped());
+
+        header(out, "agent_memory_size", "gauge", "Episodic memories stored");
+        sample(out, "agent_memory_size", "", s.memorySize());
+        header(out, "agent_memory_retrieval_seconds", "summary", "Memory retrieval latency");
+        summary(out, "agent_memory_retrieval_seconds", "", s.memoryRetrieval());
+
+        header(out, "agent_model_calls_total", "counter", "Model calls per phase");
+        s.modelCalls().forEach((phase, stats) -> sample(out, "agent_model_calls_total", "phase=\"" + phase + "\"", stats.calls()));
+        header(out, "agent_model_errors_total", "counter", "Failed model calls per phase");
+        s.modelCalls().forEach((phase, stats) -> sample(out, "agent_model_errors_total", "phase=\"" + phase + "\"", stats.errors()));
+        header(out, "agent_model_tokens_total", "counter", "Model tokens per phase and direction");
+        s.modelCalls().forEach((phase, stats) -> {
+            sample(out, "agent_model_tokens_total", "phase=\"" + phase + "\",direction=\"input\"", stats.inputTokens());
+            sample(out, "agent_model_tokens_total", "phase=\"" + phase + "\",direction=\"output\"", stats.outputTokens());
+        });
+        header(out, "agent_prompt_tokens", "gauge", "Locally counted prompt tokens per phase");
+        s.modelCalls().forEach((phase, stats) -> {
+            sample(out, "agent_prompt_tokens", "phase=\"" + phase + "\",stat=\"mean\"", stats.meanPromptTokens());
+            sample(out, "agent_prompt_tokens", "phase=\"" + phase + "\",stat=\"max\"", stats.maxPromptTokens());
+        });
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyStats stats) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        sample(out, name, prefix + "quantile=\"0.5\"", stats.p50Millis() / 1000);
+        sample(out, name, prefix + "quantile=\"0.99\"", stats.p99Millis() / 1000);
+        sample(out, name, prefix + "quantile=\"0.999\"", stats.p999Millis() / 1000);
+        sample(out, name + "_sum", labels, stats.meanMillis() * stats.count() / 1000);
+        sample(out, name + "_count", labels, stats.count());
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.6g", value)).append('\n');
+    }
+
+    public record LatencyStats(long count, double meanMillis, double p50Millis, double p99Millis,
+                               double p999Millis, double maxMillis) {
+    }
+
+    public record Snapshot(Map<Phase, LatencyStats> phaseLatency,
+                           LatencyStats queueWait,
+                           Map<Activity.Status, Integer> activities,
+                           long sseMessages,
+                           double sseMessagesPerSecond,
+                           long sseDropped,
+                           int memorySize,
+                           LatencyStats memoryRetrieval,
+                           Map<Phase, PhaseMetrics.PhaseStats> modelCalls) {
+    }
+
+    /**
+     * Wait-free recorder in microseconds, folded into a cumulative histogram on read.
+     */
+    private static class Latency {
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private Histogram interval;
+
+        void record(long nanos) {
+            recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        }
+
+        // Callers hold the AgentMetrics lock
+        LatencyStats stats() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return new LatencyStats(
+                    total.getTotalCount(),
+                    total.getMean() / 1000.0,
+                    total.getValueAtPercentile(50) / 1000.0,
+                    total.getValueAtPercentile(99) / 1000.0,
+                    total.getValueAtPercentile(99.9) / 1000.0,
+                    total.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * Events per second over a sliding window of one-second buckets.
+     */
+    private static class RateMeter {
+        private final int windowSeconds;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray seconds;
+
+        RateMeter(int windowSeconds) {
+            this.windowSeconds = windowSeconds;
+            this.counts = new AtomicLongArray(windowSeconds);
+            this.seconds = new AtomicLongArray(windowSeconds);
+        }
+
+        void mark(int n) {
+            long now = nowSeconds();
+            int slot = (int) (now % windowSeconds);
+            long stamp = seconds.get(slot);
+            // First writer of a new second claims the bucket and clears the stale count
+            if (stamp != now && seconds.compareAndSet(slot, stamp, now)) {
+                counts.set(slot, 0);
+            }
+            counts.addAndGet(slot, n);
+        }
+
+        double perSecond() {
+            long now = nowSeconds();
+            long sum = 0;
+            for (int i = 0; i < windowSeconds; i++) {
+                if (now - seconds.get(i) < windowSeconds) sum += counts.get(i);
+            }
+            return (double) sum / windowSeconds;
+        }
+
+        private static long nowSeconds() {
+            return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package agent.metrics;
+
+import agent.Phase;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-phase model call counters: calls, errors, latency, tokens and prompt size.
+ */
+public class PhaseMetrics {
+    private final Map<Phase, Counters> counters = new EnumMap<>(Phase.class);
+
+    public PhaseMetrics() {
+        for (Phase phase : Phase.values()) {
+            counters.put(phase, new Counters());
+        }
+    }
+
+    public void record(Phase phase, long latencyNanos, TokenUsage usage) {
+        Counters c = counters.get(phase);
+        c.calls.increment();
+        c.latencyNanos.add(latencyNanos);
+        c.maxLatencyNanos.accumulate(latencyNanos);
+        if (usage != null) {
+            if (usage.inputTokenCount() != null) c.inputTokens.add(usage.inputTokenCount());
+            if (usage.outputTokenCount() != null) c.outputTokens.add(usage.outputTokenCount());
+        }
+    }
+
+    public void recordError(Phase phase, long latencyNanos) {
+        Counters c = counters.get(phase);
+        c.errors.increment();
+        c.latencyNanos.add(latencyNanos);
+        c.maxLatencyNanos.accumulate(latencyNanos);
+    }
+
+    /**
+     * Tokens of the assembled prompt, counted locally before the call.
+     */
+    public void recordPromptTokens(Phase phase, int tokens) {
+        Counters c = counters.get(phase);
+        c.prompts.increment();
+        c.promptTokens.add(tokens);
+        c.maxPromptTokens.accumulate(tokens);
+    }
+
+    public PhaseStats snapshot(Phase phase) {
+        Counters c = counters.get(phase);
+        long calls = c.calls.sum();
+        long errors = c.errors.sum();
+        long total = calls + errors;
+        long prompts = c.prompts.sum();
+        return new PhaseStats(
+                phase,
+                calls,
+                errors,
+                total == 0 ? 0 : c.latencyNanos.sum() / total / 1_000_000.0,
+                c.maxLatencyNanos.get() / 1_000_000.0,
+                c.inputTokens.sum(),
+                c.outputTokens.sum(),
+                prompts == 0 ? 0 : c.promptTokens.sum() / (double) prompts,
+                c.maxPromptTokens.get());
+    }
+
+    public Map<Phase, PhaseStats> snapshot() {
+        Map<Phase, PhaseStats> result = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            result.put(phase, snapshot(phase));
+        }
+        return result;
+    }
+
+    public record PhaseStats(Phase phase, long calls, long errors, double meanLatencyMillis,
+                             double maxLatencyMillis, long inputTokens, long outputTokens,
+                             double meanPromptTokens, long maxPromptTokens) {
+    }
+
+    private static class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder latencyNanos = new LongAdder();
+        final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder inputTokens = new LongAdder();
+        final LongAdder outputTokens = new LongAdder();
+        final LongAdder prompts = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAccumulator maxPromptTokens = new LongAccumulator(Math::max, 0);
+    }
+}
@@ -0,0 +1,315 @@
+package agent.model;
+
+import agent.Phase;
+
+import java.net.http.HttpTimeoutException;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD concurrency limiter for model calls.
+ *
+ * The in-flight limit grows by one per round trip while calls come back fast, and
+ * shrinks multiplicatively (at most once per round trip) when a call is rejected
+ * (429, timeout) or takes longer than {@code latencyTolerance} times the best recent
+ * latency of its phase: a REFLECT call over a long history is naturally slower than
+ * an ACT call, so each phase is judged against its own baseline. Calls over the limit
+ * wait in a queue ordered by phase priority.
+ * One limiter can be shared by several agents talking to the same backend.
+ */
+public class ConcurrencyLimiter {
+    private static final int RTT_WINDOW_SAMPLES = 1000;
+    private static final double QUEUE_DELAY_ALPHA = 0.1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparingInt((Waiter w) -> w.priority).thenComparingLong(w -> w.sequence));
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    // Guarded by lock
+    private double limit;
+    private int inFlight;
+    private long sequence;
+    private final Map<Phase, RttBaseline> baselines = new EnumMap<>(Phase.class);
+    private long lastDecreaseNanos;
+    private double queueDelayNanos;
+    private long lastQueueDelayNanos;
+
+    private ConcurrencyLimiter(Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+    }
+
+    /**
+     * Wait for a slot. The returned permit must be completed exactly once.
+     */
+    public Permit acquire(Phase phase) throws InterruptedException {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < currentLimit()) {
+                inFlight++;
+                recordQueueDelay(0);
+                return new Permit(phase);
+            }
+            Waiter waiter = new Waiter(phase.priority(), sequence++, lock.newCondition());
+            waiters.add(waiter);
+            try {
+                while (!waiter.granted) {
+                    waiter.condition.await();
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    inFlight--;
+                    grantWaiters();
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw e;
+            }
+            recordQueueDelay(System.nanoTime() - waiter.enqueuedAt);
+            return new Permit(phase);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Exponentially weighted average time calls spent waiting for a slot.
+     */
+    public double averageQueueDelayMillis() {
+        lock.lock();
+        try {
+            return queueDelayNanos / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double lastQueueDelayMillis() {
+        lock.lock();
+        try {
+            return lastQueueDelayNanos / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True when a failure signals backend overload rather than a bad request.
+     */
+    public static boolean isOverload(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException || t instanceof HttpTimeoutException) return true;
+            if (t.getClass().getSimpleName().contains("RateLimit")) return true;
+            String message = t.getMessage();
+            if (message != null) {
+                String lower = message.toLowerCase(Locale.ROOT);
+                if (lower.contains("429") || lower.contains("rate limit") || lower.contains("too many requests")) return true;
+            }
+        }
+        return false;
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    private void release(Phase phase, long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.nanoTime();
+            if (rttNanos > 0) {
+                long baseline = baselines.computeIfAbsent(phase, p -> new RttBaseline()).add(rttNanos);
+                if (rttNanos > latencyTolerance * baseline) dropped = true;
+            }
+            if (dropped) {
+                // One decrease per round trip; before the first success every drop counts
+                long fastest = Long.MAX_VALUE;
+                for (RttBaseline baseline : baselines.values()) fastest = Math.min(fastest, baseline.min());
+                long window = fastest == Long.MAX_VALUE ? 0 : Math.min(fastest, 1_000_000_000L);
+                if (now - lastDecreaseNanos > window) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (rttNanos > 0) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            grantWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grantWaiters() {
+        while (!waiters.isEmpty() && inFlight < currentLimit()) {
+            Waiter next = waiters.poll();
+            next.granted = true;
+            inFlight++;
+            next.condition.signal();
+        }
+    }
+
+    private void recordQueueDelay(long delayNanos) {
+        lastQueueDelayNanos = delayNanos;
+        queueDelayNanos += QUEUE_DELAY_ALPHA * (delayNanos - queueDelayNanos);
+    }
+
+    /**
+     * A granted slot; report how the call went to release it.
+     */
+    public class Permit {
+        private final Phase phase;
+        private boolean done;
+
+        private Permit(Phase phase) {
+            this.phase = phase;
+        }
+
+        public void success(long rttNanos) {
+            complete(rttNanos, false);
+        }
+
+        public void dropped() {
+            complete(0, true);
+        }
+
+        /**
+         * Release without touching the limit (e.g. the call failed for unrelated reasons).
+         */
+        public void ignore() {
+            complete(0, false);
+        }
+
+        private synchronized void complete(long rttNanos, boolean dropped) {
+            if (done) return;
+            done = true;
+            release(phase, rttNanos, dropped);
+        }
+    }
+
+    /**
+     * Best latency of one phase over the current and the previous window of samples, so
+     * the baseline follows backend changes without ever resting on a single sample.
+     */
+    private static class RttBaseline {
+        private long current = Long.MAX_VALUE;
+        private long previous = Long.MAX_VALUE;
+        private int samples;
+
+        long add(long rttNanos) {
+            current = Math.min(current, rttNanos);
+            long min = min();
+            if (++samples >= RTT_WINDOW_SAMPLES) {
+                previous = current;
+                current = Long.MAX_VALUE;
+                samples = 0;
+            }
+            return min;
+        }
+
+        long min() {
+            return Math.min(current, previous);
+        }
+    }
+
+    private static class Waiter {
+        final int priority;
+        final long sequence;
+        final Condition condition;
+        final long enqueuedAt = System.nanoTime();
+        boolean granted;
+
+        Waiter(int priority, long sequence, Condition condition) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+
+    public static class Builder {
+        private int initialLimit = 4;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        private double backoffRatio = 0.9;
+        private double latencyTolerance = 2.0;
+
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder minLimit(int minLimit) {
+            if (minLimit < 1) throw new IllegalArgumentException("minLimit must be positive");
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Multiplier applied to the limit on overload, in (0, 1).
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) throw new IllegalArgumentException("backoffRatio must be in (0, 1)");
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * A call slower than this multiple of the best recent latency of its phase counts as overload.
+         */
+        public Builder latencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        public ConcurrencyLimiter build() {
+            if (maxLimit < minLimit) throw new IllegalArgumentException("maxLimit must be >= minLimit");
+            return new ConcurrencyLimiter(this);
+        }
+    }
+}
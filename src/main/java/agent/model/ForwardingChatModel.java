@@ -0,0 +1,38 @@
+package agent.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+
+import java.util.Set;
+
+/**
+ * Base for model decorators: forwards everything but the call itself to the wrapped model.
+ */
+public abstract class ForwardingChatModel implements ChatModel {
+    protected final ChatModel delegate;
+
+    protected ForwardingChatModel(ChatModel delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    public ChatModel delegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,230 @@
+package agent.model;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedged requests: when the primary has not answered within the configured percentile
+ * of its recent latencies, the same request is sent to the secondary. The first
+ * successful response wins and the other call is cancelled.
+ *
+ * Both calls run on the supplied executor; without one the model creates its own pool,
+ * released by {@link #close()}.
+ */
+public class HedgingChatModel extends ForwardingChatModel implements AutoCloseable {
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final ChatModel secondary;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private final LatencyWindow primaryLatencies;
+    private final LatencyWindow callLatencies;
+    private volatile long hedgeDelayNanos;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong secondaryWins = new AtomicLong();
+
+    private HedgingChatModel(Builder builder) {
+        super(builder.primary);
+        this.secondary = builder.secondary;
+        this.percentile = builder.percentile;
+        this.minDelayNanos = builder.minDelay.toNanos();
+        this.hedgeDelayNanos = builder.initialDelay.toNanos();
+        this.ownsExecutor = builder.executor == null;
+        this.executor = !ownsExecutor ? builder.executor : Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "hedged-model-call");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.primaryLatencies = new LatencyWindow(builder.windowSize);
+        this.callLatencies = new LatencyWindow(builder.windowSize);
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        calls.incrementAndGet();
+        long start = System.nanoTime();
+        CompletionService<ChatResponse> completion = new ExecutorCompletionService<>(executor);
+        Future<ChatResponse> primaryCall = completion.submit(() -> delegate.chat(chatRequest));
+        Future<ChatResponse> secondaryCall = null;
+        try {
+            Future<ChatResponse> done = completion.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                hedges.incrementAndGet();
+                secondaryCall = completion.submit(() -> secondary.chat(chatRequest));
+            }
+            int outstanding = secondaryCall == null ? 1 : 2;
+            RuntimeException failure = null;
+            while (outstanding > 0) {
+                if (done == null) done = completion.take();
+                outstanding--;
+                try {
+                    ChatResponse response = done.get();
+                    if (done == primaryCall) {
+                        recordPrimary(System.nanoTime() - start);
+                    } else {
+                        secondaryWins.incrementAndGet();
+                    }
+                    callLatencies.add(System.nanoTime() - start);
+                    return response;
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+                    // A fast failure of the primary is hedged immediately
+                    if (done == primaryCall && secondaryCall == null) {
+                        hedges.incrementAndGet();
+                        secondaryCall = completion.submit(() -> secondary.chat(chatRequest));
+                        outstanding++;
+                    }
+                    done = null;
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a model response", e);
+        } finally {
+            if (!primaryCall.isDone()) {
+                // Lower bound of the primary latency, keeps the percentile from drifting down
+                recordPrimary(System.nanoTime() - start);
+            }
+            primaryCall.cancel(true);
+            if (secondaryCall != null) secondaryCall.cancel(true);
+        }
+    }
+
+    /**
+     * Shut down the pool this model created; a supplied executor is left to its owner.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) executor.shutdownNow();
+    }
+
+    public ChatModel secondary() {
+        return secondary;
+    }
+
+    public HedgeStats stats() {
+        long total = calls.get();
+        long hedged = hedges.get();
+        return new HedgeStats(
+                total,
+                hedged,
+                secondaryWins.get(),
+                total == 0 ? 0 : (double) hedged / total,
+                hedgeDelayNanos / 1_000_000.0,
+                callLatencies.percentile(0.50) / 1_000_000.0,
+                callLatencies.percentile(0.99) / 1_000_000.0);
+    }
+
+    private void recordPrimary(long nanos) {
+        if (primaryLatencies.add(nanos) % RECOMPUTE_EVERY == 0) {
+            hedgeDelayNanos = Math.max(minDelayNanos, primaryLatencies.percentile(percentile));
+        }
+    }
+
+    /**
+     * Hedging counters and end-to-end latency percentiles over the recent window.
+     */
+    public record HedgeStats(long calls, long hedges, long secondaryWins, double hedgeRate,
+                             double hedgeDelayMillis, double p50Millis, double p99Millis) {}
+
+    /**
+     * Fixed-size ring of the most recent latencies.
+     */
+    private static class LatencyWindow {
+        private final long[] samples;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized int add(long nanos) {
+            int n = count.getAndIncrement();
+            samples[n % samples.length] = nanos;
+            return n + 1;
+        }
+
+        synchronized long percentile(double p) {
+            int size = Math.min(count.get(), samples.length);
+            if (size == 0) return 0;
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, rank))];
+        }
+    }
+
+    public static class Builder {
+        private ChatModel primary;
+        private ChatModel secondary;
+        private double percentile = 0.95;
+        private Duration initialDelay = Duration.ofSeconds(2);
+        private Duration minDelay = Duration.ofMillis(1);
+        private int windowSize = 256;
+        private ExecutorService executor;
+
+        public Builder primary(ChatModel primary) {
+            this.primary = primary;
+            return this;
+        }
+
+        public Builder secondary(ChatModel secondary) {
+            this.secondary = secondary;
+            return this;
+        }
+
+        /**
+         * Percentile (0..1) of recent primary latencies after which the hedge is sent.
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile >= 1) throw new IllegalArgumentException("percentile must be in (0, 1)");
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Hedge delay used until enough primary latencies have been observed.
+         */
+        public Builder initialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+            return this;
+        }
+
+        public Builder minDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public Builder windowSize(int windowSize) {
+            if (windowSize < RECOMPUTE_EVERY) throw new IllegalArgumentException("windowSize must be at least " + RECOMPUTE_EVERY);
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Runs the primary and hedge calls; share one between models and shut it down yourself.
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public HedgingChatModel build() {
+            if (primary == null || secondary == null) throw new IllegalStateException("primary and secondary are required");
+            return new HedgingChatModel(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package agent.model;
+
+import agent.Phase;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Runs every call through a {@link ConcurrencyLimiter}, queued with the phase priority,
+ * and feeds the observed latency or overload back into it.
+ */
+public class LimitedChatModel extends ForwardingChatModel {
+    private final Phase phase;
+    private final ConcurrencyLimiter limiter;
+
+    public LimitedChatModel(Phase phase, ChatModel delegate, ConcurrencyLimiter limiter) {
+        super(delegate);
+        this.phase = phase;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        ConcurrencyLimiter.Permit permit;
+        try {
+            permit = limiter.acquire(phase);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a model slot", e);
+        }
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = delegate.chat(chatRequest);
+            permit.success(System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            if (ConcurrencyLimiter.isOverload(e)) permit.dropped();
+            else permit.ignore();
+            throw e;
+        }
+    }
+}
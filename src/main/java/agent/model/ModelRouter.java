@@ -0,0 +1,32 @@
+package agent.model;
+
+import agent.Phase;
+import dev.langchain4j.model.chat.ChatModel;
+
+/**
+ * Chooses the model for a single phase call. Returning null falls back to the
+ * model configured for that phase.
+ */
+@FunctionalInterface
+public interface ModelRouter {
+
+    ChatModel route(Phase phase, String goal, int promptChars);
+
+    /**
+     * Small prompts go to {@code small}, anything above {@code maxChars} to {@code large}.
+     */
+    static ModelRouter byPromptSize(int maxChars, ChatModel small, ChatModel large) {
+        return (phase, goal, promptChars) -> promptChars <= maxChars ? small : large;
+    }
+
+    /**
+     * Goals longer than {@code maxGoalChars} or listing several steps go to {@code complex}.
+     */
+    static ModelRouter byGoalComplexity(int maxGoalChars, ChatModel simple, ChatModel complex) {
+        return (phase, goal, promptChars) -> {
+            if (goal == null) return simple;
+            long clauses = goal.split("(?i)\\bthen\\b|\\balso\\b|\\band\\b|[.;]").length;
+            return goal.length() > maxGoalChars || clauses > 2 ? complex : simple;
+        };
+    }
+}
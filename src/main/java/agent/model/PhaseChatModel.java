@@ -0,0 +1,38 @@
+package agent.model;
+
+import agent.Phase;
+import agent.metrics.PhaseMetrics;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Binds a model to the phase it serves and records latency and token usage of every call.
+ */
+public class PhaseChatModel extends ForwardingChatModel {
+    private final Phase phase;
+    private final PhaseMetrics metrics;
+
+    public PhaseChatModel(Phase phase, ChatModel delegate, PhaseMetrics metrics) {
+        super(delegate);
+        this.phase = phase;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = delegate.chat(chatRequest);
+            metrics.record(phase, System.nanoTime() - start, response.tokenUsage());
+            return response;
+        } catch (RuntimeException e) {
+            metrics.recordError(phase, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+}
@@ -0,0 +1,37 @@
+package agent.model;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Asks the backend for native JSON-schema structured output, so phase responses come
+ * back as bare JSON instead of fenced or chatty text.
+ */
+public class StructuredOutputChatModel extends ForwardingChatModel {
+    private final ResponseFormat responseFormat;
+
+    public StructuredOutputChatModel(ChatModel delegate, JsonSchema schema) {
+        super(delegate);
+        this.responseFormat = ResponseFormat.builder()
+                .type(ResponseFormatType.JSON)
+                .jsonSchema(schema)
+                .build();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        ChatRequestParameters format = ChatRequestParameters.builder().responseFormat(responseFormat).build();
+        ChatRequestParameters parameters = chatRequest.parameters() == null
+                ? format
+                : chatRequest.parameters().overrideWith(format);
+        return delegate.chat(ChatRequest.builder()
+                .messages(chatRequest.messages())
+                .parameters(parameters)
+                .build());
+    }
+}
@@ -0,0 +1,93 @@
+package agent.recording;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binary layout of a trace file:
+ * <pre>
+ * header : "AGTR" | version (1) | start epoch millis (8)
+ * record : kind (1) | micros since previous record (varlong) | body
+ *   START : uuid | has parent (1) [| parent uuid] | goal | topic count (varint) | topics
+ *   PHASE : uuid | phase ordinal (1) | duration micros (varlong) | response
+ *   EVENT : json
+ * </pre>
+ * Ids are a tag byte and either 16 UUID bytes or a string; strings are a varint length
+ * and UTF-8 bytes.
+ */
+final class TraceFormat {
+    static final int MAGIC = 0x41475452;
+    static final int VERSION = 1;
+
+    static final int START = 1;
+    static final int PHASE = 2;
+    static final int EVENT = 3;
+
+    private static final int UUID_ID = 0;
+    private static final int TEXT_ID = 1;
+
+    private TraceFormat() {}
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeId(DataOutput out, String id) throws IOException {
+        UUID uuid = parseUuid(id);
+        if (uuid == null) {
+            out.writeByte(TEXT_ID);
+            writeString(out, id);
+            return;
+        }
+        out.writeByte(UUID_ID);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    static String readId(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        if (tag == TEXT_ID) return readString(in);
+        if (tag != UUID_ID) throw new IOException("Unknown id tag " + tag);
+        return new UUID(in.readLong(), in.readLong()).toString();
+    }
+
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            // Only lower-case canonical ids survive the round trip unchanged
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
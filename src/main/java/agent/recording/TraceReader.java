@@ -0,0 +1,65 @@
+package agent.recording;
+
+import agent.Phase;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static agent.recording.TraceFormat.*;
+
+/**
+ * Reads a trace written by {@link TraceWriter}. A record cut short at the end of the
+ * file (a crashed recording) is dropped.
+ */
+public final class TraceReader {
+
+    private TraceReader() {}
+
+    public static List<TraceRecord> read(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file)) {
+            return read(stream);
+        }
+    }
+
+    public static List<TraceRecord> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != MAGIC) throw new IOException("Not an agent trace");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported trace version " + version);
+        in.readLong(); // start epoch millis
+
+        Phase[] phases = Phase.values();
+        List<TraceRecord> records = new ArrayList<>();
+        long micros = 0;
+        while (true) {
+            int kind = in.read();
+            if (kind < 0) return records;
+            try {
+                micros += readVarLong(in);
+                records.add(switch (kind) {
+                    case START -> {
+                        String uuid = readId(in);
+                        String parent = in.readBoolean() ? readId(in) : null;
+                        String goal = readString(in);
+                        int count = (int) readVarLong(in);
+                        List<String> topics = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) topics.add(readString(in));
+                        yield new TraceRecord.Start(micros, uuid, parent, goal, List.copyOf(topics));
+                    }
+                    case PHASE -> new TraceRecord.PhaseCall(micros, readId(in), phases[in.readUnsignedByte()], readVarLong(in), readString(in));
+                    case EVENT -> new TraceRecord.Event(micros, readString(in));
+                    default -> throw new IOException("Unknown record kind " + kind);
+                });
+            } catch (EOFException truncated) {
+                return records;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package agent.recording;
+
+import agent.Phase;
+
+import java.util.List;
+
+/**
+ * One entry of a recorded run. {@code offsetMicros} is the time since recording started.
+ */
+public sealed interface TraceRecord {
+
+    long offsetMicros();
+
+    /**
+     * An activity entered the agent: a request ({@code parentUuid} null) or a forked child.
+     */
+    record Start(long offsetMicros, String uuid, String parentUuid, String goal, List<String> topics) implements TraceRecord {}
+
+    /**
+     * A brain call and the text it returned; {@code offsetMicros} is taken when it returned.
+     */
+    record PhaseCall(long offsetMicros, String uuid, Phase phase, long durationMicros, String response) implements TraceRecord {}
+
+    /**
+     * A raw SSE message as it reached the agent.
+     */
+    record Event(long offsetMicros, String json) implements TraceRecord {}
+}
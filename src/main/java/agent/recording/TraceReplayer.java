@@ -0,0 +1,250 @@
+package agent.recording;
+
+import agent.Phase;
+import agent.activity.Activity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives an agent from a recorded trace instead of a model and an MCP server.
+ *
+ * Brain calls are answered with the recorded responses of the matching activity, and
+ * requests and SSE messages are fed back in trace order. An input is only delivered once
+ * every brain call recorded before it has been answered, so the replayed loop sees the
+ * same interleaving as the original run. In real-time mode inputs also wait for their
+ * original offset and answers take their original latency; otherwise the trace runs as
+ * fast as the loop can go.
+ *
+ * Activity uuids differ between runs: they are mapped as activities start and rewritten
+ * in every replayed message and response.
+ */
+public class TraceReplayer {
+    private static final Logger logger = LoggerFactory.getLogger(TraceReplayer.class);
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final List<TraceRecord> records;
+    private final boolean realTime;
+    private final long stallTimeoutNanos;
+
+    private final Map<String, Deque<TraceRecord.PhaseCall>> responses = new HashMap<>();
+    private final Map<String, Deque<String>> children = new HashMap<>();
+    private final Map<String, String> toRecorded = new ConcurrentHashMap<>();
+    private final Map<String, String> toLive = new ConcurrentHashMap<>();
+
+    private final List<CompletableFuture<Activity>> started = new ArrayList<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private long answered;
+    private long startNanos;
+    private volatile Thread feeder;
+
+    private TraceReplayer(Builder builder) {
+        this.records = List.copyOf(builder.records);
+        this.realTime = builder.realTime;
+        this.stallTimeoutNanos = builder.stallTimeout.toNanos();
+        for (TraceRecord record : records) {
+            if (record instanceof TraceRecord.PhaseCall call) {
+                responses.computeIfAbsent(call.uuid(), uuid -> new ArrayDeque<>()).add(call);
+            } else if (record instanceof TraceRecord.Start start && start.parentUuid() != null) {
+                children.computeIfAbsent(childKey(start.parentUuid(), start.goal()), key -> new ArrayDeque<>()).add(start.uuid());
+            }
+        }
+    }
+
+    /**
+     * Start feeding requests (through {@code submitter}, which must return the queued
+     * activity) and SSE messages (through {@code events}) on a background thread.
+     */
+    public synchronized void start(Function<TraceRecord.Start, Activity> submitter, Consumer<String> events) {
+        if (feeder != null) throw new IllegalStateException("replay already started");
+        startNanos = System.nanoTime();
+        feeder = new Thread(() -> feed(submitter, events), "trace-replay");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    public void stop() {
+        Thread thread = feeder;
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Completes once every recorded input was delivered and every replayed request finished.
+     */
+    public CompletableFuture<Void> done() {
+        return done;
+    }
+
+    /**
+     * The recorded answer to the next brain call of {@code activity} in {@code phase},
+     * or "" when the replayed run diverged from the trace.
+     */
+    public String respond(Activity activity, Phase phase) {
+        String recorded = recordedUuid(activity);
+        if (recorded == null) {
+            logger.warn("⚠️ Activity {} is not in the trace, answering {} with nothing", activity.getUuid(), phase);
+            return "";
+        }
+        TraceRecord.PhaseCall call;
+        synchronized (this) {
+            Deque<TraceRecord.PhaseCall> queue = responses.getOrDefault(recorded, new ArrayDeque<>());
+            while ((call = queue.poll()) != null && call.phase() != phase) {
+                logger.warn("⚠️ Replay diverged for {}: recorded {}, asked for {}", activity.getUuid(), call.phase(), phase);
+                answered++;
+            }
+        }
+        if (call == null) {
+            logger.warn("⚠️ Trace has no more {} answers for {}", phase, activity.getUuid());
+            return "";
+        }
+        if (realTime) sleep(TimeUnit.MICROSECONDS.toNanos(call.durationMicros()));
+        synchronized (this) {
+            answered++;
+            notifyAll();
+        }
+        return rewrite(call.response());
+    }
+
+    private void feed(Function<TraceRecord.Start, Activity> submitter, Consumer<String> events) {
+        long before = 0;
+        try {
+            for (TraceRecord record : records) {
+                if (record instanceof TraceRecord.PhaseCall) {
+                    before++;
+                    continue;
+                }
+                if (record instanceof TraceRecord.Start start && start.parentUuid() != null) continue; // the agent forks it
+                awaitTurn(before, record.offsetMicros());
+                if (record instanceof TraceRecord.Start start) {
+                    Activity activity = submitter.apply(start);
+                    if (activity == null) continue;
+                    map(activity.getUuid(), start.uuid());
+                    started.add(activity.completion());
+                } else if (record instanceof TraceRecord.Event event) {
+                    events.accept(rewrite(event.json()));
+                }
+            }
+            logger.info("⏯️ Trace fed: {} records, {} activities", records.size(), started.size());
+            CompletableFuture.allOf(started.toArray(CompletableFuture[]::new))
+                    .whenComplete((ok, error) -> done.complete(null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done.cancel(false);
+        }
+    }
+
+    /**
+     * Wait until {@code answers} brain calls were answered (or the loop stalls) and, in
+     * real-time mode, until the record's original offset.
+     */
+    private void awaitTurn(long answers, long offsetMicros) throws InterruptedException {
+        synchronized (this) {
+            long deadline = System.nanoTime() + stallTimeoutNanos;
+            while (answered < answers) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    logger.warn("⚠️ Replay stalled waiting for {} answers (have {}), delivering anyway", answers, answered);
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+        if (realTime) {
+            long wait = startNanos + TimeUnit.MICROSECONDS.toNanos(offsetMicros) - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private String recordedUuid(Activity activity) {
+        String recorded = toRecorded.get(activity.getUuid());
+        if (recorded != null || activity.getParent() == null) return recorded;
+        // A forked child: claim the next recorded child of the same parent and goal
+        String parent = toRecorded.get(activity.getParent().getUuid());
+        if (parent == null) return null;
+        synchronized (this) {
+            Deque<String> candidates = children.get(childKey(parent, activity.getGoal()));
+            recorded = candidates == null ? null : candidates.poll();
+        }
+        if (recorded != null) map(activity.getUuid(), recorded);
+        return recorded;
+    }
+
+    private void map(String live, String recorded) {
+        toRecorded.put(live, recorded);
+        toLive.put(recorded, live);
+    }
+
+    private String rewrite(String text) {
+        if (text == null || text.isEmpty()) return text;
+        Matcher matcher = UUID_PATTERN.matcher(text);
+        StringBuilder out = null;
+        while (matcher.find()) {
+            String live = toLive.get(matcher.group());
+            if (live == null) continue;
+            if (out == null) out = new StringBuilder(text.length());
+            matcher.appendReplacement(out, live);
+        }
+        if (out == null) return text;
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    private static String childKey(String parentUuid, String goal) {
+        return parentUuid + '\n' + goal;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Builder {
+        private final List<TraceRecord> records = new ArrayList<>();
+        private boolean realTime;
+        private Duration stallTimeout = Duration.ofSeconds(5);
+
+        public Builder trace(Path file) throws IOException {
+            this.records.addAll(TraceReader.read(file));
+            return this;
+        }
+
+        public Builder records(List<TraceRecord> records) {
+            this.records.addAll(records);
+            return this;
+        }
+
+        /**
+         * Keep the original timing of inputs and brain latencies instead of running flat out.
+         */
+        public Builder realTime(boolean realTime) {
+            this.realTime = realTime;
+            return this;
+        }
+
+        /**
+         * How long an input waits for earlier brain calls before it is delivered anyway.
+         */
+        public Builder stallTimeout(Duration stallTimeout) {
+            this.stallTimeout = stallTimeout;
+            return this;
+        }
+
+        public TraceReplayer build() {
+            return new TraceReplayer(this);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package agent.recording;
+
+import agent.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static agent.recording.TraceFormat.*;
+
+/**
+ * Appends the inputs of a live run (requests, forks, brain responses and SSE messages)
+ * to a binary trace that {@link TraceReplayer} can feed back into an agent.
+ *
+ * Called from the event loop and the SSE thread. A write failure is logged once and
+ * stops the recording; it never reaches the agent.
+ */
+public class TraceWriter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TraceWriter.class);
+
+    private final DataOutputStream out;
+    private final long startNanos = System.nanoTime();
+    private long lastMicros;
+    private boolean failed;
+
+    public TraceWriter(Path file) throws IOException {
+        this(Files.newOutputStream(file));
+    }
+
+    public TraceWriter(OutputStream stream) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(System.currentTimeMillis());
+    }
+
+    public synchronized void start(String uuid, String parentUuid, String goal, Collection<String> topics) {
+        if (!begin(START)) return;
+        try {
+            writeId(out, uuid);
+            out.writeBoolean(parentUuid != null);
+            if (parentUuid != null) writeId(out, parentUuid);
+            writeString(out, goal);
+            writeVarLong(out, topics.size());
+            for (String topic : topics) writeString(out, topic);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void phase(String uuid, Phase phase, long durationNanos, String response) {
+        if (!begin(PHASE)) return;
+        try {
+            writeId(out, uuid);
+            out.writeByte(phase.ordinal());
+            writeVarLong(out, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+            writeString(out, response);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void event(String json) {
+        if (!begin(EVENT)) return;
+        try {
+            writeString(out, json);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void flush() {
+        if (failed) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private boolean begin(int kind) {
+        if (failed) return false;
+        // Offsets are monotonic even if writers on two threads race for the lock
+        long micros = Math.max(lastMicros, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        try {
+            out.writeByte(kind);
+            writeVarLong(out, micros - lastMicros);
+            lastMicros = micros;
+            return true;
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        logger.error("❌ Trace recording stopped", e);
+    }
+}
@@ -0,0 +1,141 @@
+package agent.replay;
+
+import agent.memory.EpisodicMemory;
+import agent.memory.ToolStep;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.*;
+
+/**
+ * Turns recorded tool calls into reusable procedures and binds them to new goals.
+ *
+ * Binding is deliberately conservative: the new goal must have the same shape as the
+ * recorded one, and every word that differs must map onto a tool argument literal
+ * (e.g. "2 seconds called alpha" to "5 seconds called beta") that is not part of the
+ * generalized procedure text. Anything else returns
+ * null and the activity goes through the normal LLM loop.
+ */
+public final class ProcedureBinder {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ProcedureBinder() {
+    }
+
+    /**
+     * Replace the recording activity's id in the arguments with {@link ToolStep#ACTIVITY_UUID}.
+     */
+    public static List<ToolStep> generalize(List<ToolStep> trace, String activityUuid) {
+        List<ToolStep> steps = new ArrayList<>();
+        for (ToolStep step : trace) {
+            String arguments = step.arguments() == null ? "{}" : step.arguments().replace(activityUuid, ToolStep.ACTIVITY_UUID);
+            steps.add(new ToolStep(step.toolName(), arguments, step.expectedEvents()));
+        }
+        return steps;
+    }
+
+    /**
+     * Bind a stored procedure to a new goal, or return null when it cannot be done safely.
+     */
+    public static ReplayPlan bind(EpisodicMemory memory, String goal, String activityUuid) {
+        if (memory == null || memory.getToolSteps().isEmpty() || goal == null) return null;
+
+        List<String> recorded = tokens(memory.getOriginalGoal());
+        List<String> requested = tokens(goal);
+        if (recorded.size() != requested.size()) return null;
+
+        // Words of the generalized procedure describe what to do, not parameters
+        Set<String> structural = new HashSet<>();
+        memory.getSuccessfulProcedure().forEach(line -> tokens(line).forEach(t -> structural.add(t.toLowerCase(Locale.ROOT))));
+
+        Map<String, String> substitutions = new HashMap<>();
+        for (int i = 0; i < recorded.size(); i++) {
+            String from = recorded.get(i);
+            String to = requested.get(i);
+            if (equivalent(from, to)) continue;
+            if (structural.contains(from.toLowerCase(Locale.ROOT))) return null;
+            String previous = substitutions.putIfAbsent(from, to);
+            if (previous != null && !previous.equals(to)) return null;
+        }
+
+        Set<String> used = new HashSet<>();
+        List<ToolStep> bound = new ArrayList<>();
+        try {
+            for (ToolStep step : memory.getToolSteps()) {
+                JsonNode arguments = MAPPER.readTree(step.arguments());
+                JsonNode replaced = substitute(arguments, substitutions, used, activityUuid);
+                if (replaced == null) return null;
+                bound.add(new ToolStep(step.toolName(), MAPPER.writeValueAsString(replaced), step.expectedEvents()));
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        // A difference in the goal that no argument carries would be silently ignored
+        if (!used.containsAll(substitutions.keySet())) return null;
+
+        return new ReplayPlan(memory.getOriginalGoal(), bound, memory.getSuccessfulProcedure());
+    }
+
+    private static JsonNode substitute(JsonNode node, Map<String, String> substitutions, Set<String> used, String activityUuid) {
+        if (node.isObject()) {
+            ObjectNode copy = MAPPER.createObjectNode();
+            for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = it.next();
+                JsonNode value = substitute(field.getValue(), substitutions, used, activityUuid);
+                if (value == null) return null;
+                copy.set(field.getKey(), value);
+            }
+            return copy;
+        }
+        if (node.isArray()) {
+            ArrayNode copy = MAPPER.createArrayNode();
+            for (JsonNode element : node) {
+                JsonNode value = substitute(element, substitutions, used, activityUuid);
+                if (value == null) return null;
+                copy.add(value);
+            }
+            return copy;
+        }
+        if (node.isTextual()) {
+            String text = node.asText();
+            if (text.equals(ToolStep.ACTIVITY_UUID)) return TextNode.valueOf(activityUuid);
+            String replacement = substitutions.get(text);
+            if (replacement == null) return node;
+            used.add(text);
+            return TextNode.valueOf(replacement);
+        }
+        if (node.isNumber()) {
+            String replacement = substitutions.get(node.asText());
+            if (replacement == null) return node;
+            used.add(node.asText());
+            try {
+                return node.isIntegralNumber() ? LongNode.valueOf(Long.parseLong(replacement)) : DoubleNode.valueOf(Double.parseDouble(replacement));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String raw : text.trim().split("\\s+")) {
+            String token = raw.replaceAll("^[\"'(,.;:!?]+|[\"'),.;:!?]+$", "");
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static boolean equivalent(String a, String b) {
+        if (a.equalsIgnoreCase(b)) return true;
+        // "second" / "seconds" do not change what the tools are called with
+        String x = a.toLowerCase(Locale.ROOT);
+        String y = b.toLowerCase(Locale.ROOT);
+        return !x.matches(".*\\d.*") && (x.equals(y + "s") || y.equals(x + "s"));
+    }
+}
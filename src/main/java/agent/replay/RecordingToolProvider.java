@@ -0,0 +1,67 @@
+package agent.replay;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Wraps a tool provider so every tool execution is reported to a listener, and lets
+ * recorded calls be executed again without going through the model.
+ */
+public class RecordingToolProvider implements ToolProvider {
+    private final ToolProvider delegate;
+    private final Listener listener;
+
+    public RecordingToolProvider(ToolProvider delegate, BiConsumer<ToolExecutionRequest, String> listener) {
+        this(delegate, (Listener) (request, result, startNanos) -> listener.accept(request, result));
+    }
+
+    public RecordingToolProvider(ToolProvider delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public ToolProviderResult provideTools(ToolProviderRequest request) {
+        ToolProviderResult result = delegate.provideTools(request);
+        ToolProviderResult.Builder recorded = ToolProviderResult.builder();
+        result.tools().forEach((specification, executor) -> recorded.add(specification, (toolRequest, memoryId) -> {
+            long start = System.nanoTime();
+            String output = executor.execute(toolRequest, memoryId);
+            listener.executed(toolRequest, output, start);
+            return output;
+        }));
+        return recorded.build();
+    }
+
+    /**
+     * Told about every tool execution, with the {@link System#nanoTime()} it started at.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void executed(ToolExecutionRequest request, String result, long startNanos);
+    }
+
+    /**
+     * Execute a tool directly by name. Replayed calls are not reported to the listener.
+     */
+    public String execute(String toolName, String arguments, Object memoryId) {
+        ToolProviderResult result = delegate.provideTools(new ToolProviderRequest(memoryId, UserMessage.from(toolName)));
+        for (Map.Entry<ToolSpecification, ToolExecutor> entry : result.tools().entrySet()) {
+            if (entry.getKey().name().equals(toolName)) {
+                return entry.getValue().execute(ToolExecutionRequest.builder()
+                        .name(toolName)
+                        .arguments(arguments)
+                        .build(), memoryId);
+            }
+        }
+        throw new IllegalStateException("Tool not available: " + toolName);
+    }
+}
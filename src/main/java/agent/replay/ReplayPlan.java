@@ -0,0 +1,90 @@
+package agent.replay;
+
+import agent.memory.ToolStep;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A learned procedure bound to a new activity: tool calls run in order, each one
+ * waiting for the events it produced when the procedure was recorded.
+ */
+public class ReplayPlan {
+    private final String sourceGoal;
+    private final List<ToolStep> steps;
+    private final List<String> procedure;
+    private final List<String> pendingEvents = new ArrayList<>();
+    private int cursor;
+
+    public ReplayPlan(String sourceGoal, List<ToolStep> steps, List<String> procedure) {
+        this.sourceGoal = sourceGoal;
+        this.steps = List.copyOf(steps);
+        this.procedure = procedure == null ? List.of() : List.copyOf(procedure);
+    }
+
+    /**
+     * Match incoming event names against those the current step expects.
+     * Returns false when an event was not part of the recorded run.
+     */
+    public synchronized boolean acceptEvents(List<String> eventNames) {
+        for (String name : eventNames) {
+            if (!pendingEvents.remove(name)) return false;
+        }
+        return true;
+    }
+
+    public synchronized boolean awaitingEvents() {
+        return !pendingEvents.isEmpty();
+    }
+
+    public synchronized boolean hasNext() {
+        return cursor < steps.size();
+    }
+
+    /**
+     * Advance to the next step; its expected events become pending.
+     */
+    public synchronized ToolStep next() {
+        return next(null);
+    }
+
+    /**
+     * Advance to the next step, also waiting for {@code resultEvent} when the tool
+     * result itself is delivered as an event.
+     */
+    public synchronized ToolStep next(String resultEvent) {
+        ToolStep step = steps.get(cursor++);
+        pendingEvents.clear();
+        if (resultEvent != null) pendingEvents.add(resultEvent);
+        pendingEvents.addAll(step.expectedEvents());
+        return step;
+    }
+
+    public synchronized boolean finished() {
+        return cursor >= steps.size() && pendingEvents.isEmpty();
+    }
+
+    public synchronized int completedSteps() {
+        return cursor;
+    }
+
+    public List<ToolStep> steps() {
+        return steps;
+    }
+
+    public String sourceGoal() {
+        return sourceGoal;
+    }
+
+    /**
+     * Progress tracker in the format the observation phase writes, with every step checked.
+     */
+    public String completedProgress() {
+        List<String> items = procedure.isEmpty() ? steps.stream().map(ToolStep::toolName).toList() : procedure;
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            lines.add((i + 1) + " [x] " + items.get(i));
+        }
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,67 @@
+package agent.response;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decoded ACTION phase response. {@code toolNames} lists every call of a batch;
+ * {@code waitFor} is how many of their events are enough to observe (0: all).
+ */
+public record ActResult(String toolName, String summary, List<String> toolNames, int waitFor) {
+
+    public static final ActResult EMPTY = new ActResult(null, "", List.of(), 0);
+
+    private static final JsonSchema JSON_SCHEMA = JsonSchema.builder()
+            .name("ActResult")
+            .rootElement(JsonObjectSchema.builder()
+                    .addStringProperty("tool_name")
+                    .addProperty("tool_names", JsonArraySchema.builder().items(new JsonStringSchema()).build())
+                    .addIntegerProperty("wait_for")
+                    .addStringProperty("summary")
+                    .required("tool_name", "summary")
+                    .build())
+            .build();
+
+    @JsonCreator
+    static ActResult of(@JsonProperty("tool_name") String toolName,
+                        @JsonProperty("summary") String summary,
+                        @JsonProperty("tool_names") List<String> toolNames,
+                        @JsonProperty("wait_for") Integer waitFor) {
+        return new ActResult(toolName, summary == null ? "" : summary,
+                toolNames == null ? List.of() : toolNames.stream().filter(ActResult::isToolName).toList(),
+                waitFor == null ? 0 : waitFor);
+    }
+
+    /**
+     * True when the model reports having called a tool (models sometimes write "null" as text).
+     */
+    public boolean calledTool() {
+        return isToolName(toolName) || !toolNames.isEmpty();
+    }
+
+    /**
+     * Every call the model reports, in order.
+     */
+    public List<String> calls() {
+        if (!toolNames.isEmpty()) return toolNames;
+        return isToolName(toolName) ? List.of(toolName) : List.of();
+    }
+
+    private static boolean isToolName(String name) {
+        return name != null && !name.isBlank() && !name.toLowerCase(Locale.ROOT).equals("null");
+    }
+
+    /**
+     * Schema for models that support native structured output.
+     */
+    public static JsonSchema jsonSchema() {
+        return JSON_SCHEMA;
+    }
+}
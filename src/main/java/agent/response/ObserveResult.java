@@ -0,0 +1,89 @@
+package agent.response;
+
+import agent.activity.WakeCondition;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoded OBSERVATION phase response. {@code fork} lists independent sub-goals to run
+ * as child activities before continuing.
+ */
+public record ObserveResult(boolean completed, String summary, String newProgress, Map<String, JsonNode> updateVariables,
+                            List<WakeCondition> wakeOn, List<String> fork) {
+
+    public static final ObserveResult EMPTY = new ObserveResult(false, "", null, Map.of(), List.of(), List.of());
+
+    private static final JsonSchema JSON_SCHEMA = JsonSchema.builder()
+            .name("ObserveResult")
+            .rootElement(JsonObjectSchema.builder()
+                    .addBooleanProperty("completed")
+                    .addStringProperty("summary")
+                    .addStringProperty("new_progress")
+                    .addProperty("update_variables", JsonObjectSchema.builder().build())
+                    .addProperty("wake_on", JsonArraySchema.builder()
+                            .items(JsonObjectSchema.builder()
+                                    .addStringProperty("event")
+                                    .addStringProperty("belief")
+                                    .addStringProperty("equals")
+                                    .build())
+                            .build())
+                    .addProperty("fork", JsonArraySchema.builder().items(new JsonStringSchema()).build())
+                    .required("completed", "summary")
+                    .build())
+            .build();
+
+    @JsonCreator
+    static ObserveResult of(@JsonProperty("completed") JsonNode completed,
+                            @JsonProperty("summary") String summary,
+                            @JsonProperty("new_progress") JsonNode newProgress,
+                            @JsonProperty("update_variables") JsonNode updateVariables,
+                            @JsonProperty("result") JsonNode result,
+                            @JsonProperty("wake_on") JsonNode wakeOn,
+                            @JsonProperty("fork") JsonNode fork) {
+        // Some models nest the flag as {"result": {"completed": ...}}
+        JsonNode flag = completed != null ? completed : result != null ? result.get("completed") : null;
+
+        Map<String, JsonNode> updates = new LinkedHashMap<>();
+        if (updateVariables != null && updateVariables.isObject()) {
+            updateVariables.fields().forEachRemaining(entry -> updates.put(entry.getKey(), entry.getValue()));
+        }
+        List<WakeCondition> conditions = new ArrayList<>();
+        if (wakeOn != null) {
+            for (JsonNode entry : wakeOn.isArray() ? wakeOn : List.of(wakeOn)) {
+                WakeCondition condition = WakeCondition.fromJson(entry);
+                if (condition != null) conditions.add(condition);
+            }
+        }
+        // A malformed entry only costs that sub-goal, not the whole observation
+        List<String> subGoals = new ArrayList<>();
+        if (fork != null) {
+            for (JsonNode entry : fork.isArray() ? fork : List.of(fork)) {
+                if (entry.isTextual() && !entry.asText().isBlank()) subGoals.add(entry.asText());
+            }
+        }
+        return new ObserveResult(
+                flag != null && (flag.isTextual() ? Boolean.parseBoolean(flag.asText()) : flag.asBoolean(false)),
+                summary == null ? "" : summary,
+                newProgress == null || newProgress.isNull() ? null : newProgress.asText(),
+                updates,
+                conditions,
+                subGoals);
+    }
+
+    /**
+     * Schema for models that support native structured output.
+     */
+    public static JsonSchema jsonSchema() {
+        return JSON_SCHEMA;
+    }
+}
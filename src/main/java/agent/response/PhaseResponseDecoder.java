@@ -0,0 +1,59 @@
+package agent.response;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Decodes a phase response into its typed record in a single streaming pass.
+ *
+ * Models wrap JSON in markdown fences or chatter; the decoder starts the parser at the
+ * first '{' of the original string and stops after the first complete object, so
+ * nothing is trimmed or copied beforehand. When the chatter itself contains a brace
+ * ("use {x}") the parse fails there and is retried from the next '{'.
+ */
+public class PhaseResponseDecoder {
+    private static final int MAX_ATTEMPTS = 16;
+
+    private final ObjectMapper objectMapper;
+
+    public PhaseResponseDecoder() {
+        this.objectMapper = JsonMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+                .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS, JsonReadFeature.ALLOW_SINGLE_QUOTES,
+                        JsonReadFeature.ALLOW_TRAILING_COMMA, JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+                .build();
+    }
+
+    /**
+     * Decode the first JSON object in {@code response}, or return null when there is none
+     * or none of the first few candidates parses.
+     */
+    public <R> R decode(String response, Class<R> type) {
+        if (response == null) return null;
+        int start = response.indexOf('{');
+        for (int attempt = 0; start >= 0 && attempt < MAX_ATTEMPTS; attempt++) {
+            R value = decodeAt(response, start, type);
+            if (value != null) return value;
+            start = response.indexOf('{', start + 1);
+        }
+        return null;
+    }
+
+    private <R> R decodeAt(String response, int start, Class<R> type) {
+        try (StringReader reader = new StringReader(response)) {
+            reader.skip(start);
+            try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+                return objectMapper.readValue(parser, type);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package agent.response;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+
+import java.util.List;
+
+/**
+ * Decoded REFLECTION phase response.
+ */
+public record ReflectResult(String summary, String outcome, List<String> lessonsLearned,
+                            List<String> successfulProcedure, List<String> keywords) {
+
+    private static final JsonArraySchema STRINGS = JsonArraySchema.builder().items(new JsonStringSchema()).build();
+
+    private static final JsonSchema JSON_SCHEMA = JsonSchema.builder()
+            .name("ReflectResult")
+            .rootElement(JsonObjectSchema.builder()
+                    .addStringProperty("summary")
+                    .addStringProperty("outcome")
+                    .addProperty("lessons_learned", STRINGS)
+                    .addProperty("successful_procedure", STRINGS)
+                    .addProperty("keywords", STRINGS)
+                    .required("summary", "outcome", "lessons_learned", "successful_procedure", "keywords")
+                    .build())
+            .build();
+
+    @JsonCreator
+    static ReflectResult of(@JsonProperty("summary") String summary,
+                            @JsonProperty("outcome") String outcome,
+                            @JsonProperty("lessons_learned") List<String> lessonsLearned,
+                            @JsonProperty("successful_procedure") List<String> successfulProcedure,
+                            @JsonProperty("keywords") List<String> keywords) {
+        return new ReflectResult(
+                summary == null ? "" : summary,
+                outcome == null ? "UNKNOWN" : outcome,
+                lessonsLearned == null ? List.of() : lessonsLearned,
+                successfulProcedure == null ? List.of() : successfulProcedure,
+                keywords == null ? List.of() : keywords);
+    }
+
+    /**
+     * Schema for models that support native structured output.
+     */
+    public static JsonSchema jsonSchema() {
+        return JSON_SCHEMA;
+    }
+}
@@ -0,0 +1,155 @@
+package agent.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tool catalog cache in front of one or more tool sources (typically one
+ * {@code McpToolProvider} per MCP server).
+ *
+ * Each source is listed once and kept until its TTL expires or it is invalidated,
+ * e.g. on {@code notifications/tools/list_changed}. The merged catalog is rebuilt
+ * only when a source changes, so the hot path is a volatile read with no network I/O.
+ * Executors are cached with their specifications and still call the server.
+ */
+public class CachingToolProvider implements ToolProvider {
+    public static final String LIST_CHANGED = "notifications/tools/list_changed";
+
+    private final Map<String, Source> sources = new LinkedHashMap<>();
+    private final long ttlNanos;
+    private volatile Catalog catalog;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    private CachingToolProvider(Builder builder) {
+        builder.sources.forEach((name, provider) -> sources.put(name, new Source(provider)));
+        this.ttlNanos = builder.ttl.toNanos();
+    }
+
+    @Override
+    public ToolProviderResult provideTools(ToolProviderRequest request) {
+        Catalog current = catalog;
+        if (current != null && System.nanoTime() - current.expiresAt < 0) {
+            hits.incrementAndGet();
+            return current.tools;
+        }
+        return reload(request);
+    }
+
+    /**
+     * Drop one source's listing; the next call lists it again.
+     */
+    public void invalidate(String sourceName) {
+        Source source = sources.get(sourceName);
+        if (source == null) return;
+        synchronized (this) {
+            source.tools = null;
+            catalog = null;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        sources.values().forEach(source -> source.tools = null);
+        catalog = null;
+    }
+
+    /**
+     * React to an MCP message: a tools/list_changed notification invalidates the source
+     * named in its params (key {@code server}), or every source when none is named.
+     * Returns true when the message was such a notification.
+     */
+    public boolean onMessage(JsonNode message) {
+        if (!isListChanged(message)) return false;
+        JsonNode server = message.path("params").path("server");
+        if (server.isTextual() && sources.containsKey(server.asText())) {
+            invalidate(server.asText());
+        } else {
+            invalidateAll();
+        }
+        return true;
+    }
+
+    public static boolean isListChanged(JsonNode message) {
+        return message != null && LIST_CHANGED.equals(message.path("method").asText());
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of times a source was actually listed.
+     */
+    public long loads() {
+        return loads.get();
+    }
+
+    private synchronized ToolProviderResult reload(ToolProviderRequest request) {
+        Catalog current = catalog;
+        long now = System.nanoTime();
+        if (current != null && now - current.expiresAt < 0) {
+            return current.tools;
+        }
+        ToolProviderResult.Builder merged = ToolProviderResult.builder();
+        long expiresAt = now + ttlNanos;
+        for (Source source : sources.values()) {
+            if (source.tools == null || now - source.expiresAt >= 0) {
+                source.tools = source.provider.provideTools(request);
+                source.expiresAt = now + ttlNanos;
+                loads.incrementAndGet();
+            }
+            merged.addAll(source.tools.tools());
+            // The catalog lives as long as its shortest-lived source
+            if (source.expiresAt - expiresAt < 0) expiresAt = source.expiresAt;
+        }
+        Catalog rebuilt = new Catalog(merged.build(), expiresAt);
+        catalog = rebuilt;
+        return rebuilt.tools;
+    }
+
+    private record Catalog(ToolProviderResult tools, long expiresAt) {}
+
+    private static class Source {
+        final ToolProvider provider;
+        ToolProviderResult tools;
+        long expiresAt;
+
+        Source(ToolProvider provider) {
+            this.provider = provider;
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, ToolProvider> sources = new LinkedHashMap<>();
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Add a tool source under a name used for targeted invalidation.
+         */
+        public Builder source(String name, ToolProvider provider) {
+            this.sources.put(name, provider);
+            return this;
+        }
+
+        /**
+         * How long a listing is trusted without a change notification.
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public CachingToolProvider build() {
+            if (sources.isEmpty()) throw new IllegalStateException("at least one source is required");
+            return new CachingToolProvider(this);
+        }
+    }
+}
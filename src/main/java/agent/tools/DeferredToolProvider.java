@@ -0,0 +1,31 @@
+package agent.tools;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+
+import java.util.function.Function;
+
+/**
+ * Exposes the same tools to the model, but executing one only hands the call to
+ * {@code dispatcher} and returns its acknowledgement right away. The model turn ends
+ * without waiting for the tool; the real result arrives later as an event.
+ */
+public class DeferredToolProvider implements ToolProvider {
+    private final ToolProvider delegate;
+    private final Function<ToolExecutionRequest, String> dispatcher;
+
+    public DeferredToolProvider(ToolProvider delegate, Function<ToolExecutionRequest, String> dispatcher) {
+        this.delegate = delegate;
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public ToolProviderResult provideTools(ToolProviderRequest request) {
+        ToolProviderResult.Builder deferred = ToolProviderResult.builder();
+        delegate.provideTools(request).tools().forEach((specification, executor) ->
+                deferred.add(specification, (toolRequest, memoryId) -> dispatcher.apply(toolRequest)));
+        return deferred.build();
+    }
+}
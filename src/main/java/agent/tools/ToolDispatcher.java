@@ -0,0 +1,138 @@
+package agent.tools;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Runs tool calls off the event loop, each bounded by a per-tool timeout.
+ *
+ * The MCP client itself is blocking, so calls run on a dedicated pool; the returned
+ * future completes with the tool output, or exceptionally with a {@link TimeoutException}.
+ * A timed-out call is interrupted. Executors are listed once and looked up by name
+ * afterwards; the provider is asked again only for a tool it has not listed yet.
+ */
+public class ToolDispatcher implements AutoCloseable {
+    public static final String RESULT_EVENT = "tool.result";
+    public static final String ERROR_EVENT = "tool.error";
+
+    private final ToolProvider provider;
+    private final Duration defaultTimeout;
+    private final Map<String, Duration> timeouts;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final Map<String, ToolExecutor> executors = new ConcurrentHashMap<>();
+
+    private ToolDispatcher(Builder builder) {
+        this.provider = builder.provider;
+        this.defaultTimeout = builder.defaultTimeout;
+        this.timeouts = Map.copyOf(builder.timeouts);
+        this.executor = builder.executor != null ? builder.executor : Executors.newCachedThreadPool(daemon("tool-dispatch"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemon("tool-timeout"));
+    }
+
+    public CompletableFuture<String> dispatch(String toolName, String arguments, Object memoryId) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            try {
+                result.complete(execute(toolName, arguments, memoryId));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        long timeoutMillis = timeout(toolName).toMillis();
+        ScheduledFuture<?> deadline = timer.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException("Tool " + toolName + " timed out after " + timeoutMillis + " ms"))) {
+                running.cancel(true);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((output, error) -> deadline.cancel(false));
+        return result;
+    }
+
+    public Duration timeout(String toolName) {
+        return timeouts.getOrDefault(toolName, defaultTimeout);
+    }
+
+    /**
+     * Forget the listed executors, e.g. on notifications/tools/list_changed.
+     */
+    public void invalidate() {
+        executors.clear();
+    }
+
+    private String execute(String toolName, String arguments, Object memoryId) {
+        ToolExecutor executor = executors.get(toolName);
+        if (executor == null) executor = list(toolName, memoryId);
+        if (executor == null) throw new IllegalStateException("Tool not available: " + toolName);
+        return executor.execute(ToolExecutionRequest.builder()
+                .name(toolName)
+                .arguments(arguments)
+                .build(), memoryId);
+    }
+
+    private synchronized ToolExecutor list(String toolName, Object memoryId) {
+        // Another call may have listed the tools while this one waited
+        ToolExecutor known = executors.get(toolName);
+        if (known != null) return known;
+        ToolProviderRequest request = new ToolProviderRequest(memoryId, UserMessage.from(toolName));
+        for (Map.Entry<ToolSpecification, ToolExecutor> entry : provider.provideTools(request).tools().entrySet()) {
+            executors.put(entry.getKey().name(), entry.getValue());
+        }
+        return executors.get(toolName);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static class Builder {
+        private ToolProvider provider;
+        private Duration defaultTimeout = Duration.ofSeconds(30);
+        private final Map<String, Duration> timeouts = new HashMap<>();
+        private ExecutorService executor;
+
+        public Builder provider(ToolProvider provider) {
+            this.provider = provider;
+            return this;
+        }
+
+        public Builder defaultTimeout(Duration defaultTimeout) {
+            this.defaultTimeout = defaultTimeout;
+            return this;
+        }
+
+        public Builder timeout(String toolName, Duration timeout) {
+            this.timeouts.put(toolName, timeout);
+            return this;
+        }
+
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public ToolDispatcher build() {
+            if (provider == null) throw new IllegalStateException("provider is required");
+            return new ToolDispatcher(this);
+        }
+    }
+}
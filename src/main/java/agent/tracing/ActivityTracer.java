@@ -0,0 +1,83 @@
+package agent.tracing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds one trace per activity: the trace id is the activity uuid, a root span covers
+ * the activity from queueing to completion, and queue waits, phases, model calls, tool
+ * calls, event deliveries and memory operations are spans below it.
+ *
+ * Times are taken with {@link System#nanoTime()} and mapped onto the wall clock once,
+ * so span boundaries stay consistent with each other.
+ */
+public class ActivityTracer {
+    private final SpanExporter exporter;
+    private final long epochBaseNanos;
+    private final long nanoBase;
+    private final Map<String, OpenSpan> roots = new ConcurrentHashMap<>();
+
+    public ActivityTracer(SpanExporter exporter) {
+        this.exporter = exporter;
+        this.nanoBase = System.nanoTime();
+        this.epochBaseNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+
+    /**
+     * Open the root span of an activity's trace.
+     */
+    public OpenSpan startActivity(String activityUuid, String goal, String parentActivityUuid) {
+        OpenSpan root = new OpenSpan(this, traceId(activityUuid), newSpanId(), null, "activity", System.nanoTime());
+        root.attribute("activity.uuid", activityUuid).attribute("activity.goal", goal);
+        if (parentActivityUuid != null) root.attribute("activity.parent", parentActivityUuid);
+        roots.put(activityUuid, root);
+        return root;
+    }
+
+    public void finishActivity(String activityUuid, String status) {
+        OpenSpan root = roots.remove(activityUuid);
+        if (root != null) root.attribute("activity.status", status).end();
+    }
+
+    /**
+     * Start a span in the activity's trace, below {@code parentSpanId} or the root when null.
+     */
+    public OpenSpan start(String activityUuid, String parentSpanId, String name) {
+        return startedAt(activityUuid, parentSpanId, name, System.nanoTime());
+    }
+
+    /**
+     * Like {@link #start}, for a span whose start was taken earlier with {@link System#nanoTime()}.
+     */
+    public OpenSpan startedAt(String activityUuid, String parentSpanId, String name, long startNanos) {
+        OpenSpan root = roots.get(activityUuid);
+        if (root == null) return OpenSpan.NOOP;
+        return new OpenSpan(this, root.traceId(), newSpanId(), parentSpanId != null ? parentSpanId : root.spanId(), name, startNanos);
+    }
+
+    void emit(String traceId, String spanId, String parentSpanId, String name, long startNanos, long endNanos,
+              Map<String, Object> attributes, String error) {
+        exporter.export(new Span(traceId, spanId, parentSpanId, name,
+                epochBaseNanos + (startNanos - nanoBase), epochBaseNanos + (endNanos - nanoBase), Map.copyOf(attributes), error));
+    }
+
+    /**
+     * The activity uuid without dashes: 32 hex characters, the size of an OTLP trace id.
+     */
+    public static String traceId(String activityUuid) {
+        String hex = activityUuid.replace("-", "").toLowerCase();
+        if (hex.length() == 32) return hex;
+        // Not a UUID: derive a stable id from it instead
+        return String.format("%016x%016x", (long) hex.hashCode(), (long) new StringBuilder(hex).reverse().toString().hashCode());
+    }
+
+    private static String newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return String.format("%016x", id);
+    }
+}
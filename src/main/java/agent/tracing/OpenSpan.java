@@ -0,0 +1,55 @@
+package agent.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A span in progress. Ending it more than once has no effect; a span of an activity
+ * that is not traced ignores everything.
+ */
+public final class OpenSpan {
+    public static final OpenSpan NOOP = new OpenSpan(null, "", "", null, "", 0);
+
+    private final ActivityTracer tracer;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final long startNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private String error;
+    private boolean ended;
+
+    OpenSpan(ActivityTracer tracer, String traceId, String spanId, String parentSpanId, String name, long startNanos) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    public OpenSpan attribute(String key, Object value) {
+        if (tracer != null && value != null) attributes.put(key, value);
+        return this;
+    }
+
+    public OpenSpan error(String message) {
+        this.error = message == null ? "error" : message;
+        return this;
+    }
+
+    public String spanId() {
+        return spanId;
+    }
+
+    String traceId() {
+        return traceId;
+    }
+
+    public synchronized void end() {
+        if (tracer == null || ended) return;
+        ended = true;
+        tracer.emit(traceId, spanId, parentSpanId, name, startNanos, System.nanoTime(), attributes, error);
+    }
+}
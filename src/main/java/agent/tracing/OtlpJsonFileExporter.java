@@ -0,0 +1,244 @@
+package agent.tracing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batches spans on a background thread and appends them to a file in the OTLP/JSON
+ * encoding, one {@code ExportTraceServiceRequest} per line (the layout of the
+ * OpenTelemetry collector's file exporter, so the file can be replayed into any OTLP
+ * backend). When the queue is full new spans are dropped and counted, never waited on.
+ */
+public class OtlpJsonFileExporter implements SpanExporter {
+    private static final Logger logger = LoggerFactory.getLogger(OtlpJsonFileExporter.class);
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int STATUS_OK = 1;
+    private static final int STATUS_ERROR = 2;
+
+    private final BlockingQueue<Span> queue;
+    private final int maxBatch;
+    private final long flushIntervalNanos;
+    private final String serviceName;
+    private final OutputStream out;
+    private final JsonFactory json = new JsonFactory();
+    private final Thread worker;
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    private OtlpJsonFileExporter(Builder builder) throws IOException {
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.maxBatch = builder.maxBatch;
+        this.flushIntervalNanos = builder.flushInterval.toNanos();
+        this.serviceName = builder.serviceName;
+        this.out = Files.newOutputStream(builder.file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.worker = new Thread(this::run, "span-exporter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void export(Span span) {
+        if (!running || !queue.offer(span)) dropped.incrementAndGet();
+    }
+
+    public long exported() {
+        return exported.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stop accepting spans, write what is queued and close the file.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close span file", e);
+        }
+    }
+
+    private void run() {
+        List<Span> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // Fill the batch until it is full or its oldest span waited a flush interval
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (running && batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) break;
+                    Span next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                queue.drainTo(batch, maxBatch - batch.size());
+                write(batch);
+                exported.addAndGet(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                dropped.addAndGet(batch.size());
+                logger.error("❌ Failed to write {} spans", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Span> batch) throws IOException {
+        try (JsonGenerator g = json.createGenerator(new NonClosing(out), JsonEncoding.UTF8)) {
+            g.writeStartObject();
+            g.writeArrayFieldStart("resourceSpans");
+            g.writeStartObject();
+            g.writeObjectFieldStart("resource");
+            g.writeArrayFieldStart("attributes");
+            attribute(g, "service.name", serviceName);
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeArrayFieldStart("scopeSpans");
+            g.writeStartObject();
+            g.writeObjectFieldStart("scope");
+            g.writeStringField("name", "agent");
+            g.writeEndObject();
+            g.writeArrayFieldStart("spans");
+            for (Span span : batch) {
+                g.writeStartObject();
+                g.writeStringField("traceId", span.traceId());
+                g.writeStringField("spanId", span.spanId());
+                if (span.parentSpanId() != null) g.writeStringField("parentSpanId", span.parentSpanId());
+                g.writeStringField("name", span.name());
+                g.writeNumberField("kind", SPAN_KIND_INTERNAL);
+                // 64-bit integers are strings in OTLP/JSON
+                g.writeStringField("startTimeUnixNano", Long.toString(span.startEpochNanos()));
+                g.writeStringField("endTimeUnixNano", Long.toString(span.endEpochNanos()));
+                g.writeArrayFieldStart("attributes");
+                for (Map.Entry<String, Object> entry : span.attributes().entrySet()) {
+                    attribute(g, entry.getKey(), entry.getValue());
+                }
+                g.writeEndArray();
+                g.writeObjectFieldStart("status");
+                g.writeNumberField("code", span.error() == null ? STATUS_OK : STATUS_ERROR);
+                if (span.error() != null) g.writeStringField("message", span.error());
+                g.writeEndObject();
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        out.write('\n');
+        out.flush();
+    }
+
+    private static void attribute(JsonGenerator g, String key, Object value) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("key", key);
+        g.writeObjectFieldStart("value");
+        if (value instanceof Boolean b) {
+            g.writeBooleanField("boolValue", b);
+        } else if (value instanceof Integer || value instanceof Long) {
+            g.writeStringField("intValue", value.toString());
+        } else if (value instanceof Number n) {
+            g.writeNumberField("doubleValue", n.doubleValue());
+        } else {
+            g.writeStringField("stringValue", String.valueOf(value));
+        }
+        g.writeEndObject();
+        g.writeEndObject();
+    }
+
+    /**
+     * Lets each batch use its own generator without closing the file.
+     */
+    private static class NonClosing extends java.io.FilterOutputStream {
+        NonClosing(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    public static class Builder {
+        private Path file;
+        private String serviceName = "agent";
+        private int maxBatch = 512;
+        private Duration flushInterval = Duration.ofSeconds(1);
+        private int queueCapacity = 16_384;
+
+        public Builder file(Path file) {
+            this.file = file;
+            return this;
+        }
+
+        public Builder serviceName(String serviceName) {
+            this.serviceName = serviceName;
+            return this;
+        }
+
+        public Builder maxBatch(int maxBatch) {
+            this.maxBatch = maxBatch;
+            return this;
+        }
+
+        /**
+         * Longest time a span waits in the queue before its batch is written.
+         */
+        public Builder flushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public OtlpJsonFileExporter build() throws IOException {
+            if (file == null) throw new IllegalStateException("file is required");
+            return new OtlpJsonFileExporter(this);
+        }
+    }
+}
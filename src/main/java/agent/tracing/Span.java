@@ -0,0 +1,11 @@
+package agent.tracing;
+
+import java.util.Map;
+
+/**
+ * A finished span. Ids are lower-case hex (32 chars for the trace, 16 for spans) and
+ * times are nanoseconds since the Unix epoch, as in OTLP.
+ */
+public record Span(String traceId, String spanId, String parentSpanId, String name,
+                   long startEpochNanos, long endEpochNanos, Map<String, Object> attributes, String error) {
+}
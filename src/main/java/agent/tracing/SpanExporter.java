@@ -0,0 +1,12 @@
+package agent.tracing;
+
+/**
+ * Receives finished spans. Called from the agent's threads, so it must not block.
+ */
+public interface SpanExporter extends AutoCloseable {
+
+    void export(Span span);
+
+    @Override
+    void close();
+}
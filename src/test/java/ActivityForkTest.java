@@ -0,0 +1,81 @@
+import agent.activity.Activity;
+import agent.response.ObserveResult;
+import agent.response.PhaseResponseDecoder;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActivityForkTest {
+
+    @Test
+    @DisplayName("Children should read parent beliefs but not its progress, and write only their own")
+    void childrenShareReadOnlyBeliefs() {
+        Activity parent = new Activity("Start timers A and B");
+        parent.setBelief("subscribed", TextNode.valueOf("yes"));
+        parent.setBelief(Activity.PROGRESS_BELIEF, TextNode.valueOf("1 [x] Subscribe\n2 [ ] Timers"));
+
+        Activity child = new Activity("Start timer A", parent);
+        child.setBelief("timerA", IntNode.valueOf(2));
+
+        assertEquals("yes", child.getBelief("subscribed").asText());
+        assertNull(child.getBelief(Activity.PROGRESS_BELIEF), "a child plans its own progress");
+        assertFalse(child.getBeliefsSnapshot().containsKey(Activity.PROGRESS_BELIEF));
+        assertTrue(child.getBeliefsSnapshot().containsKey("subscribed"));
+
+        assertNull(parent.getBelief("timerA"), "child writes must not leak before the join");
+        assertEquals(List.of("timerA"), List.copyOf(child.ownBeliefs().keySet()));
+    }
+
+    @Test
+    @DisplayName("The join should complete only when the last child finishes")
+    void joinWaitsForAllChildren() {
+        Activity parent = new Activity("Start timers A and B");
+        Activity a = new Activity("Start timer A", parent);
+        Activity b = new Activity("Start timer B", parent);
+        parent.addChild(a.getUuid());
+        parent.addChild(b.getUuid());
+
+        assertTrue(parent.hasPendingChildren());
+        assertFalse(parent.childFinished(b.getUuid()));
+        assertFalse(parent.childFinished(b.getUuid()), "a child joins once");
+        assertTrue(parent.childFinished(a.getUuid()));
+        assertFalse(parent.hasPendingChildren());
+    }
+
+    @Test
+    @DisplayName("Observation should decode the sub-goals to fork")
+    void decodesFork() {
+        ObserveResult result = new PhaseResponseDecoder().decode("""
+                {"completed": false, "summary": "two independent timers", "fork": ["Set timer A for 2 seconds", " ", "Set timer B for 3 seconds"]}
+                """, ObserveResult.class);
+        assertEquals(List.of("Set timer A for 2 seconds", "Set timer B for 3 seconds"), result.fork());
+        assertTrue(ObserveResult.EMPTY.fork().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A malformed fork should not cost the rest of the observation")
+    void toleratesMalformedFork() {
+        PhaseResponseDecoder decoder = new PhaseResponseDecoder();
+        ObserveResult object = decoder.decode("""
+                {"completed": true, "summary": "done", "new_progress": "1 [x] Step", "fork": {"goal": "Set timer A"}}
+                """, ObserveResult.class);
+        assertTrue(object.completed());
+        assertEquals("1 [x] Step", object.newProgress());
+        assertTrue(object.fork().isEmpty());
+
+        ObserveResult mixed = decoder.decode("""
+                {"completed": false, "summary": "two timers", "fork": ["Set timer A for 2 seconds", 5, {"goal": "B"}]}
+                """, ObserveResult.class);
+        assertEquals(List.of("Set timer A for 2 seconds"), mixed.fork());
+
+        ObserveResult single = decoder.decode("""
+                {"completed": false, "summary": "one timer", "fork": "Set timer A for 2 seconds"}
+                """, ObserveResult.class);
+        assertEquals(List.of("Set timer A for 2 seconds"), single.fork());
+    }
+}
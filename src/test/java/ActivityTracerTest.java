@@ -0,0 +1,90 @@
+import agent.tracing.ActivityTracer;
+import agent.tracing.OpenSpan;
+import agent.tracing.OtlpJsonFileExporter;
+import agent.tracing.Span;
+import agent.tracing.SpanExporter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActivityTracerTest {
+
+    private static final String UUID = "6f1c1c7e-0000-4000-8000-000000000001";
+
+    @Test
+    @DisplayName("Spans of an activity should share its trace id and nest under the root")
+    void spansNestUnderActivity() {
+        List<Span> spans = new CopyOnWriteArrayList<>();
+        ActivityTracer tracer = new ActivityTracer(new SpanExporter() {
+            @Override public void export(Span span) { spans.add(span); }
+            @Override public void close() {}
+        });
+
+        OpenSpan root = tracer.startActivity(UUID, "Set a timer", null);
+        OpenSpan phase = tracer.start(UUID, null, "phase ACTION");
+        tracer.start(UUID, phase.spanId(), "model ACT").attribute("prompt.chars", 120).end();
+        phase.end();
+        phase.end(); // ending twice is a no-op
+        assertSame(OpenSpan.NOOP, tracer.start("unknown", null, "phase ACTION"));
+        tracer.finishActivity(UUID, "COMPLETED");
+
+        assertEquals(3, spans.size());
+        Map<String, Span> byName = spans.stream().collect(Collectors.toMap(Span::name, s -> s));
+        assertTrue(spans.stream().allMatch(s -> s.traceId().equals("6f1c1c7e000040008000000000000001")));
+        assertNull(byName.get("activity").parentSpanId());
+        assertEquals(root.spanId(), byName.get("phase ACTION").parentSpanId());
+        assertEquals(phase.spanId(), byName.get("model ACT").parentSpanId());
+        assertEquals("COMPLETED", byName.get("activity").attributes().get("activity.status"));
+        Span model = byName.get("model ACT");
+        assertTrue(model.startEpochNanos() <= model.endEpochNanos());
+        assertTrue(byName.get("activity").startEpochNanos() <= model.startEpochNanos());
+    }
+
+    @Test
+    @DisplayName("Exporter should batch spans into OTLP/JSON lines")
+    void exportsOtlpJson() throws Exception {
+        Path file = Files.createTempFile("spans", ".jsonl");
+        try (OtlpJsonFileExporter exporter = new OtlpJsonFileExporter.Builder()
+                .file(file)
+                .serviceName("timer-agent")
+                .flushInterval(Duration.ofMillis(50))
+                .build()) {
+            ActivityTracer tracer = new ActivityTracer(exporter);
+            tracer.startActivity(UUID, "Set a timer", null);
+            tracer.start(UUID, null, "tool timerTool").attribute("tool.mode", "async").error("timeout").end();
+            tracer.finishActivity(UUID, "COMPLETED");
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        Files.deleteIfExists(file);
+        ObjectMapper mapper = new ObjectMapper();
+        int spans = 0;
+        JsonNode tool = null;
+        for (String line : lines) {
+            JsonNode resource = mapper.readTree(line).get("resourceSpans").get(0);
+            assertEquals("timer-agent", resource.at("/resource/attributes/0/value/stringValue").asText());
+            for (JsonNode span : resource.at("/scopeSpans/0/spans")) {
+                spans++;
+                if (span.get("name").asText().equals("tool timerTool")) tool = span;
+            }
+        }
+        assertEquals(2, spans);
+        assertNotNull(tool);
+        assertEquals("6f1c1c7e000040008000000000000001", tool.get("traceId").asText());
+        assertEquals(16, tool.get("spanId").asText().length());
+        assertTrue(tool.get("startTimeUnixNano").isTextual());
+        assertEquals(2, tool.at("/status/code").asInt());
+        assertEquals("async", tool.at("/attributes/0/value/stringValue").asText());
+    }
+}
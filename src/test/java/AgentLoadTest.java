@@ -0,0 +1,67 @@
+import agent.AsyncAgent;
+import agent.Phase;
+import agent.ReactBrain;
+import agent.memory.AgentMemory;
+import agent.memory.HashingEmbeddingModel;
+import dev.langchain4j.mcp.McpToolProvider;
+import dev.langchain4j.mcp.client.DefaultMcpClient;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.mcp.client.transport.McpTransport;
+import dev.langchain4j.mcp.client.transport.http.StreamableHttpMcpTransport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end load: the real event loop against the in-process timer server with a
+ * scripted model, so the numbers measure the agent rather than an LLM provider.
+ */
+public class AgentLoadTest {
+
+    @Test
+    @DisplayName("Agent should complete every activity of an open-loop timer load")
+    void timerLoad() throws Exception {
+        try (TimerMcpServer server = new TimerMcpServer.Builder().timeScale(0.01).start()) {
+            McpTransport transport = new StreamableHttpMcpTransport.Builder().url(server.mcpUrl()).build();
+            transport.start(new ActivitySubmissionIntegrationTest.NoOpHandler(transport));
+            McpClient client = new DefaultMcpClient.Builder()
+                    .transport(transport)
+                    .toolExecutionTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            ScriptedChatModel model = ScriptedChatModel.timerScript()
+                    .latency(ScriptedChatModel.logNormal(20, 0.5, 42))
+                    .build();
+            AsyncAgent<ReactBrain> agent = new AsyncAgent.Builder<ReactBrain>()
+                    .model(model)
+                    .agentInterface(ReactBrain.class)
+                    .mcpToolProvider(McpToolProvider.builder().mcpClients(List.of(client)).build())
+                    .sseUrl(server.sseUrl())
+                    .memory(new AgentMemory.Builder().embeddingModel(new HashingEmbeddingModel()).build())
+                    .build();
+
+            try {
+                LoadGenerator.Report report = new LoadGenerator.Builder()
+                        .activities(200)
+                        .rate(50)
+                        .submitter(i -> agent.submit("First subscribe, then set a timer for 1 seconds called load-" + i))
+                        .timeout(Duration.ofMinutes(2))
+                        .build()
+                        .run();
+
+                System.out.println("📈 " + report);
+                System.out.printf("LLM calls: act=%d observe=%d reflect=%d, timers fired=%d%n",
+                        model.calls(Phase.ACT), model.calls(Phase.OBSERVE), model.calls(Phase.REFLECT), server.timersFired());
+                assertEquals(report.submitted(), report.completed(), "every activity should complete");
+                assertEquals(0, report.failed());
+            } finally {
+                agent.shutdown();
+                client.close();
+            }
+        }
+    }
+}
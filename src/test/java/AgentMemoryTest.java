@@ -0,0 +1,113 @@
+import agent.memory.AgentMemory;
+import agent.memory.EpisodicMemory;
+import agent.memory.HashingEmbeddingModel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgentMemoryTest {
+
+    private static EpisodicMemory timerMemory(String name, String outcome) {
+        return new EpisodicMemory(
+                "Subscribe and set a timer for 2 seconds called " + name,
+                outcome,
+                "Subscribed and set the timer",
+                List.of("Subscribe to notifications", "Set timer for required duration", "Wait for timer.finished"));
+    }
+
+    @Test
+    @DisplayName("Near-identical memories should be consolidated into one entry")
+    void nearDuplicatesAreMerged() {
+        AgentMemory memory = new AgentMemory.Builder()
+                .embeddingModel(new HashingEmbeddingModel())
+                .consolidationThreshold(0.9)
+                .build();
+
+        for (int i = 0; i < 50; i++) {
+            memory.save(timerMemory("t", "SUCCESS"));
+        }
+
+        assertEquals(1, memory.size());
+        assertEquals(1, memory.retrieveRelevantMemories("set a timer called t", 5).size());
+    }
+
+    @Test
+    @DisplayName("Store size should stay bounded by capacity in a long soak")
+    void capacityBoundsStore() {
+        AgentMemory memory = new AgentMemory.Builder()
+                .embeddingModel(new HashingEmbeddingModel())
+                .capacity(20)
+                .consolidationThreshold(0.999)
+                .build();
+
+        for (int i = 0; i < 500; i++) {
+            memory.save(new EpisodicMemory("unique goal number " + i + " about topic" + i, "SUCCESS", "summary " + i, List.of("step" + i)));
+            assertTrue(memory.size() <= 20, "Store exceeded capacity at iteration " + i);
+        }
+        assertEquals(20, memory.size());
+    }
+
+    @Test
+    @DisplayName("Frequently retrieved memories should survive eviction")
+    void retrievalHitsProtectFromEviction() {
+        AgentMemory memory = new AgentMemory.Builder()
+                .embeddingModel(new HashingEmbeddingModel())
+                .capacity(3)
+                .consolidationThreshold(0.999)
+                .build();
+
+        memory.save(new EpisodicMemory("alpha bravo charlie", "SUCCESS", "alpha", List.of("alpha")));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(memory.retrieveRelevantMemories("alpha bravo charlie", 1).isEmpty());
+        }
+        memory.save(new EpisodicMemory("delta echo foxtrot", "FAILURE", "delta", List.of("delta")));
+        memory.save(new EpisodicMemory("golf hotel india", "SUCCESS", "golf", List.of("golf")));
+        memory.save(new EpisodicMemory("juliet kilo lima", "SUCCESS", "juliet", List.of("juliet")));
+
+        assertEquals(3, memory.size());
+        assertFalse(memory.retrieveRelevantMemories("alpha bravo charlie", 1).isEmpty(), "Hot memory was evicted");
+        assertTrue(memory.retrieveRelevantMemories("delta echo foxtrot", 1).isEmpty(), "Cold failure should be evicted first");
+    }
+
+    @Test
+    @DisplayName("Outcome filter should only return memories with that outcome")
+    void outcomeFilterRestrictsResults() {
+        AgentMemory memory = new AgentMemory.Builder()
+                .embeddingModel(new HashingEmbeddingModel())
+                .build();
+
+        memory.save(new EpisodicMemory("set a timer called alpha", "SUCCESS", "timer set", List.of("set timer"),
+                List.of(), List.of("timer")));
+        memory.save(new EpisodicMemory("set a timer called beta", "failure", "timer tool missing", List.of(),
+                List.of("Subscribe before setting timers"), List.of("timer")));
+
+        List<String> failures = memory.retrieveRelevantMemories("set a timer", 5, "FAILURE");
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).contains("beta"));
+        assertTrue(failures.get(0).contains("Subscribe before setting timers"), "Lessons should be part of the memory text");
+
+        assertEquals(2, memory.retrieveRelevantMemories("set a timer", 5).size());
+        assertTrue(memory.retrieveRelevantMemories("set a timer", 5, "UNKNOWN").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Reflection keywords should lift the matching memory to the top")
+    void keywordsBoostRanking() {
+        AgentMemory memory = new AgentMemory.Builder()
+                .embeddingModel(new HashingEmbeddingModel())
+                .consolidationThreshold(0.999)
+                .build();
+
+        memory.save(new EpisodicMemory("notify me when done", "SUCCESS", "sent notification", List.of("notify"),
+                List.of(), List.of("email")));
+        memory.save(new EpisodicMemory("notify me when finished", "SUCCESS", "started countdown", List.of("notify"),
+                List.of(), List.of("countdown", "timer")));
+
+        List<String> results = memory.retrieveRelevantMemories("notify me with a countdown timer", 2);
+        assertFalse(results.isEmpty());
+        assertTrue(results.get(0).contains("countdown"));
+    }
+}
@@ -0,0 +1,77 @@
+import agent.Phase;
+import agent.activity.Activity;
+import agent.metrics.AgentMetrics;
+import agent.metrics.MetricsServer;
+import agent.metrics.PhaseMetrics;
+import dev.langchain4j.model.output.TokenUsage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgentMetricsTest {
+
+    private final PhaseMetrics phaseMetrics = new PhaseMetrics();
+    private final AgentMetrics metrics = new AgentMetrics(phaseMetrics,
+            () -> Map.of(Activity.Status.WAITING_FOR_EVENT, 3, Activity.Status.ACTION, 1), () -> 42);
+
+    @Test
+    @DisplayName("Snapshot should report latency percentiles, counters and gauges")
+    void snapshot() {
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordPhase(Phase.ACT, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        metrics.recordQueueWait(TimeUnit.MICROSECONDS.toNanos(250));
+        metrics.recordSseMessages(10);
+        metrics.recordSseDropped();
+        phaseMetrics.record(Phase.ACT, 1_000_000, new TokenUsage(120, 30));
+
+        AgentMetrics.Snapshot snapshot = metrics.snapshot();
+        AgentMetrics.LatencyStats act = snapshot.phaseLatency().get(Phase.ACT);
+        assertEquals(100, act.count());
+        assertEquals(50, act.p50Millis(), 1);
+        assertEquals(99, act.p99Millis(), 1);
+        assertEquals(0, snapshot.phaseLatency().get(Phase.REFLECT).count());
+        assertEquals(0.25, snapshot.queueWait().p50Millis(), 0.01);
+
+        assertEquals(3, snapshot.activities().get(Activity.Status.WAITING_FOR_EVENT).intValue());
+        assertEquals(0, snapshot.activities().get(Activity.Status.COMPLETED).intValue());
+        assertEquals(10, snapshot.sseMessages());
+        assertTrue(snapshot.sseMessagesPerSecond() > 0);
+        assertEquals(1, snapshot.sseDropped());
+        assertEquals(42, snapshot.memorySize());
+        assertEquals(120, snapshot.modelCalls().get(Phase.ACT).inputTokens());
+
+        // Histograms are cumulative across snapshots
+        metrics.recordPhase(Phase.ACT, TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(101, metrics.snapshot().phaseLatency().get(Phase.ACT).count());
+    }
+
+    @Test
+    @DisplayName("Metrics endpoint should serve the Prometheus text format")
+    void prometheusEndpoint() throws Exception {
+        metrics.recordPhase(Phase.OBSERVE, TimeUnit.MILLISECONDS.toNanos(20));
+        phaseMetrics.record(Phase.OBSERVE, 20_000_000, new TokenUsage(10, 5));
+
+        try (MetricsServer server = new MetricsServer(metrics, 0)) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+            String body = response.body();
+            assertTrue(body.contains("# TYPE agent_phase_latency_seconds summary"));
+            assertTrue(body.contains("agent_phase_latency_seconds_count{phase=\"OBSERVE\"} 1"), body);
+            assertTrue(body.contains("agent_activities{status=\"WAITING_FOR_EVENT\"} 3"));
+            assertTrue(body.contains("agent_model_tokens_total{phase=\"OBSERVE\",direction=\"output\"} 5"));
+            assertTrue(body.contains("agent_memory_size 42"));
+        }
+    }
+}
@@ -1,6 +1,8 @@
 import agent.AsyncAgent;
+import agent.Phase;
 import agent.ReactBrain;
 import agent.activity.Activity;
+import agent.model.ModelRouter;
 import com.fasterxml.jackson.databind.JsonNode;
 import dev.langchain4j.agentic.Agent;
 import dev.langchain4j.data.document.Document;
@@ -177,6 +179,32 @@ public class AgentTest {
             assertNotNull(agent);
         }
 
+        @Test
+        @DisplayName("Builder should create Agent with per-phase models and a router")
+        void builderCreatesAgentWithPhaseModels() {
+            OpenAiChatModel model = OpenAiChatModel.builder()
+                    .baseUrl("http://langchain4j.dev/demo/openai/v1")
+                    .apiKey("demo")
+                    .modelName("gpt-4o-mini")
+                    .build();
+            OllamaChatModel small = OllamaChatModel.builder()
+                    .baseUrl("http://localhost:11434")
+                    .modelName("qwen2.5")
+                    .build();
+
+            AsyncAgent<SimpleAgentInterface> agent = new AsyncAgent.Builder<SimpleAgentInterface>()
+                    .model(model)
+                    .phaseModel(Phase.OBSERVE, small)
+                    .phaseModel(Phase.REFLECT, small)
+                    .modelRouter(ModelRouter.byPromptSize(2000, small, model))
+                    .agentInterface(SimpleAgentInterface.class)
+                    .build();
+
+            assertNotNull(agent);
+            assertEquals(0, agent.phaseMetrics().snapshot(Phase.OBSERVE).calls());
+            agent.shutdown();
+        }
+
         @Test
         @DisplayName("Builder should create Agent with MCP and SSE parameters using Real Objects")
         void builderCreatesAgentWithMcp() {
@@ -0,0 +1,118 @@
+import agent.tools.CachingToolProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingToolProviderTest {
+
+    private static final ToolProviderRequest REQUEST = new ToolProviderRequest("a1", UserMessage.from("set a timer"));
+
+    /**
+     * Local MCP stand-in: every listing costs a simulated round trip.
+     */
+    static class ListingServer implements ToolProvider {
+        final AtomicInteger listings = new AtomicInteger();
+        final List<String> tools;
+        final long roundTripMillis;
+
+        ListingServer(long roundTripMillis, String... tools) {
+            this.roundTripMillis = roundTripMillis;
+            this.tools = List.of(tools);
+        }
+
+        @Override
+        public ToolProviderResult provideTools(ToolProviderRequest request) {
+            listings.incrementAndGet();
+            try {
+                Thread.sleep(roundTripMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ToolProviderResult.Builder result = ToolProviderResult.builder();
+            tools.forEach(name -> result.add(ToolSpecification.builder().name(name).build(), (call, memoryId) -> name + " ok"));
+            return result.build();
+        }
+    }
+
+    private static double meanListingMillis(ToolProvider provider, int actions) {
+        long start = System.nanoTime();
+        for (int i = 0; i < actions; i++) {
+            provider.provideTools(REQUEST);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / actions;
+    }
+
+    @Test
+    @DisplayName("Cached catalogs should list each server once and serve repeats without I/O")
+    void hotPathHasNoListing() {
+        ListingServer timers = new ListingServer(15, "setTimer", "cancelTimer");
+        ListingServer notifier = new ListingServer(15, "subscribe");
+        CachingToolProvider catalog = new CachingToolProvider.Builder()
+                .source("timers", timers)
+                .source("notifier", notifier)
+                .build();
+
+        double uncached = meanListingMillis(new ListingServer(15, "setTimer", "cancelTimer"), 20);
+        catalog.provideTools(REQUEST);
+        double cached = meanListingMillis(catalog, 20);
+
+        System.out.printf("toolListingPerActionMs uncached=%.2f cached=%.4f%n", uncached, cached);
+        assertEquals(3, catalog.provideTools(REQUEST).tools().size());
+        assertEquals(1, timers.listings.get());
+        assertEquals(1, notifier.listings.get());
+        assertEquals(2, catalog.loads());
+        assertTrue(cached < uncached / 10, "cache should remove the round trip: " + uncached + " -> " + cached);
+    }
+
+    @Test
+    @DisplayName("list_changed should invalidate the named server only, or all servers")
+    void listChangedInvalidates() throws Exception {
+        ListingServer timers = new ListingServer(0, "setTimer");
+        ListingServer notifier = new ListingServer(0, "subscribe");
+        CachingToolProvider catalog = new CachingToolProvider.Builder()
+                .source("timers", timers)
+                .source("notifier", notifier)
+                .build();
+        ObjectMapper mapper = new ObjectMapper();
+        catalog.provideTools(REQUEST);
+
+        assertFalse(catalog.onMessage(mapper.readTree("{\"method\":\"notifications/message\",\"params\":{}}")));
+        assertTrue(catalog.onMessage(mapper.readTree("{\"method\":\"notifications/tools/list_changed\",\"params\":{\"server\":\"timers\"}}")));
+        catalog.provideTools(REQUEST);
+        assertEquals(2, timers.listings.get());
+        assertEquals(1, notifier.listings.get());
+
+        catalog.onMessage(mapper.readTree("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/tools/list_changed\"}"));
+        catalog.provideTools(REQUEST);
+        assertEquals(3, timers.listings.get());
+        assertEquals(2, notifier.listings.get());
+    }
+
+    @Test
+    @DisplayName("Listings should be refreshed after the TTL")
+    void ttlExpires() throws Exception {
+        ListingServer timers = new ListingServer(0, "setTimer");
+        CachingToolProvider catalog = new CachingToolProvider.Builder()
+                .source("timers", timers)
+                .ttl(Duration.ofMillis(50))
+                .build();
+
+        catalog.provideTools(REQUEST);
+        catalog.provideTools(REQUEST);
+        assertEquals(1, timers.listings.get());
+        Thread.sleep(80);
+        catalog.provideTools(REQUEST);
+        assertEquals(2, timers.listings.get());
+    }
+}
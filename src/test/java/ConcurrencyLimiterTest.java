@@ -0,0 +1,138 @@
+import agent.Phase;
+import agent.model.ConcurrencyLimiter;
+import agent.model.LimitedChatModel;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimiterTest {
+
+    private static ChatRequest request() {
+        return ChatRequest.builder().messages(UserMessage.from("hello")).build();
+    }
+
+    @Test
+    @DisplayName("Limit should back off on drops and grow again once calls come back fast")
+    void limitBacksOffAndRecovers() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .initialLimit(32)
+                .maxLimit(64)
+                .build();
+
+        // Before the first success every drop counts
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(Phase.REASON).dropped();
+        }
+        int backedOff = limiter.limit();
+        assertTrue(backedOff < 32 * 0.9, "limit should shrink, was " + backedOff);
+
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(Phase.REASON).success(5 * ms);
+        }
+        assertTrue(limiter.limit() > backedOff, "limit should grow, was " + limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("A 429 from the backend should count as a drop")
+    void rateLimitedCallBacksOff() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .initialLimit(10)
+                .build();
+        ChatModel rejecting = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                throw new RuntimeException("HTTP 429 Too Many Requests");
+            }
+        };
+        LimitedChatModel model = new LimitedChatModel(Phase.REASON, rejecting, limiter);
+
+        assertThrows(RuntimeException.class, () -> model.chat(request()));
+        assertEquals(9, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("Callers over the limit should queue until a slot is released")
+    void excessCallersQueue() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .initialLimit(1)
+                .maxLimit(1)
+                .build();
+        ConcurrencyLimiter.Permit held = limiter.acquire(Phase.REASON);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> waiting = pool.submit(() -> {
+            limiter.acquire(Phase.REASON).ignore();
+            return null;
+        });
+        while (limiter.queued() < 1) Thread.onSpinWait();
+        Thread.sleep(20);
+        held.ignore();
+        waiting.get(5, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertTrue(limiter.lastQueueDelayMillis() >= 20, "queued for " + limiter.lastQueueDelayMillis());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("A phase that is slow by nature should not count as overload of a fast one")
+    void latencyIsJudgedPerPhase() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .initialLimit(8)
+                .build();
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire(Phase.ACT).success(5 * ms);
+            limiter.acquire(Phase.REFLECT).success(60 * ms);
+        }
+        assertTrue(limiter.limit() > 8, "mixed traffic should not back off, limit was " + limiter.limit());
+
+        // Within its own phase a slow call still signals overload
+        int grown = limiter.limit();
+        limiter.acquire(Phase.ACT).success(50 * ms);
+        assertTrue(limiter.limit() < grown);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("Queued calls should be granted in phase priority order")
+    void queuedCallsFollowPhasePriority() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .initialLimit(1)
+                .maxLimit(1)
+                .build();
+        ConcurrencyLimiter.Permit held = limiter.acquire(Phase.REASON);
+
+        List<Phase> granted = new CopyOnWriteArrayList<>();
+        ExecutorService pool = Executors.newCachedThreadPool();
+        int queued = 0;
+        for (Phase phase : List.of(Phase.REFLECT, Phase.REASON, Phase.OBSERVE, Phase.ACT)) {
+            pool.submit(() -> {
+                ConcurrencyLimiter.Permit permit = limiter.acquire(phase);
+                granted.add(phase);
+                permit.ignore();
+                return null;
+            });
+            // Make sure each caller is queued before the next one arrives
+            queued++;
+            while (limiter.queued() < queued) Thread.onSpinWait();
+        }
+        held.ignore();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(Phase.ACT, Phase.OBSERVE, Phase.REASON, Phase.REFLECT), granted);
+        assertEquals(0, limiter.inFlight());
+    }
+}
@@ -0,0 +1,117 @@
+import agent.Phase;
+import agent.activity.Activity;
+import agent.activity.ReasoningStep;
+import agent.context.ContextWindow;
+import agent.context.TokenCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextWindowTest {
+
+    @Test
+    @DisplayName("History should keep the newest steps that fit the phase budget, oldest first")
+    void fillsNewestFirstWithinBudget() {
+        ContextWindow window = new ContextWindow.Builder()
+                .counter(TokenCounter.approximate())
+                .historyBudget(Phase.ACT, 180)
+                .build();
+        Activity activity = new Activity("Set a timer");
+        for (int i = 0; i < 20; i++) {
+            String result = i == 18 ? "x".repeat(400) : "short " + i;
+            activity.addStep(new ReasoningStep("act", "step " + i, result, Map.of()));
+        }
+
+        String history = window.history(activity, Phase.ACT);
+
+        // Step 18 costs about 130 tokens and a short step about 33, so only 18 and 19 fit
+        assertTrue(history.startsWith("(18 earlier steps omitted)\n"), history);
+        assertTrue(history.indexOf("step 18") < history.indexOf("step 19"));
+        assertFalse(history.contains("step 17"));
+        assertTrue(window.promptTokens(history) <= 180);
+        // The omitted-steps marker counts as well
+        assertTrue(Math.abs(window.promptTokens(history) - TokenCounter.approximate().count(history)) <= 3);
+
+        String roomy = window.history(activity.getHistory(), 10_000);
+        assertFalse(roomy.contains("omitted"));
+        assertTrue(roomy.contains("step 0"));
+    }
+
+    @Test
+    @DisplayName("With a block size the window start should only move in whole blocks")
+    void slidesInBlocks() {
+        ContextWindow window = new ContextWindow.Builder()
+                .counter(TokenCounter.approximate())
+                .loopHistoryBudget(180)
+                .blockSize(4)
+                .build();
+        Activity activity = new Activity("Set a timer");
+        List<String> starts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            activity.addStep(new ReasoningStep("act", "step " + i, "short " + i, Map.of()));
+            String history = window.history(activity, Phase.OBSERVE);
+            assertEquals(history, window.history(activity, Phase.REASON));
+            assertTrue(window.promptTokens(history) <= 180);
+            starts.add(history.substring(0, history.indexOf('\n')));
+        }
+
+        // About five short steps fit: the oldest kept step jumps from 4 to 8 to 12 ...
+        assertEquals("(4 earlier steps omitted)", starts.get(7));
+        assertEquals(starts.get(7), starts.get(8));
+        assertTrue(starts.stream().allMatch(start -> !start.startsWith("(") || start.matches("\\((4|8|12|16) earlier.*")), starts.toString());
+    }
+
+    @Test
+    @DisplayName("A newest step larger than the budget should be cut rather than dropped")
+    void truncatesOversizedStep() {
+        ContextWindow window = new ContextWindow.Builder().counter(TokenCounter.approximate()).build();
+        Activity activity = new Activity("Set a timer");
+        activity.addStep(new ReasoningStep("observe", "events", "y".repeat(4000), Map.of()));
+
+        String history = window.history(activity.getHistory(), 50);
+
+        assertTrue(history.contains("…[truncated]"));
+        assertTrue(TokenCounter.approximate().count(history) <= 52, history);
+    }
+
+    @Test
+    @DisplayName("Oversized belief values should be cut and steps counted only once")
+    void trimsBeliefsAndCachesCounts() {
+        AtomicInteger counted = new AtomicInteger();
+        TokenCounter approximate = TokenCounter.approximate();
+        ContextWindow window = new ContextWindow.Builder()
+                .counter(text -> {
+                    counted.incrementAndGet();
+                    return approximate.count(text);
+                })
+                .maxBeliefTokens(10)
+                .build();
+
+        Map<String, Object> beliefs = Map.of("id", IntNode.valueOf(42), "log", TextNode.valueOf("z".repeat(500)));
+        Map<String, Object> trimmed = window.beliefs(beliefs);
+        assertEquals(IntNode.valueOf(42), trimmed.get("id"));
+        String log = ((JsonNode) trimmed.get("log")).asText();
+        assertTrue(log.endsWith("…[truncated]"));
+        assertTrue(approximate.count(log) <= 10);
+
+        Map<String, Object> small = Map.of("id", IntNode.valueOf(1));
+        assertSame(small, window.beliefs(small));
+
+        Activity activity = new Activity("Set a timer");
+        for (int i = 0; i < 5; i++) activity.addStep(new ReasoningStep("act", "step " + i, "ok", Map.of()));
+        window.history(activity, Phase.REASON);
+        counted.set(0);
+        activity.addStep(new ReasoningStep("act", "step 5", "ok", Map.of()));
+        window.history(activity, Phase.REASON);
+        assertEquals(1, counted.get());
+    }
+}
@@ -0,0 +1,131 @@
+import agent.memory.EmbeddingService;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmbeddingServiceTest {
+
+    /**
+     * Slow fake model: encodes the text length so callers can check they got their own result.
+     */
+    static class SlowModel implements EmbeddingModel {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            batchSizes.add(segments.size());
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<Embedding> out = new ArrayList<>();
+            segments.forEach(s -> out.add(Embedding.from(new float[]{s.text().length()})));
+            return Response.from(out);
+        }
+    }
+
+    @Test
+    @DisplayName("Worker models should be created lazily on first use")
+    void modelsAreLazy() {
+        AtomicInteger created = new AtomicInteger();
+        EmbeddingService service = new EmbeddingService.Builder()
+                .modelFactory(() -> { created.incrementAndGet(); return new SlowModel(); })
+                .poolSize(2)
+                .build();
+
+        assertEquals(0, created.get());
+        assertEquals(3f, service.embed("abc").content().vector()[0]);
+        assertEquals(1, created.get());
+        assertEquals(1, service.models());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("Concurrent requests from many callers should be batched together")
+    void concurrentRequestsAreBatched() throws Exception {
+        SlowModel model = new SlowModel();
+        EmbeddingService service = new EmbeddingService.Builder()
+                .modelFactory(() -> model)
+                .poolSize(1)
+                .maxBatchSize(64)
+                .batchWindow(Duration.ofMillis(5))
+                .build();
+
+        int callers = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<Float>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            String text = "x".repeat(i + 1);
+            results.add(pool.submit(() -> service.embed(text).content().vector()[0]));
+        }
+        for (int i = 0; i < callers; i++) {
+            assertEquals((float) (i + 1), results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(callers, service.embeddedSegments());
+        assertTrue(service.batches() < callers, "Expected batching, got " + model.batchSizes);
+        service.close();
+    }
+
+    @Test
+    @DisplayName("A model factory failure should fail the caller instead of blocking it")
+    void modelFailureFailsRequest() {
+        AtomicInteger attempts = new AtomicInteger();
+        EmbeddingService service = new EmbeddingService.Builder()
+                .modelFactory(() -> {
+                    if (attempts.incrementAndGet() == 1) throw new IllegalStateException("ONNX load failed");
+                    return new SlowModel();
+                })
+                .poolSize(1)
+                .requestTimeout(Duration.ofSeconds(5))
+                .build();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> service.embed("abc"));
+        assertEquals("ONNX load failed", error.getMessage());
+        // The worker survives and asks the factory again
+        assertEquals(3f, service.embed("abc").content().vector()[0]);
+        service.close();
+    }
+
+    @Test
+    @DisplayName("Closing the service should fail requests already taken into a batch")
+    void closeFailsInFlightRequests() throws Exception {
+        CountDownLatch embedding = new CountDownLatch(1);
+        EmbeddingService service = new EmbeddingService.Builder()
+                .modelFactory(() -> segments -> {
+                    embedding.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException("interrupted", e);
+                    }
+                    return Response.from(List.of());
+                })
+                .poolSize(1)
+                .requestTimeout(Duration.ofSeconds(5))
+                .build();
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        Future<?> pending = caller.submit(() -> service.embed("abc"));
+        assertTrue(embedding.await(5, TimeUnit.SECONDS));
+        service.close();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> pending.get(2, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalStateException.class, () -> service.embed("late"));
+        caller.shutdown();
+    }
+}
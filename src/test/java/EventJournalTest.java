@@ -0,0 +1,97 @@
+import agent.journal.EventJournal;
+import agent.journal.EventJournal.Category;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventJournalTest {
+
+    @Test
+    @DisplayName("Entries from concurrent producers should all be written as JSON lines")
+    void writesEveryEntry() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        EventJournal journal = new EventJournal.Builder().capacity(64).sink(lines::add).build();
+
+        int producers = 4;
+        int perProducer = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            String uuid = "activity-" + p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    journal.record(Category.PHASE, uuid, "step", i);
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        journal.close();
+
+        // A small ring may drop under contention, but never loses or duplicates published entries
+        assertEquals(producers * perProducer, lines.size() + journal.dropped());
+        assertEquals(lines.size(), journal.written());
+        assertTrue(lines.get(0).startsWith("{\"ts\":\""));
+        assertTrue(lines.get(0).contains("\"cat\":\"PHASE\""));
+        assertTrue(lines.get(0).contains("\"msg\":\"step\""));
+    }
+
+    @Test
+    @DisplayName("High-volume categories should be sampled and long details truncated")
+    void samplesAndTruncates() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        EventJournal journal = new EventJournal.Builder()
+                .sample(Category.EVENT, 10)
+                .sample(Category.BROADCAST, 0)
+                .maxDetailChars(16)
+                .sink(lines::add)
+                .build();
+
+        for (int i = 0; i < 100; i++) journal.record(Category.EVENT, "a", "📥 Event pushed", i);
+        journal.record(Category.BROADCAST, null, "📢 Broadcast");
+        journal.record(Category.MODEL, "a", "🛠️ Action Result", "x".repeat(100), "say \"hi\"\n");
+        journal.close();
+
+        assertEquals(11, lines.size());
+        assertEquals(90 + 1, journal.sampledOut());
+        String model = lines.get(10);
+        assertTrue(model.contains("\"detail\":\"" + "x".repeat(16) + "…(+84 chars)\""), model);
+        assertTrue(model.contains("\"extra\":\"say \\\"hi\\\"\\n\""), model);
+    }
+
+    @Test
+    @DisplayName("A full ring should drop entries instead of blocking the producer")
+    void dropsWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> lines = new CopyOnWriteArrayList<>();
+        EventJournal journal = new EventJournal.Builder().capacity(8).sink(line -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lines.add(line);
+        }).build();
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 100; i++) journal.record(Category.TOOL, "a", "🚀 Dispatching", i);
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+        assertTrue(journal.dropped() >= 100 - 8 - 1);
+
+        release.countDown();
+        journal.close();
+        assertEquals(100, lines.size() + journal.dropped());
+    }
+}
@@ -0,0 +1,42 @@
+import agent.activity.EventQuorum;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventQuorumTest {
+
+    @Test
+    @DisplayName("A batch should wait for all of its events by default")
+    void waitsForAll() {
+        EventQuorum quorum = new EventQuorum(3, 0);
+        assertEquals(3, quorum.required());
+        assertFalse(quorum.arrive());
+        assertFalse(quorum.arrive());
+        assertTrue(quorum.arrive());
+        assertTrue(quorum.reached());
+    }
+
+    @Test
+    @DisplayName("A partial quorum should wake early, and an oversized one means all")
+    void partialQuorum() {
+        EventQuorum firstOfThree = new EventQuorum(3, 1);
+        assertTrue(firstOfThree.arrive());
+
+        EventQuorum oversized = new EventQuorum(2, 5);
+        assertEquals(2, oversized.required());
+        assertFalse(oversized.arrive());
+        assertTrue(oversized.arrive());
+    }
+
+    @Test
+    @DisplayName("An event evaluated by two threads should count once towards the quorum")
+    void countsEachEventOnce() {
+        EventQuorum quorum = new EventQuorum(2, 0);
+        Object first = new Object();
+        assertFalse(quorum.arrive(first));
+        assertFalse(quorum.arrive(first));
+        assertEquals(1, quorum.arrived());
+        assertTrue(quorum.arrive(new Object()));
+    }
+}
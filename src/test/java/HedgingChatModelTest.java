@@ -0,0 +1,88 @@
+import agent.model.HedgingChatModel;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgingChatModelTest {
+
+    private static ChatRequest request() {
+        return ChatRequest.builder().messages(UserMessage.from("hello")).build();
+    }
+
+    @Test
+    @DisplayName("Only calls slower than the learned hedge delay should be hedged")
+    void hedgesOnlySlowCalls() {
+        AtomicInteger n = new AtomicInteger();
+        // 32 instant calls to learn from, then one far slower than the delay floor
+        StubChatModel primary = new StubChatModel("primary", () -> n.incrementAndGet() > 32 ? 500 : 0);
+        HedgingChatModel hedged = new HedgingChatModel.Builder()
+                .primary(primary)
+                .secondary(new StubChatModel("secondary"))
+                .percentile(0.9)
+                .minDelay(Duration.ofMillis(50))
+                .build();
+
+        for (int i = 0; i < 32; i++) {
+            assertEquals("primary", hedged.chat(request()).aiMessage().text());
+        }
+        assertEquals(50.0, hedged.stats().hedgeDelayMillis(), "learned delay should rest on the floor");
+        assertEquals(0, hedged.stats().hedges());
+
+        assertEquals("secondary", hedged.chat(request()).aiMessage().text());
+        HedgingChatModel.HedgeStats stats = hedged.stats();
+        assertEquals(1, stats.hedges());
+        assertEquals(1, stats.secondaryWins());
+        hedged.close();
+    }
+
+    @Test
+    @DisplayName("The losing call should be cancelled once the hedge answers")
+    void loserIsCancelled() throws Exception {
+        StubChatModel primary = new StubChatModel("primary", () -> 2000);
+        StubChatModel secondary = new StubChatModel("secondary", () -> 5);
+        HedgingChatModel hedged = new HedgingChatModel.Builder()
+                .primary(primary)
+                .secondary(secondary)
+                .initialDelay(Duration.ofMillis(10))
+                .build();
+
+        long start = System.nanoTime();
+        assertEquals("secondary", hedged.chat(request()).aiMessage().text());
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "should not wait for the slow primary");
+
+        for (int i = 0; i < 100 && primary.inFlight.get() > 0; i++) Thread.sleep(10);
+        assertEquals(0, primary.inFlight.get(), "primary call should have been interrupted");
+        assertEquals(1, hedged.stats().hedges());
+    }
+
+    @Test
+    @DisplayName("Closing should release only a pool the model created itself")
+    void closeReleasesOwnPool() {
+        ExecutorService shared = Executors.newCachedThreadPool();
+        HedgingChatModel onShared = new HedgingChatModel.Builder()
+                .primary(new StubChatModel("primary", () -> 1))
+                .secondary(new StubChatModel("secondary", () -> 1))
+                .executor(shared)
+                .build();
+        HedgingChatModel onOwn = new HedgingChatModel.Builder()
+                .primary(new StubChatModel("primary", () -> 1))
+                .secondary(new StubChatModel("secondary", () -> 1))
+                .build();
+
+        onShared.close();
+        onOwn.close();
+
+        assertEquals("primary", onShared.chat(request()).aiMessage().text());
+        assertThrows(RejectedExecutionException.class, () -> onOwn.chat(request()));
+        shared.shutdownNow();
+    }
+}
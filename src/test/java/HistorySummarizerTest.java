@@ -0,0 +1,120 @@
+import agent.Phase;
+import agent.activity.Activity;
+import agent.activity.HistorySummary;
+import agent.activity.ReasoningStep;
+import agent.context.ContextWindow;
+import agent.context.HistorySummarizer;
+import agent.context.TokenCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistorySummarizerTest {
+
+    private final ContextWindow window = new ContextWindow.Builder()
+            .counter(TokenCounter.approximate())
+            .historyBudget(Phase.REASON, 10_000)
+            .build();
+
+    @Test
+    @DisplayName("Aged-out steps should be folded off the calling thread into the activity summary")
+    void foldsAgedSteps() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        HistorySummarizer summarizer = new HistorySummarizer.Builder()
+                .contextWindow(window)
+                .keepRecent(3)
+                .batchSize(2)
+                .summarize((summary, steps) -> {
+                    threads.add(Thread.currentThread().getName());
+                    return (summary.isEmpty() ? "" : summary + " ") + "folded " + steps.lines().count();
+                })
+                .build();
+        Activity activity = new Activity("Set a timer");
+        for (int i = 0; i < 4; i++) activity.addStep(step(i));
+
+        assertFalse(summarizer.onStep(activity), "one aged step is less than a batch");
+        activity.addStep(step(4));
+        assertTrue(summarizer.onStep(activity));
+        awaitSummary(activity, 2);
+
+        assertEquals("folded 2", activity.getHistorySummary().text());
+        assertEquals(List.of("history-summarizer"), threads);
+
+        String history = window.history(activity, Phase.REASON);
+        assertTrue(history.startsWith("SUMMARY OF EARLIER STEPS: folded 2\n"), history);
+        assertFalse(history.contains("step 1\""));
+        assertTrue(history.contains("step 2") && history.contains("step 4"));
+        // The label around the summary is part of the prompt too
+        assertTrue(Math.abs(window.promptTokens(history) - TokenCounter.approximate().count(history)) <= 4);
+        summarizer.close();
+    }
+
+    @Test
+    @DisplayName("Prompt history should stay bounded as the number of steps grows")
+    void promptSizeStaysConstant() throws Exception {
+        HistorySummarizer summarizer = new HistorySummarizer.Builder()
+                .contextWindow(window)
+                .keepRecent(4)
+                .batchSize(4)
+                .maxSummaryTokens(50)
+                .summarize((summary, steps) -> summary + " " + "s".repeat(steps.length()))
+                .build();
+        Activity activity = new Activity("Set a timer");
+
+        int first = 0;
+        for (int i = 0; i < 200; i++) {
+            activity.addStep(step(i));
+            if (summarizer.onStep(activity)) awaitSummary(activity, activity.getHistory().size() - 4);
+            int tokens = TokenCounter.approximate().count(window.history(activity, Phase.REASON));
+            if (i == 10) first = tokens;
+            if (i > 10) assertTrue(tokens <= first + 10, "step " + i + " grew the prompt to " + tokens);
+        }
+        assertEquals(0, summarizer.failures());
+        assertTrue(summarizer.folds() >= 40);
+        summarizer.close();
+    }
+
+    @Test
+    @DisplayName("Steps appended while a fold is in flight should not break the fold")
+    void appendDuringFold() throws Exception {
+        HistorySummarizer summarizer = new HistorySummarizer.Builder()
+                .contextWindow(window)
+                .keepRecent(2)
+                .batchSize(2)
+                .summarize((summary, steps) -> "folded " + steps.lines().count())
+                .build();
+        Activity activity = new Activity("Set a timer");
+
+        // The lane serialises the aged steps while this thread keeps appending
+        for (int i = 0; i < 2_000; i++) {
+            activity.addStep(step(i));
+            summarizer.onStep(activity);
+        }
+        while (!summarizer.onStep(activity) && activity.getHistorySummary().steps() < 1_996) Thread.sleep(5);
+        awaitSummary(activity, 1_996);
+
+        assertEquals(0, summarizer.failures());
+        assertTrue(summarizer.folds() > 1);
+        summarizer.close();
+    }
+
+    private static ReasoningStep step(int i) {
+        return new ReasoningStep("act", "step " + i, "Timer " + i + " started", Map.of());
+    }
+
+    private static void awaitSummary(Activity activity, int steps) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (activity.getHistorySummary().steps() < steps) {
+            if (System.nanoTime() > deadline) fail("no summary covering " + steps + " steps");
+            Thread.sleep(5);
+        }
+        HistorySummary summary = activity.getHistorySummary();
+        assertTrue(summary.tokens() > 0);
+    }
+}
@@ -0,0 +1,55 @@
+import agent.activity.Activity;
+import agent.memory.AgentMemory;
+import agent.memory.EpisodicMemory;
+import agent.memory.HashingEmbeddingModel;
+import com.fasterxml.jackson.databind.node.TextNode;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrEventsTest {
+
+    @Test
+    @DisplayName("Belief updates and memory retrievals should show up in a flight recording")
+    void emitsAgentEvents() throws Exception {
+        AgentMemory memory = new AgentMemory.Builder().embeddingModel(new HashingEmbeddingModel()).build();
+        memory.save(new EpisodicMemory("Set a timer for 2 seconds called kettle", "SUCCESS", "done", List.of("Set timer")));
+        Activity activity = new Activity("Set a timer");
+
+        Path file = Files.createTempFile("agent", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("agent.BeliefUpdate").withThreshold(Duration.ZERO);
+            recording.enable("agent.MemoryRetrieval").withThreshold(Duration.ZERO);
+            recording.start();
+            activity.setBelief("kettle", TextNode.valueOf("finished"));
+            memory.retrieveRelevantMemories("Set a timer for 3 seconds called tea", 2, "SUCCESS");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+        List<String> names = events.stream().map(e -> e.getEventType().getName()).collect(Collectors.toList());
+        assertTrue(names.contains("agent.BeliefUpdate"), names.toString());
+        assertTrue(names.contains("agent.MemoryRetrieval"), names.toString());
+
+        RecordedEvent belief = events.stream().filter(e -> e.getEventType().getName().equals("agent.BeliefUpdate")).findFirst().orElseThrow();
+        assertEquals(activity.getUuid(), belief.getString("activityId"));
+        assertEquals("kettle", belief.getString("key"));
+        assertEquals(8, belief.getInt("valueChars"));
+
+        RecordedEvent retrieval = events.stream().filter(e -> e.getEventType().getName().equals("agent.MemoryRetrieval")).findFirst().orElseThrow();
+        assertEquals(1, retrieval.getInt("storeSize"));
+        assertEquals("SUCCESS", retrieval.getString("outcome"));
+    }
+}
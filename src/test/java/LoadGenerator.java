@@ -0,0 +1,124 @@
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Open-loop load generator: submits N activities at a fixed rate and records each
+ * time-to-completion from its intended start, so a stalled agent cannot hide its
+ * own backlog (no coordinated omission).
+ */
+public class LoadGenerator {
+    private final IntFunction<CompletableFuture<?>> submitter;
+    private final int activities;
+    private final double ratePerSecond;
+    private final Duration timeout;
+
+    private LoadGenerator(Builder builder) {
+        this.submitter = builder.submitter;
+        this.activities = builder.activities;
+        this.ratePerSecond = builder.ratePerSecond;
+        this.timeout = builder.timeout;
+    }
+
+    public Report run() throws InterruptedException {
+        Histogram histogram = new Histogram(3);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(activities);
+
+        long intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        long start = System.nanoTime();
+        for (int i = 0; i < activities; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            CompletableFuture<?> future;
+            try {
+                future = submitter.apply(i);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            inFlight.add(future.whenComplete((result, error) -> {
+                if (error != null) {
+                    failed.incrementAndGet();
+                    return;
+                }
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+                synchronized (histogram) {
+                    histogram.recordValue(micros);
+                }
+                completed.incrementAndGet();
+            }));
+        }
+
+        try {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | java.util.concurrent.ExecutionException e) {
+            // Reported through the completed/failed counts
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        synchronized (histogram) {
+            return new Report(activities, completed.get(), failed.get(), elapsedSeconds,
+                    completed.get() / elapsedSeconds,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    public record Report(int submitted, int completed, int failed, double elapsedSeconds, double completionsPerSecond,
+                         double p50Millis, double p99Millis, double p999Millis, double maxMillis) {
+        @Override
+        public String toString() {
+            return String.format("submitted=%d completed=%d failed=%d elapsedS=%.2f completionsPerS=%.1f p50Ms=%.1f p99Ms=%.1f p999Ms=%.1f maxMs=%.1f",
+                    submitted, completed, failed, elapsedSeconds, completionsPerSecond, p50Millis, p99Millis, p999Millis, maxMillis);
+        }
+    }
+
+    public static class Builder {
+        private IntFunction<CompletableFuture<?>> submitter;
+        private int activities = 100;
+        private double ratePerSecond = 10;
+        private Duration timeout = Duration.ofMinutes(2);
+
+        /**
+         * Submits activity number i and returns its completion future.
+         */
+        public Builder submitter(IntFunction<CompletableFuture<?>> submitter) {
+            this.submitter = submitter;
+            return this;
+        }
+
+        public Builder activities(int activities) {
+            this.activities = activities;
+            return this;
+        }
+
+        public Builder rate(double perSecond) {
+            this.ratePerSecond = perSecond;
+            return this;
+        }
+
+        /**
+         * How long to wait for stragglers after the last submission.
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            if (submitter == null) throw new IllegalStateException("submitter is required");
+            return new LoadGenerator(this);
+        }
+    }
+}
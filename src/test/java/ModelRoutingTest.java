@@ -0,0 +1,48 @@
+import agent.Phase;
+import agent.metrics.PhaseMetrics;
+import agent.model.ModelRouter;
+import agent.model.PhaseChatModel;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelRoutingTest {
+
+    private static ChatRequest request(String text) {
+        return ChatRequest.builder().messages(UserMessage.from(text)).build();
+    }
+
+    @Test
+    @DisplayName("Phase model should record calls, latency and tokens for its phase only")
+    void phaseModelRecordsMetrics() {
+        PhaseMetrics metrics = new PhaseMetrics();
+        PhaseChatModel observe = new PhaseChatModel(Phase.OBSERVE, new StubChatModel("{\"completed\":false}", () -> 5), metrics);
+
+        observe.chat(request("hello"));
+        observe.chat(request("again"));
+
+        PhaseMetrics.PhaseStats stats = metrics.snapshot(Phase.OBSERVE);
+        assertEquals(2, stats.calls());
+        assertEquals(20, stats.inputTokens());
+        assertTrue(stats.meanLatencyMillis() >= 4, "latency should include the stub delay");
+        assertEquals(0, metrics.snapshot(Phase.REASON).calls());
+    }
+
+    @Test
+    @DisplayName("Routers should pick the small model for small prompts and simple goals")
+    void routersPickModels() {
+        StubChatModel small = new StubChatModel("small");
+        StubChatModel large = new StubChatModel("large");
+
+        ModelRouter bySize = ModelRouter.byPromptSize(100, small, large);
+        assertSame(small, bySize.route(Phase.OBSERVE, "goal", 50));
+        assertSame(large, bySize.route(Phase.REASON, "goal", 500));
+
+        ModelRouter byGoal = ModelRouter.byGoalComplexity(200, small, large);
+        assertSame(small, byGoal.route(Phase.REASON, "Set a timer for 2 seconds", 0));
+        assertSame(large, byGoal.route(Phase.REASON, "First subscribe. Then set timer A. ALSO set timer B. Then wait.", 0));
+    }
+}
@@ -0,0 +1,124 @@
+import agent.model.StructuredOutputChatModel;
+import agent.response.ActResult;
+import agent.response.ObserveResult;
+import agent.response.PhaseResponseDecoder;
+import agent.response.ReflectResult;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhaseResponseDecoderTest {
+
+    private final PhaseResponseDecoder decoder = new PhaseResponseDecoder();
+
+    @Test
+    @DisplayName("Fenced and chatty responses should decode without pre-cleaning")
+    void decodesFencedResponses() {
+        ActResult fenced = decoder.decode("```json\n{\"tool_name\": \"timerTool\", \"summary\": \"started\"}\n```", ActResult.class);
+        assertTrue(fenced.calledTool());
+        assertEquals("timerTool", fenced.toolName());
+
+        ActResult chatty = decoder.decode("Sure! Here it is: {\"tool_name\": \"null\", \"summary\": \"no tool\"} Hope it helps {", ActResult.class);
+        assertFalse(chatty.calledTool());
+        assertEquals("no tool", chatty.summary());
+    }
+
+    @Test
+    @DisplayName("Braces in the chatter before the JSON should not hide the response")
+    void skipsBracesInLeadingProse() {
+        ObserveResult result = decoder.decode("""
+                I will use {timer_id} from the context, and {x} is not needed.
+                ```json
+                {"completed": false, "summary": "waiting", "new_progress": "1 [x] Subscribe"}
+                ```
+                """, ObserveResult.class);
+
+        assertNotNull(result);
+        assertEquals("waiting", result.summary());
+        assertEquals("1 [x] Subscribe", result.newProgress());
+        assertNull(decoder.decode("use {x} and {y}", ObserveResult.class));
+    }
+
+    @Test
+    @DisplayName("A batch of tool calls should decode with its quorum")
+    void decodesToolBatch() {
+        ActResult batch = decoder.decode("""
+                {"tool_name": "setTimer", "tool_names": ["setTimer", "setTimer", "null"], "wait_for": 1, "summary": "started"}
+                """, ActResult.class);
+        assertTrue(batch.calledTool());
+        assertEquals(List.of("setTimer", "setTimer"), batch.calls());
+        assertEquals(1, batch.waitFor());
+
+        ActResult single = decoder.decode("{\"tool_name\": \"timerTool\", \"summary\": \"started\"}", ActResult.class);
+        assertEquals(List.of("timerTool"), single.calls());
+        assertEquals(0, single.waitFor());
+    }
+
+    @Test
+    @DisplayName("Observation should carry progress, variables and the completion flag in one decode")
+    void decodesObservation() {
+        ObserveResult result = decoder.decode("""
+                {"completed": "true", "summary": "done",
+                 "new_progress": "1 [x] Set timer",
+                 "update_variables": {"timer_id": 42, "state": "finished"},}
+                """, ObserveResult.class);
+
+        assertTrue(result.completed());
+        assertEquals("1 [x] Set timer", result.newProgress());
+        assertEquals(42, result.updateVariables().get("timer_id").asInt());
+
+        ObserveResult nested = decoder.decode("{\"result\": {\"completed\": true}, \"update_variables\": \"n/a\"}", ObserveResult.class);
+        assertTrue(nested.completed());
+        assertNull(nested.newProgress());
+        assertTrue(nested.updateVariables().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Reflection lists should tolerate missing fields and single strings")
+    void decodesReflection() {
+        ReflectResult result = decoder.decode("{'summary': 'ok', 'successful_procedure': 'Set timer', 'keywords': ['timer']}", ReflectResult.class);
+
+        assertEquals("UNKNOWN", result.outcome());
+        assertEquals(List.of("Set timer"), result.successfulProcedure());
+        assertEquals(List.of("timer"), result.keywords());
+        assertTrue(result.lessonsLearned().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Non-JSON responses should decode to null")
+    void rejectsGarbage() {
+        assertNull(decoder.decode(null, ActResult.class));
+        assertNull(decoder.decode("I could not do it.", ActResult.class));
+        assertNull(decoder.decode("{ broken", ObserveResult.class));
+    }
+
+    @Test
+    @DisplayName("Structured output model should request the phase JSON schema")
+    void structuredOutputSetsResponseFormat() {
+        AtomicReference<ChatRequest> seen = new AtomicReference<>();
+        ChatModel backend = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                seen.set(chatRequest);
+                return ChatResponse.builder().aiMessage(AiMessage.from("{\"completed\": false}")).build();
+            }
+        };
+        ChatModel model = new StructuredOutputChatModel(backend, ObserveResult.jsonSchema());
+
+        model.chat(ChatRequest.builder().messages(UserMessage.from("observe")).build());
+
+        assertEquals(ResponseFormatType.JSON, seen.get().responseFormat().type());
+        assertEquals("ObserveResult", seen.get().responseFormat().jsonSchema().name());
+        assertEquals(1, seen.get().messages().size());
+    }
+}
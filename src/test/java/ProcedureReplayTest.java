@@ -0,0 +1,112 @@
+import agent.memory.AgentMemory;
+import agent.memory.EpisodicMemory;
+import agent.memory.HashingEmbeddingModel;
+import agent.memory.ToolStep;
+import agent.replay.ProcedureBinder;
+import agent.replay.RecordingToolProvider;
+import agent.replay.ReplayPlan;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcedureReplayTest {
+
+    private static final String RECORDED_UUID = "11111111-1111-1111-1111-111111111111";
+    private static final String NEW_UUID = "22222222-2222-2222-2222-222222222222";
+
+    private static EpisodicMemory timerProcedure() {
+        List<ToolStep> trace = List.of(
+                new ToolStep("timerTool", "{\"action\":\"subscribe\",\"uuid\":\"" + RECORDED_UUID + "\"}", List.of("subscription.started")),
+                new ToolStep("timerTool", "{\"action\":\"set\",\"seconds\":2,\"name\":\"alpha\",\"uuid\":\"" + RECORDED_UUID + "\"}", List.of("timer.finished")));
+        return new EpisodicMemory("Subscribe, then set a timer for 2 seconds called alpha", "SUCCESS", "Timer set",
+                List.of("Subscribe to notifications", "Set timer for required duration", "Wait for timer.finished"),
+                List.of(), List.of("timer"), ProcedureBinder.generalize(trace, RECORDED_UUID));
+    }
+
+    @Test
+    @DisplayName("Goal literals and the activity id should be rebound to the new goal")
+    void bindsArgumentsToNewGoal() {
+        ReplayPlan plan = ProcedureBinder.bind(timerProcedure(), "Subscribe, then set a timer for 5 second called beta", NEW_UUID);
+
+        assertNotNull(plan);
+        assertEquals(2, plan.steps().size());
+        String setArguments = plan.steps().get(1).arguments();
+        assertTrue(setArguments.contains("\"seconds\":5"), setArguments);
+        assertTrue(setArguments.contains("\"name\":\"beta\""), setArguments);
+        assertTrue(setArguments.contains(NEW_UUID), setArguments);
+        assertFalse(setArguments.contains(RECORDED_UUID));
+    }
+
+    @Test
+    @DisplayName("Goals that differ in ways no argument carries should not be replayed")
+    void refusesUnboundDifferences() {
+        assertNull(ProcedureBinder.bind(timerProcedure(), "Subscribe, then cancel a timer for 2 seconds called alpha", NEW_UUID));
+        assertNull(ProcedureBinder.bind(timerProcedure(), "Set a timer called alpha", NEW_UUID));
+        assertNull(ProcedureBinder.bind(timerProcedure(), "Subscribe, then set a timer for two seconds called alpha", NEW_UUID));
+    }
+
+    @Test
+    @DisplayName("Plan should wait for the recorded events and reject unexpected ones")
+    void planTracksExpectedEvents() {
+        ReplayPlan plan = ProcedureBinder.bind(timerProcedure(), "Subscribe, then set a timer for 3 seconds called gamma", NEW_UUID);
+
+        plan.next();
+        assertTrue(plan.awaitingEvents());
+        assertTrue(plan.acceptEvents(List.of("subscription.started")));
+        assertFalse(plan.awaitingEvents());
+
+        plan.next();
+        assertFalse(plan.acceptEvents(List.of("timer.cancelled")), "unexpected event means divergence");
+        assertTrue(plan.acceptEvents(List.of("timer.finished")));
+        assertTrue(plan.finished());
+        assertTrue(plan.completedProgress().startsWith("1 [x] Subscribe"));
+    }
+
+    @Test
+    @DisplayName("Tool calls should be recorded and replayable without the model")
+    void recordsAndExecutesTools() {
+        List<String> executed = new ArrayList<>();
+        ToolProvider tools = request -> ToolProviderResult.builder()
+                .add(ToolSpecification.builder().name("timerTool").build(), (call, memoryId) -> {
+                    executed.add(call.arguments());
+                    return "ok";
+                })
+                .build();
+        List<String> recorded = new ArrayList<>();
+        RecordingToolProvider provider = new RecordingToolProvider(tools, (call, result) -> recorded.add(call.name() + result));
+
+        provider.provideTools(new ToolProviderRequest("m", UserMessage.from("go"))).tools().values().iterator().next()
+                .execute(ToolExecutionRequest.builder().name("timerTool").arguments("{\"a\":1}").build(), "m");
+        assertEquals(List.of("timerToolok"), recorded);
+
+        assertEquals("ok", provider.execute("timerTool", "{\"a\":2}", "m"));
+        assertEquals(List.of("{\"a\":1}", "{\"a\":2}"), executed);
+        assertEquals(1, recorded.size(), "replayed calls are not recorded twice");
+        assertThrows(IllegalStateException.class, () -> provider.execute("missingTool", "{}", "m"));
+    }
+
+    @Test
+    @DisplayName("Memory should offer a stored procedure for a similar goal only")
+    void memoryFindsReplayableProcedure() {
+        AgentMemory memory = new AgentMemory.Builder()
+                .embeddingModel(new HashingEmbeddingModel())
+                .build();
+        memory.save(timerProcedure());
+        memory.save(new EpisodicMemory("Send an email to bob", "SUCCESS", "sent", List.of("send")));
+
+        EpisodicMemory found = memory.findReplayableProcedure("Subscribe, then set a timer for 9 seconds called delta", 0.6);
+        assertNotNull(found);
+        assertEquals(2, found.getToolSteps().size());
+        assertNull(memory.findReplayableProcedure("Send an email to alice", 0.6), "memories without tool steps are not replayable");
+    }
+}
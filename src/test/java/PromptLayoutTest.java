@@ -0,0 +1,169 @@
+import agent.Phase;
+import agent.PrefixCachedBrain;
+import agent.ReactBrain;
+import agent.activity.Activity;
+import agent.activity.ReasoningStep;
+import agent.context.ContextWindow;
+import agent.context.TokenCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PromptLayoutTest {
+    private static final String OLLAMA = System.getProperty("ollama.url", "http://localhost:11434");
+    private static final String OLLAMA_MODEL = System.getProperty("ollama.model", "qwen2.5");
+    private static final int PHASES = 60;
+    private static final int BLOCK = 8;
+
+    @Test
+    @DisplayName("Consecutive phases of one activity should share the goal and history as a prompt prefix")
+    void phasesShareAPrefix() throws Exception {
+        List<String> classic = prompts(ReactBrain.class, "Set a timer for 5 seconds called classic");
+        List<String> cached = prompts(PrefixCachedBrain.class, "Set a timer for 5 seconds called cached");
+        assertTrue(cached.get(PHASES - 1).contains("earlier steps omitted)"), "the history never outgrew its budget");
+
+        int breaks = 0;
+        long sharedCached = 0, sharedClassic = 0;
+        for (int i = 1; i < cached.size(); i++) {
+            int shared = commonPrefix(cached.get(i - 1), cached.get(i));
+            // Everything up to the history of the previous prompt is reused, unless a block just left the window
+            if (cached.get(i - 1).indexOf("=== CURRENT PHASE ===") > shared + 200) breaks++;
+            sharedCached += shared;
+            sharedClassic += commonPrefix(classic.get(i - 1), classic.get(i));
+        }
+        // One step is added per phase, so a block leaves the window at most every BLOCK phases
+        assertTrue(breaks <= PHASES / BLOCK + 1, breaks + " phases broke the shared prefix");
+        assertTrue(sharedCached > 4 * sharedClassic);
+    }
+
+    /**
+     * Time to first token on a local model: Ollama keeps the KV cache of the previous
+     * request and only evaluates the part of the prompt after the shared prefix.
+     * Skipped when no Ollama is reachable or the model is not pulled; -Dollama.url and
+     * -Dollama.model override the defaults. Timings are only reported: they are too noisy to assert on.
+     */
+    @Test
+    @DisplayName("The prefix-cached layout should evaluate fewer prompt tokens on a local model")
+    void localModelPromptEvalTimings() throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        JsonNode tags = null;
+        try {
+            String body = client.send(HttpRequest.newBuilder(URI.create(OLLAMA + "/api/tags")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            tags = new ObjectMapper().readTree(body);
+        } catch (Exception e) {
+            Assumptions.assumeTrue(false, "Ollama not reachable at " + OLLAMA);
+        }
+        boolean pulled = false;
+        for (JsonNode model : tags.path("models")) {
+            String name = model.path("name").asText();
+            pulled |= name.equals(OLLAMA_MODEL) || name.startsWith(OLLAMA_MODEL + ":");
+        }
+        Assumptions.assumeTrue(pulled, OLLAMA_MODEL + " is not pulled on " + OLLAMA);
+
+        Timings classic = evaluate(client, prompts(ReactBrain.class, "Set a timer for 5 seconds called classic"));
+        Timings cached = evaluate(client, prompts(PrefixCachedBrain.class, "Set a timer for 5 seconds called cached"));
+        System.out.printf("classic: %d prompt tokens evaluated in %.1f ms, ttft %.1f ms%n", classic.tokens, classic.evalMillis, classic.ttftMillis);
+        System.out.printf("cached:  %d prompt tokens evaluated in %.1f ms, ttft %.1f ms%n", cached.tokens, cached.evalMillis, cached.ttftMillis);
+
+        assertTrue(cached.tokens < classic.tokens);
+    }
+
+    /**
+     * REASON, ACT, OBSERVE, REASON, ... of one activity, one step added per phase, as the loop would render them.
+     * The budget is small enough for the history to outgrow it after about a third of the phases.
+     */
+    private static List<String> prompts(Class<? extends ReactBrain> brain, String goal) throws Exception {
+        ContextWindow window = new ContextWindow.Builder()
+                .counter(TokenCounter.approximate())
+                .loopHistoryBudget(800)
+                .blockSize(BLOCK)
+                .build();
+        Activity activity = new Activity(goal);
+        String context = "{\"activityUuid\":\"" + activity.getUuid() + "\",\"variables\":{}}";
+        List<String> prompts = new ArrayList<>();
+        Phase[] cycle = {Phase.REASON, Phase.ACT, Phase.OBSERVE};
+        for (int i = 0; i < PHASES; i++) {
+            Phase phase = cycle[i % 3];
+            String history = window.history(activity, phase);
+            String progress = "1 [" + (i > 3 ? "x" : " ") + "] Subscribe\n2 [ ] Set timer";
+            Map<String, String> values = Map.of("goal", goal, "history", history, "context", context,
+                    "progress", progress, "memories", "", "events", "[{\"event\":\"tick\",\"n\":" + i + "}]", "fork", "");
+            prompts.add(render(brain, phase, values));
+            activity.addStep(new ReasoningStep(phase.methodName(), "step " + i,
+                    "Result of step " + i + ": subscribed to the timer server and waiting for events", Map.of()));
+        }
+        return prompts;
+    }
+
+    private static String render(Class<? extends ReactBrain> brain, Phase phase, Map<String, String> values) {
+        for (Method method : brain.getMethods()) {
+            // Overrides hide the ReactBrain declarations they replace
+            if (!method.getName().equals(phase.methodName())) continue;
+            String template = String.join("\n", method.getAnnotation(UserMessage.class).value());
+            for (Parameter parameter : method.getParameters()) {
+                String name = parameter.getAnnotation(V.class).value();
+                template = template.replace("{{" + name + "}}", values.get(name));
+            }
+            return template;
+        }
+        throw new IllegalArgumentException("no " + phase + " method on " + brain);
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    private static Timings evaluate(HttpClient client, List<String> prompts) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Timings timings = new Timings();
+        for (int i = 0; i < prompts.size(); i++) {
+            String body = mapper.writeValueAsString(Map.of(
+                    "model", OLLAMA_MODEL,
+                    "prompt", prompts.get(i),
+                    "stream", false,
+                    "keep_alive", "5m",
+                    "options", Map.of("temperature", 0, "num_predict", 1)));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(OLLAMA + "/api/generate"))
+                    .timeout(Duration.ofMinutes(2))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            JsonNode response = mapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+            // The first prompt warms the cache for both layouts alike
+            if (i == 0) continue;
+            timings.tokens += response.path("prompt_eval_count").asLong();
+            timings.evalMillis += response.path("prompt_eval_duration").asLong() / 1e6;
+            // One generated token: load plus prompt evaluation plus that token
+            timings.ttftMillis += (response.path("load_duration").asLong()
+                    + response.path("prompt_eval_duration").asLong()
+                    + response.path("eval_duration").asLong()) / 1e6;
+        }
+        return timings;
+    }
+
+    private static class Timings {
+        long tokens;
+        double evalMillis;
+        double ttftMillis;
+    }
+}
@@ -0,0 +1,124 @@
+import agent.AsyncAgent;
+import agent.ReactBrain;
+import agent.activity.Activity;
+import agent.memory.AgentMemory;
+import agent.memory.HashingEmbeddingModel;
+import dev.langchain4j.mcp.McpToolProvider;
+import dev.langchain4j.mcp.client.DefaultMcpClient;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.mcp.client.transport.McpTransport;
+import dev.langchain4j.mcp.client.transport.http.StreamableHttpMcpTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The real event loop against the in-process timer server and a scripted model, for
+ * behaviour that only shows across several phases of one activity.
+ */
+public class ScriptedAgentTest {
+    private TimerMcpServer server;
+    private McpClient client;
+    private final List<AsyncAgent<ReactBrain>> agents = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new TimerMcpServer.Builder().timeScale(0.01).start();
+        McpTransport transport = new StreamableHttpMcpTransport.Builder().url(server.mcpUrl()).build();
+        transport.start(new ActivitySubmissionIntegrationTest.NoOpHandler(transport));
+        client = new DefaultMcpClient.Builder()
+                .transport(transport)
+                .toolExecutionTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        agents.forEach(AsyncAgent::shutdown);
+        client.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("A wait whose wake conditions never match should resume after the wake timeout")
+    void wakeTimeoutResumesWait() throws Exception {
+        // Waits on a misspelled event; only the timeout's own event lets it complete
+        ScriptedChatModel model = ScriptedChatModel.timerScript()
+                .waitFor("timer.finshed")
+                .completeOn("wake.timeout", 1)
+                .build();
+        AsyncAgent<ReactBrain> agent = agent(model, builder -> builder.wakeTimeout(Duration.ofMillis(300)));
+
+        Activity activity = agent.submit("First subscribe, then set a timer for 1 seconds called typo")
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(Activity.Status.COMPLETED, activity.getStatus());
+        assertEquals(1, server.timersFired(), "the timer fired but did not match the wait");
+    }
+
+    @Test
+    @DisplayName("With async tools, a tool result alone should wake the activity")
+    void asyncToolResultWakesActivity() throws Exception {
+        // No SSE stream: the dispatched call's result is the only event the activity gets
+        ScriptedChatModel model = new ScriptedChatModel.Builder()
+                .step(TimerMcpServer.TOOL_NAME, "{\"action\":\"subscribe\",\"uuid\":\"{{uuid}}\"}")
+                .completeOn("tool.result", 1)
+                .build();
+        AsyncAgent<ReactBrain> agent = agent(model, builder -> builder.sseUrl(null).asyncTools(Duration.ofSeconds(5)));
+
+        Activity activity = agent.submit("Subscribe to the timer server").get(30, TimeUnit.SECONDS);
+
+        assertEquals(Activity.Status.COMPLETED, activity.getStatus());
+        assertEquals(1, server.toolCalls());
+    }
+
+    @Test
+    @DisplayName("Forked sub-goals should run as children and resume the parent once all have joined")
+    void forkJoinCompletesParent() throws Exception {
+        ScriptedChatModel model = ScriptedChatModel.timerScript()
+                .fork("Set a timer for 1 seconds called left", "Set a timer for 2 seconds called right")
+                .build();
+        AsyncAgent<ReactBrain> agent = agent(model, builder -> builder.maxForks(2));
+
+        Activity parent = agent.submit("Set two independent timers, left and right").get(30, TimeUnit.SECONDS);
+
+        assertEquals(Activity.Status.COMPLETED, parent.getStatus());
+        assertFalse(parent.hasPendingChildren());
+        assertEquals(2, server.timersFired(), "one timer per child");
+    }
+
+    @Test
+    @DisplayName("Without maxForks the observation should not be offered forking")
+    void forkingIsOptIn() throws Exception {
+        ScriptedChatModel model = ScriptedChatModel.timerScript()
+                .fork("Set a timer for 1 seconds called left", "Set a timer for 2 seconds called right")
+                .build();
+        AsyncAgent<ReactBrain> agent = agent(model, builder -> builder);
+
+        Activity activity = agent.submit("First subscribe, then set a timer for 1 seconds called solo").get(30, TimeUnit.SECONDS);
+
+        assertEquals(Activity.Status.COMPLETED, activity.getStatus());
+        assertEquals(1, server.timersFired(), "the activity ran the script itself");
+    }
+
+    private AsyncAgent<ReactBrain> agent(ScriptedChatModel model, UnaryOperator<AsyncAgent.Builder<ReactBrain>> options) {
+        AsyncAgent.Builder<ReactBrain> builder = new AsyncAgent.Builder<ReactBrain>()
+                .model(model)
+                .agentInterface(ReactBrain.class)
+                .mcpToolProvider(McpToolProvider.builder().mcpClients(List.of(client)).build())
+                .sseUrl(server.sseUrl())
+                .memory(new AgentMemory.Builder().embeddingModel(new HashingEmbeddingModel()).build());
+        AsyncAgent<ReactBrain> agent = options.apply(builder).build();
+        agents.add(agent);
+        return agent;
+    }
+}
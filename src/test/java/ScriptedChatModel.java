@@ -0,0 +1,354 @@
+import agent.Phase;
+import agent.ReactBrain;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic local stand-in for the LLM behind {@code ReactBrain}.
+ *
+ * It recognises the phase from the prompt and answers with valid phase JSON. Each
+ * ACTION issues the next step of a tool-call script as native tool calls (one call,
+ * or a batch); OBSERVATION plans, then completes once the completion event has been
+ * seen often enough. With sub-goals configured, an observation that is offered the
+ * fork option forks them once and completes when all of them have joined. State is kept per activity uuid, so one model can serve many
+ * agents and activities. Latency is drawn per phase from configurable distributions.
+ */
+public class ScriptedChatModel implements ChatModel {
+    private static final Pattern ACTIVITY_UUID = Pattern.compile("\"activityUuid\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern SECONDS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*seconds?");
+    private static final Pattern NAME = Pattern.compile("called\\s+([\\w.-]+)");
+
+    private final List<List<ToolCall>> steps;
+    private final String completionEvent;
+    private final int completionCount;
+    private final String waitFor;
+    private final List<String> forkGoals;
+    private final Map<Phase, LongSupplier> latencies;
+    private final LongSupplier defaultLatency;
+
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+    private final Map<Phase, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger callIds = new AtomicInteger();
+
+    private ScriptedChatModel(Builder builder) {
+        this.steps = List.copyOf(builder.steps);
+        this.completionEvent = builder.completionEvent;
+        this.completionCount = builder.completionCount;
+        this.waitFor = builder.waitFor;
+        this.forkGoals = List.copyOf(builder.forkGoals);
+        this.latencies = new EnumMap<>(builder.latencies);
+        this.defaultLatency = builder.defaultLatency;
+    }
+
+    /**
+     * The timerTool contract: subscribe, set one timer, complete on timer.finished.
+     */
+    public static Builder timerScript() {
+        return new Builder()
+                .step("timerTool", "{\"action\":\"subscribe\",\"uuid\":\"{{uuid}}\"}")
+                .step("timerTool", "{\"action\":\"set\",\"seconds\":{{seconds}},\"name\":\"{{name}}\",\"uuid\":\"{{uuid}}\"}")
+                .completeOn("timer.finished", 1);
+    }
+
+    public long calls(Phase phase) {
+        AtomicLong count = calls.get(phase);
+        return count == null ? 0 : count.get();
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest request) {
+        String prompt = promptOf(request.messages());
+        Phase phase = phaseOf(prompt);
+        if (phase == null) {
+            return ChatResponse.builder().aiMessage(AiMessage.from("{}")).build();
+        }
+        calls.computeIfAbsent(phase, p -> new AtomicLong()).incrementAndGet();
+        sleep(latencies.getOrDefault(phase, defaultLatency).getAsLong());
+
+        AiMessage reply = switch (phase) {
+            case REASON -> AiMessage.from("Next: carry out the first pending step of the progress tracker.");
+            case ACT -> act(prompt, request.messages());
+            case OBSERVE -> AiMessage.from(observe(prompt));
+            case REFLECT -> AiMessage.from("""
+                    {"summary": "Completed the scripted procedure", "outcome": "SUCCESS", "lessons_learned": [],
+                     "successful_procedure": ["Subscribe", "Set timer", "Wait for timer.finished"], "keywords": ["timer"]}""");
+            case SUMMARIZE -> AiMessage.from("Subscribed and set the timer; waiting for " + completionEvent + ".");
+        };
+        String text = reply.text() == null ? "" : reply.text();
+        return ChatResponse.builder()
+                .aiMessage(reply)
+                .tokenUsage(new TokenUsage(prompt.length() / 4, Math.max(1, text.length() / 4)))
+                .build();
+    }
+
+    private AiMessage act(String prompt, List<ChatMessage> messages) {
+        Script script = scriptOf(prompt);
+        ChatMessage last = messages.get(messages.size() - 1);
+        if (last instanceof ToolExecutionResultMessage) {
+            // Second round of the same ACT: report what was called
+            List<String> names = new ArrayList<>();
+            for (ChatMessage message : messages) {
+                if (message instanceof ToolExecutionResultMessage result) names.add(result.toolName());
+            }
+            return AiMessage.from("{\"tool_name\": \"" + names.get(0) + "\", \"tool_names\": " + quoted(names)
+                    + ", \"summary\": \"Called " + String.join(", ", names) + "\"}");
+        }
+        List<ToolCall> step = script.nextStep();
+        if (step == null) {
+            return AiMessage.from("{\"tool_name\": null, \"summary\": \"Nothing left to call, waiting for events\"}");
+        }
+        List<ToolExecutionRequest> requests = new ArrayList<>();
+        for (ToolCall call : step) {
+            requests.add(ToolExecutionRequest.builder()
+                    .id("call-" + callIds.incrementAndGet())
+                    .name(call.toolName())
+                    .arguments(script.bind(call.argumentsTemplate()))
+                    .build());
+        }
+        return AiMessage.from(requests);
+    }
+
+    private String observe(String prompt) {
+        Script script = scriptOf(prompt);
+        if (!forkGoals.isEmpty() && prompt.contains(ReactBrain.FORK_OPTION)) {
+            return script.forkOrJoin(count(eventsSection(prompt), "\"child.completed\""));
+        }
+        int events = count(eventsSection(prompt), "\"" + completionEvent + "\"");
+        boolean done = script.observe(events, steps.size(), completionCount);
+        if (done) {
+            return "{\"completed\": true, \"summary\": \"All steps done and " + completionEvent + " received\"}";
+        }
+        StringBuilder progress = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++) {
+            progress.append(i + 1).append(i < script.stepsIssued() ? " [x] " : " [ ] ").append("Step ").append(i + 1).append("\\n");
+        }
+        progress.append(steps.size() + 1).append(" [ ] Wait for ").append(completionEvent);
+        String wakeOn = waitFor != null ? ", \"wake_on\": [{\"event\": \"" + waitFor + "\"}]"
+                : script.stepsIssued() >= steps.size() ? ", \"wake_on\": [{\"event\": \"" + completionEvent + "\"}]" : "";
+        return "{\"completed\": false, \"summary\": \"In progress\", \"new_progress\": \"" + progress + "\"" + wakeOn + "}";
+    }
+
+    private Script scriptOf(String prompt) {
+        Matcher uuid = ACTIVITY_UUID.matcher(prompt);
+        String key = uuid.find() ? uuid.group(1) : "unknown";
+        return scripts.computeIfAbsent(key, id -> new Script(id, goalOf(prompt)));
+    }
+
+    private static String goalOf(String prompt) {
+        int start = prompt.indexOf("GOAL:");
+        if (start < 0) return "";
+        int end = prompt.indexOf('\n', start);
+        return prompt.substring(start + 5, end < 0 ? prompt.length() : end).trim();
+    }
+
+    private static String eventsSection(String prompt) {
+        int start = prompt.indexOf("CONTEXT EVENTS:");
+        if (start < 0) return "";
+        int end = prompt.indexOf("CONTEXT:", start + 15);
+        return prompt.substring(start, end < 0 ? prompt.length() : end);
+    }
+
+    static Phase phaseOf(String prompt) {
+        if (prompt.contains("You are the ACTION phase")) return Phase.ACT;
+        if (prompt.contains("You are the OBSERVATION phase")) return Phase.OBSERVE;
+        if (prompt.contains("You are the REFLECTION phase")) return Phase.REFLECT;
+        if (prompt.contains("You are the REASONING phase")) return Phase.REASON;
+        if (prompt.contains("You are the SUMMARIZATION phase")) return Phase.SUMMARIZE;
+        return null;
+    }
+
+    private static String promptOf(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            if (message instanceof UserMessage user && user.hasSingleText()) return user.singleText();
+        }
+        return "";
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + needle.length())) count++;
+        return count;
+    }
+
+    private static String quoted(List<String> names) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        names.forEach(name -> joiner.add("\"" + name + "\""));
+        return joiner.toString();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted", e);
+        }
+    }
+
+    // -------------------------
+    // LATENCY DISTRIBUTIONS
+    // -------------------------
+
+    public static LongSupplier fixed(long millis) {
+        return () -> millis;
+    }
+
+    public static LongSupplier uniform(long minMillis, long maxMillis, long seed) {
+        Random random = new Random(seed);
+        return () -> {
+            synchronized (random) {
+                return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+            }
+        };
+    }
+
+    /**
+     * Long-tailed latency typical of hosted models: log-normal around {@code medianMillis}.
+     */
+    public static LongSupplier logNormal(double medianMillis, double sigma, long seed) {
+        Random random = new Random(seed);
+        return () -> {
+            synchronized (random) {
+                return Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+            }
+        };
+    }
+
+    public record ToolCall(String toolName, String argumentsTemplate) {}
+
+    /**
+     * Per-activity progress through the script.
+     */
+    private final class Script {
+        final String activityUuid;
+        final String seconds;
+        final String name;
+        int nextStep;
+        int completionEvents;
+        boolean forked;
+        int joined;
+
+        Script(String activityUuid, String goal) {
+            this.activityUuid = activityUuid;
+            Matcher s = SECONDS.matcher(goal);
+            this.seconds = s.find() ? s.group(1) : "1";
+            Matcher n = NAME.matcher(goal);
+            this.name = n.find() ? n.group(1) : "timer-" + activityUuid.substring(0, Math.min(8, activityUuid.length()));
+        }
+
+        synchronized List<ToolCall> nextStep() {
+            return nextStep < steps.size() ? steps.get(nextStep++) : null;
+        }
+
+        synchronized int stepsIssued() {
+            return nextStep;
+        }
+
+        synchronized boolean observe(int newCompletionEvents, int totalSteps, int required) {
+            completionEvents += newCompletionEvents;
+            return nextStep >= totalSteps && completionEvents >= required;
+        }
+
+        synchronized String forkOrJoin(int newJoins) {
+            if (!forked) {
+                forked = true;
+                return "{\"completed\": false, \"summary\": \"Independent sub-goals\", \"fork\": " + quoted(forkGoals) + "}";
+            }
+            joined += newJoins;
+            return joined >= forkGoals.size()
+                    ? "{\"completed\": true, \"summary\": \"All sub-goals joined\"}"
+                    : "{\"completed\": false, \"summary\": \"Waiting for sub-goals\"}";
+        }
+
+        String bind(String template) {
+            return template.replace("{{uuid}}", activityUuid)
+                    .replace("{{seconds}}", seconds)
+                    .replace("{{name}}", name)
+                    .replace("{{n}}", String.valueOf(callIds.get()));
+        }
+    }
+
+    public static class Builder {
+        private final List<List<ToolCall>> steps = new ArrayList<>();
+        private String completionEvent = "timer.finished";
+        private int completionCount = 1;
+        private String waitFor;
+        private final List<String> forkGoals = new ArrayList<>();
+        private final Map<Phase, LongSupplier> latencies = new EnumMap<>(Phase.class);
+        private LongSupplier defaultLatency = fixed(0);
+
+        /**
+         * One ACTION with a single tool call. Templates may use {{uuid}}, {{seconds}},
+         * {{name}} (from the goal) and {{n}} (a global call counter).
+         */
+        public Builder step(String toolName, String argumentsTemplate) {
+            steps.add(List.of(new ToolCall(toolName, argumentsTemplate)));
+            return this;
+        }
+
+        /**
+         * One ACTION issuing several independent calls at once.
+         */
+        public Builder batch(ToolCall... calls) {
+            steps.add(List.of(calls));
+            return this;
+        }
+
+        /**
+         * Observation completes once every step ran and {@code count} such events arrived.
+         */
+        public Builder completeOn(String eventName, int count) {
+            this.completionEvent = eventName;
+            this.completionCount = count;
+            return this;
+        }
+
+        /**
+         * Every observation asks to wake on this event only, instead of on anything until
+         * the last step and on the completion event after it.
+         */
+        public Builder waitFor(String eventName) {
+            this.waitFor = eventName;
+            return this;
+        }
+
+        /**
+         * Sub-goals the first observation forks when the prompt offers forking; each child
+         * runs the script on its own.
+         */
+        public Builder fork(String... subGoals) {
+            this.forkGoals.addAll(List.of(subGoals));
+            return this;
+        }
+
+        public Builder latency(LongSupplier millis) {
+            this.defaultLatency = millis;
+            return this;
+        }
+
+        public Builder latency(Phase phase, LongSupplier millis) {
+            this.latencies.put(phase, millis);
+            return this;
+        }
+
+        public ScriptedChatModel build() {
+            return new ScriptedChatModel(this);
+        }
+    }
+}
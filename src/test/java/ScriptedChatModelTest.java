@@ -0,0 +1,117 @@
+import agent.Phase;
+import agent.response.ActResult;
+import agent.response.ObserveResult;
+import agent.response.PhaseResponseDecoder;
+import agent.response.ReflectResult;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScriptedChatModelTest {
+
+    private static final String UUID = "6f1c1c7e-0000-4000-8000-000000000001";
+    private static final String CONTEXT = "CONTEXT: {\"activityUuid\":\"" + UUID + "\",\"variables\":{}}";
+    private static final String GOAL = "GOAL: Set a timer for 2 seconds called kettle\n";
+
+    private final PhaseResponseDecoder decoder = new PhaseResponseDecoder();
+
+    private static ChatRequest prompt(String text) {
+        return ChatRequest.builder().messages(UserMessage.from(text)).build();
+    }
+
+    private static String observePrompt(String events) {
+        return "You are the OBSERVATION phase.\n" + GOAL + "CONTEXT EVENTS: " + events + "\n" + CONTEXT;
+    }
+
+    @Test
+    @DisplayName("Scripted model should walk the timer contract with valid phase JSON")
+    void walksTimerScript() {
+        ScriptedChatModel model = ScriptedChatModel.timerScript().build();
+        String act = "You are the ACTION phase\n" + GOAL + CONTEXT;
+
+        ObserveResult plan = decoder.decode(model.chat(prompt(observePrompt("[]"))).aiMessage().text(), ObserveResult.class);
+        assertFalse(plan.completed());
+        assertTrue(plan.newProgress().contains("[ ]"));
+
+        AiMessage subscribe = model.chat(prompt(act)).aiMessage();
+        assertEquals(1, subscribe.toolExecutionRequests().size());
+        assertTrue(subscribe.toolExecutionRequests().get(0).arguments().contains(UUID));
+
+        AiMessage set = model.chat(prompt(act)).aiMessage();
+        ToolExecutionRequest call = set.toolExecutionRequests().get(0);
+        assertTrue(call.arguments().contains("\"seconds\":2") && call.arguments().contains("kettle"), call.arguments());
+
+        // The second round of an ACT reports the calls as ActResult JSON
+        ActResult reported = decoder.decode(model.chat(ChatRequest.builder().messages(
+                UserMessage.from(act), set, ToolExecutionResultMessage.from(call.id(), call.name(), "started")).build())
+                .aiMessage().text(), ActResult.class);
+        assertEquals("timerTool", reported.toolName());
+
+        ObserveResult waiting = decoder.decode(model.chat(prompt(observePrompt("[{\"name\":\"subscription.started\"}]"))).aiMessage().text(), ObserveResult.class);
+        assertFalse(waiting.completed());
+        assertFalse(waiting.wakeOn().isEmpty(), "all steps issued: wait for the completion event");
+
+        ObserveResult done = decoder.decode(model.chat(prompt(observePrompt("[{\"name\":\"timer.finished\"}]"))).aiMessage().text(), ObserveResult.class);
+        assertTrue(done.completed());
+
+        ReflectResult reflection = decoder.decode(model.chat(prompt("You are the REFLECTION phase.\nTASK GOAL: x")).aiMessage().text(), ReflectResult.class);
+        assertEquals("SUCCESS", reflection.outcome());
+        assertEquals(3, model.calls(Phase.ACT), "two steps plus one reporting round");
+    }
+
+    @Test
+    @DisplayName("Batch steps should issue several tool calls in one ACTION")
+    void batchStep() {
+        ScriptedChatModel model = new ScriptedChatModel.Builder()
+                .batch(new ScriptedChatModel.ToolCall("timerTool", "{\"action\":\"set\",\"seconds\":1,\"name\":\"a\",\"uuid\":\"{{uuid}}\"}"),
+                        new ScriptedChatModel.ToolCall("timerTool", "{\"action\":\"set\",\"seconds\":1,\"name\":\"b\",\"uuid\":\"{{uuid}}\"}"))
+                .completeOn("timer.finished", 2)
+                .latency(Phase.ACT, ScriptedChatModel.fixed(5))
+                .build();
+
+        long start = System.nanoTime();
+        AiMessage batch = model.chat(prompt("You are the ACTION phase\n" + GOAL + CONTEXT)).aiMessage();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 5);
+        assertEquals(2, batch.toolExecutionRequests().size());
+
+        assertFalse(decoder.decode(model.chat(prompt(observePrompt("[{\"name\":\"timer.finished\"}]"))).aiMessage().text(), ObserveResult.class).completed());
+        assertTrue(decoder.decode(model.chat(prompt(observePrompt("[{\"name\":\"timer.finished\"}]"))).aiMessage().text(), ObserveResult.class).completed());
+    }
+
+    @Test
+    @DisplayName("Load generator should pace submissions and report completion percentiles")
+    void loadGeneratorReports() throws Exception {
+        ScheduledExecutorService completer = Executors.newScheduledThreadPool(2);
+        LoadGenerator.Report report = new LoadGenerator.Builder()
+                .activities(100)
+                .rate(500)
+                .submitter(i -> {
+                    CompletableFuture<Object> done = new CompletableFuture<>();
+                    completer.schedule(() -> done.complete(i), i % 10 == 0 ? 40 : 5, TimeUnit.MILLISECONDS);
+                    return done;
+                })
+                .timeout(Duration.ofSeconds(5))
+                .build()
+                .run();
+        completer.shutdown();
+
+        System.out.println(report);
+        assertEquals(100, report.completed());
+        assertTrue(report.elapsedSeconds() >= 0.19, "100 submissions at 500/s take ~200 ms");
+        assertTrue(report.p50Millis() >= 5 && report.p50Millis() < 40);
+        assertTrue(report.p99Millis() >= 40);
+    }
+}
@@ -0,0 +1,48 @@
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Local ChatModel stand-in with a fixed reply and a controllable latency.
+ */
+public class StubChatModel implements ChatModel {
+    private final String reply;
+    private final LongSupplier latencyMillis;
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public StubChatModel(String reply, LongSupplier latencyMillis) {
+        this.reply = reply;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public StubChatModel(String reply) {
+        this(reply, () -> 0);
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        calls.incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            long latency = latencyMillis.getAsLong();
+            if (latency > 0) Thread.sleep(latency);
+            return ChatResponse.builder()
+                    .aiMessage(AiMessage.from(reply))
+                    .tokenUsage(new TokenUsage(10, reply.length() / 4))
+                    .build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted", e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
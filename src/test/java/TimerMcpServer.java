@@ -0,0 +1,591 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for {@code src/mcp/timer-tool2.js}: the same {@code timerTool}
+ * subscribe/set contract over streamable HTTP (JSON responses) on {@code /mcp} and
+ * notifications on {@code /sse}, without Node.
+ *
+ * Timers live in a hashed wheel, so 100k concurrent timers cost one thread. Several
+ * SSE clients may connect; events are queued while none is. For load tests, timer
+ * durations can be scaled, background broadcast events emitted at a fixed rate, and
+ * faults injected (tool errors, tool latency, dropped events, SSE disconnects).
+ */
+public class TimerMcpServer implements AutoCloseable {
+    public static final String TOOL_NAME = "timerTool";
+    public static final String BACKGROUND_TOPIC = "load.tick";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer http;
+    private final ExecutorService handlers = Executors.newCachedThreadPool(daemon("timer-mcp-http"));
+    private final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(daemon("timer-mcp-load"));
+    private final HashedWheel wheel;
+
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+    private final List<SseClient> clients = new CopyOnWriteArrayList<>();
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+
+    private final double timeScale;
+    private final double toolErrorRate;
+    private final long toolLatencyMillis;
+    private final double eventDropRate;
+    private final Random random;
+
+    private final AtomicLong timersScheduled = new AtomicLong();
+    private final AtomicLong timersFired = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+    private final AtomicLong toolCalls = new AtomicLong();
+    private volatile boolean running = true;
+
+    private TimerMcpServer(Builder builder) throws IOException {
+        this.timeScale = builder.timeScale;
+        this.toolErrorRate = builder.toolErrorRate;
+        this.toolLatencyMillis = builder.toolLatency.toMillis();
+        this.eventDropRate = builder.eventDropRate;
+        this.random = new Random(builder.seed);
+        this.wheel = new HashedWheel(builder.tick.toNanos(), builder.wheelSize);
+
+        this.http = HttpServer.create(new InetSocketAddress("localhost", builder.port), 0);
+        http.createContext("/mcp", this::handleMcp);
+        http.createContext("/sse", this::handleSse);
+        http.setExecutor(handlers);
+        http.start();
+
+        if (builder.backgroundEventRate > 0) {
+            startBackgroundEvents(builder.backgroundEventRate);
+        }
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public String mcpUrl() {
+        return "http://localhost:" + port() + "/mcp";
+    }
+
+    public String sseUrl() {
+        return "http://localhost:" + port() + "/sse";
+    }
+
+    public long timersScheduled() { return timersScheduled.get(); }
+    public long timersFired() { return timersFired.get(); }
+    public long activeTimers() { return wheel.pending(); }
+    public long peakActiveTimers() { return wheel.peak(); }
+    public long eventsSent() { return eventsSent.get(); }
+    public long eventsDropped() { return eventsDropped.get(); }
+    public long toolCalls() { return toolCalls.get(); }
+    public int sseClients() { return clients.size(); }
+
+    /**
+     * Worst observed delay between a timer's deadline and its expiry.
+     */
+    public double maxTimerLatenessMillis() {
+        return wheel.maxLatenessNanos() / 1_000_000.0;
+    }
+
+    /**
+     * Run the tool in-process, bypassing HTTP; returns the text content of the reply.
+     */
+    public List<String> callTool(JsonNode arguments) {
+        List<String> texts = new ArrayList<>();
+        toolResult(arguments).path("content").forEach(item -> texts.add(item.path("text").asText()));
+        return texts;
+    }
+
+    /**
+     * Tell clients the tool list changed (see {@code CachingToolProvider}).
+     */
+    public void notifyToolsChanged() {
+        broadcast("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/tools/list_changed\"}");
+    }
+
+    /**
+     * Fault injection: drop every open SSE stream, as a crashed proxy would.
+     */
+    public void disconnectSseClients() {
+        clients.forEach(SseClient::close);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        background.shutdownNow();
+        wheel.stop();
+        disconnectSseClients();
+        http.stop(0);
+        handlers.shutdownNow();
+    }
+
+    // -------------------------
+    // MCP ENDPOINT
+    // -------------------------
+
+    private void handleMcp(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode body = mapper.readTree(exchange.getRequestBody());
+            JsonNode response;
+            if (body.isArray()) {
+                ArrayNode responses = mapper.createArrayNode();
+                for (JsonNode message : body) {
+                    JsonNode reply = handleRpc(message);
+                    if (reply != null) responses.add(reply);
+                }
+                response = responses.isEmpty() ? null : responses;
+            } else {
+                response = handleRpc(body);
+            }
+            if (response == null) {
+                // Notifications and responses are only acknowledged
+                exchange.sendResponseHeaders(202, -1);
+                return;
+            }
+            byte[] bytes = mapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private JsonNode handleRpc(JsonNode message) {
+        if (!message.has("id") || !message.has("method")) return null;
+        ObjectNode response = mapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", message.get("id"));
+        JsonNode params = message.path("params");
+        switch (message.get("method").asText()) {
+            case "initialize" -> {
+                ObjectNode result = response.putObject("result");
+                result.put("protocolVersion", params.path("protocolVersion").asText("2025-06-18"));
+                result.putObject("capabilities").putObject("tools").put("listChanged", true);
+                result.putObject("serverInfo").put("name", "timer-server").put("version", "1.0.0");
+            }
+            case "ping" -> response.putObject("result");
+            case "tools/list" -> response.putObject("result").putArray("tools").add(toolSpecification());
+            case "tools/call" -> {
+                if (toolLatencyMillis > 0) sleep(toolLatencyMillis);
+                if (TOOL_NAME.equals(params.path("name").asText())) {
+                    response.set("result", toolResult(params.path("arguments")));
+                } else {
+                    response.set("result", textResult(true, "Unknown tool: " + params.path("name").asText()));
+                }
+            }
+            default -> response.putObject("error").put("code", -32601).put("message", "Method not found");
+        }
+        return response;
+    }
+
+    private ObjectNode toolSpecification() {
+        ObjectNode tool = mapper.createObjectNode();
+        tool.put("name", TOOL_NAME);
+        tool.put("description", "Subscribe to notifications or set a named timer that fires a timer.finished event");
+        ObjectNode schema = tool.putObject("inputSchema");
+        schema.put("type", "object");
+        ObjectNode properties = schema.putObject("properties");
+        properties.putObject("action").put("type", "string").putArray("enum").add("subscribe").add("set");
+        properties.putObject("seconds").put("type", "number");
+        properties.putObject("name").put("type", "string");
+        properties.putObject("uuid").put("type", "string").put("format", "uuid");
+        schema.putArray("required").add("action").add("uuid");
+        return tool;
+    }
+
+    // -------------------------
+    // TOOL
+    // -------------------------
+
+    private ObjectNode toolResult(JsonNode arguments) {
+        toolCalls.incrementAndGet();
+        String uuid = arguments.path("uuid").asText(null);
+        String action = arguments.path("action").asText("");
+        if (uuid == null) return textResult(true, "❌ Error: missing uuid.");
+        if (toolErrorRate > 0 && chance(toolErrorRate)) {
+            return textResult(true, "❌ Error: injected fault for " + action + ".");
+        }
+
+        if (action.equals("subscribe")) {
+            subscribed.add(uuid);
+            send(uuid, event(uuid, "subscription-ack", "subscription.started", "Subscription successfully activated via SSE"), true);
+            return textResult(false, "✅ Subscription activated. You will receive events and variables via SSE.");
+        }
+
+        if (action.equals("set")) {
+            double seconds = arguments.path("seconds").asDouble(0);
+            if (seconds <= 0) return textResult(false, "❌ Error: missing seconds.");
+            String id = arguments.hasNonNull("name") ? arguments.get("name").asText() : "timer-" + UUID.randomUUID();
+
+            timersScheduled.incrementAndGet();
+            wheel.schedule((long) (seconds * timeScale * 1_000_000_000L), () -> {
+                timersFired.incrementAndGet();
+                send(uuid, event(uuid, id, "timer.finished", "⏰ RING! Timer " + id + " (" + seconds + "s) expired!"), false);
+            });
+
+            ObjectNode value = mapper.createObjectNode().put("name", id).put("seconds", seconds);
+            ObjectNode variable = notification(uuid, "variable");
+            ((ObjectNode) variable.get("params")).put("name", id).set("value", value);
+            send(uuid, variable.toString(), false);
+
+            ObjectNode result = textResult(false, "⏳ Timer " + id + " started for " + seconds + " seconds.");
+            ObjectNode payload = mapper.createObjectNode().put("uuid", uuid).put("mcpType", "variable").put("name", id);
+            payload.set("value", value);
+            ((ArrayNode) result.get("content")).addObject().put("type", "text").put("text", payload.toString());
+            return result;
+        }
+
+        return textResult(false, "Unknown action");
+    }
+
+    private ObjectNode textResult(boolean error, String text) {
+        ObjectNode result = mapper.createObjectNode();
+        result.putArray("content").addObject().put("type", "text").put("text", text);
+        result.put("isError", error);
+        return result;
+    }
+
+    private ObjectNode notification(String uuid, String mcpType) {
+        ObjectNode message = mapper.createObjectNode();
+        message.put("jsonrpc", "2.0");
+        message.put("method", "notifications/message");
+        ObjectNode params = message.putObject("params");
+        if (uuid != null) params.put("uuid", uuid);
+        params.put("mcpType", mcpType);
+        return message;
+    }
+
+    private String event(String uuid, String key, String name, String text) {
+        ObjectNode message = notification(uuid, "event");
+        ((ObjectNode) message.get("params")).putObject("event").put("key", key).put("name", name).put("message", text);
+        return message.toString();
+    }
+
+    // -------------------------
+    // SSE ENDPOINT
+    // -------------------------
+
+    private void handleSse(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        SseClient client = new SseClient(exchange);
+        client.outbox.add(": connected");
+        clients.add(client);
+        // Queued notifications go to the first client that connects, as in the Node server
+        String queued;
+        while ((queued = pending.poll()) != null) {
+            client.outbox.add("data: " + queued);
+        }
+        try {
+            client.pump();
+        } finally {
+            clients.remove(client);
+            exchange.close();
+        }
+    }
+
+    /**
+     * Deliver a notification for {@code uuid}. Like the Node server, only subscribed
+     * activities get timer events and variables; acks always go out.
+     */
+    private void send(String uuid, String payload, boolean always) {
+        if (!always && !subscribed.contains(uuid)) return;
+        if (eventDropRate > 0 && chance(eventDropRate)) {
+            eventsDropped.incrementAndGet();
+            return;
+        }
+        if (clients.isEmpty()) {
+            pending.add(payload);
+            return;
+        }
+        broadcast(payload);
+    }
+
+    private void broadcast(String payload) {
+        for (SseClient client : clients) {
+            client.outbox.add("data: " + payload);
+        }
+        eventsSent.incrementAndGet();
+    }
+
+    private void startBackgroundEvents(double perSecond) {
+        long periodMillis = 10;
+        double perTick = perSecond * periodMillis / 1000.0;
+        AtomicLong sequence = new AtomicLong();
+        double[] carry = {0};
+        background.scheduleAtFixedRate(() -> {
+            carry[0] += perTick;
+            for (; carry[0] >= 1; carry[0]--) {
+                ObjectNode message = notification(null, "event");
+                ObjectNode params = (ObjectNode) message.get("params");
+                params.put("topic", BACKGROUND_TOPIC);
+                params.putObject("event").put("name", BACKGROUND_TOPIC).put("seq", sequence.incrementAndGet());
+                if (!clients.isEmpty()) broadcast(message.toString());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized boolean chance(double rate) {
+        return random.nextDouble() < rate;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class SseClient {
+        final HttpExchange exchange;
+        final BlockingQueue<String> outbox = new LinkedBlockingQueue<>();
+        volatile boolean closed;
+
+        SseClient(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /**
+         * Write queued frames until the stream breaks, writing whatever piled up in one flush.
+         */
+        void pump() {
+            OutputStream out = exchange.getResponseBody();
+            List<String> frames = new ArrayList<>();
+            try {
+                while (running && !closed) {
+                    String first = outbox.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    frames.add(first);
+                    outbox.drainTo(frames, 1023);
+                    StringBuilder chunk = new StringBuilder();
+                    frames.forEach(frame -> chunk.append(frame).append("\n\n"));
+                    frames.clear();
+                    out.write(chunk.toString().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client went away
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Hashed wheel timer: a ring of buckets advanced one slot per tick by a single
+     * thread. Scheduling is a lock-free enqueue; expiry costs O(timers in the bucket),
+     * independent of how many timers are pending in total.
+     */
+    static final class HashedWheel {
+        private final long tickNanos;
+        private final int mask;
+        private final ArrayDeque<Timeout>[] buckets;
+        private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong peak = new AtomicLong();
+        private final AtomicLong maxLatenessNanos = new AtomicLong();
+        private final long startNanos = System.nanoTime();
+        private final Thread worker;
+        private volatile boolean running = true;
+        private long tick;
+
+        @SuppressWarnings("unchecked")
+        HashedWheel(long tickNanos, int wheelSize) {
+            int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+            this.tickNanos = tickNanos;
+            this.mask = size - 1;
+            this.buckets = new ArrayDeque[size];
+            for (int i = 0; i < size; i++) buckets[i] = new ArrayDeque<>();
+            this.worker = new Thread(this::run, "timer-wheel");
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        void schedule(long delayNanos, Runnable task) {
+            peak.accumulateAndGet(pending.incrementAndGet(), Math::max);
+            incoming.add(new Timeout(System.nanoTime() - startNanos + Math.max(0, delayNanos), task));
+        }
+
+        long pending() {
+            return pending.get();
+        }
+
+        long peak() {
+            return peak.get();
+        }
+
+        long maxLatenessNanos() {
+            return maxLatenessNanos.get();
+        }
+
+        void stop() {
+            running = false;
+            worker.interrupt();
+        }
+
+        private void run() {
+            while (running) {
+                long deadline = tickNanos * (tick + 1);
+                long sleepNanos = deadline - (System.nanoTime() - startNanos);
+                if (sleepNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                transferIncoming();
+                expire(buckets[(int) (tick & mask)], deadline);
+                tick++;
+            }
+        }
+
+        private void transferIncoming() {
+            Timeout timeout;
+            while ((timeout = incoming.poll()) != null) {
+                long calculated = timeout.deadline / tickNanos;
+                timeout.rounds = (calculated - tick) / buckets.length;
+                // Already overdue timers go in the current bucket
+                buckets[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+            }
+        }
+
+        private void expire(ArrayDeque<Timeout> bucket, long deadline) {
+            for (int i = bucket.size(); i > 0; i--) {
+                Timeout timeout = bucket.poll();
+                if (timeout.rounds <= 0 && timeout.deadline <= deadline) {
+                    pending.decrementAndGet();
+                    long lateness = System.nanoTime() - startNanos - timeout.deadline;
+                    maxLatenessNanos.accumulateAndGet(lateness, Math::max);
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        // A failing timer must not stop the wheel
+                    }
+                } else {
+                    timeout.rounds--;
+                    bucket.add(timeout);
+                }
+            }
+        }
+
+        private static final class Timeout {
+            final long deadline;
+            final Runnable task;
+            long rounds;
+
+            Timeout(long deadline, Runnable task) {
+                this.deadline = deadline;
+                this.task = task;
+            }
+        }
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private Duration tick = Duration.ofMillis(10);
+        private int wheelSize = 512;
+        private double timeScale = 1.0;
+        private double backgroundEventRate = 0;
+        private double toolErrorRate = 0;
+        private Duration toolLatency = Duration.ZERO;
+        private double eventDropRate = 0;
+        private long seed = 42;
+
+        /**
+         * 0 picks a free port.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder tick(Duration tick) {
+            this.tick = tick;
+            return this;
+        }
+
+        public Builder wheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        /**
+         * Multiplier applied to timer durations, e.g. 0.01 turns "2 seconds" into 20 ms.
+         */
+        public Builder timeScale(double timeScale) {
+            this.timeScale = timeScale;
+            return this;
+        }
+
+        /**
+         * Unrelated broadcast events per second on topic {@value #BACKGROUND_TOPIC}.
+         */
+        public Builder backgroundEventRate(double perSecond) {
+            this.backgroundEventRate = perSecond;
+            return this;
+        }
+
+        /**
+         * Share of tool calls answered with an error.
+         */
+        public Builder toolErrorRate(double rate) {
+            this.toolErrorRate = rate;
+            return this;
+        }
+
+        /**
+         * Delay added to every tools/call over HTTP.
+         */
+        public Builder toolLatency(Duration latency) {
+            this.toolLatency = latency;
+            return this;
+        }
+
+        /**
+         * Share of notifications silently dropped.
+         */
+        public Builder eventDropRate(double rate) {
+            this.eventDropRate = rate;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public TimerMcpServer start() throws IOException {
+            return new TimerMcpServer(this);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerMcpServerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    private JsonNode rpc(TimerMcpServer server, String method, JsonNode params) throws Exception {
+        ObjectNode message = mapper.createObjectNode().put("jsonrpc", "2.0").put("id", 1).put("method", method);
+        message.set("params", params);
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(server.mcpUrl()))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(message.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        return mapper.readTree(response.body());
+    }
+
+    private JsonNode call(TimerMcpServer server, ObjectNode arguments) throws Exception {
+        ObjectNode params = mapper.createObjectNode().put("name", TimerMcpServer.TOOL_NAME);
+        params.set("arguments", arguments);
+        return rpc(server, "tools/call", params).get("result");
+    }
+
+    /**
+     * Open the SSE stream and collect the JSON of every data line.
+     */
+    private BlockingQueue<JsonNode> listen(TimerMcpServer server) throws Exception {
+        BlockingQueue<JsonNode> events = new LinkedBlockingQueue<>();
+        http.sendAsync(HttpRequest.newBuilder(URI.create(server.sseUrl())).header("Accept", "text/event-stream").build(),
+                        HttpResponse.BodyHandlers.ofLines())
+                .thenAccept(response -> response.body()
+                        .filter(line -> line.startsWith("data:"))
+                        .forEach(line -> {
+                            try {
+                                events.add(mapper.readTree(line.substring(5).trim()));
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.sseClients() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        return events;
+    }
+
+    private static String eventName(JsonNode message) {
+        return message.path("params").path("event").path("name").asText();
+    }
+
+    @Test
+    @DisplayName("Server should speak the timerTool contract over JSON-RPC and SSE")
+    void timerToolContract() throws Exception {
+        try (TimerMcpServer server = new TimerMcpServer.Builder().timeScale(0.01).start()) {
+            assertEquals("timer-server", rpc(server, "initialize", mapper.createObjectNode()).at("/result/serverInfo/name").asText());
+            assertEquals(TimerMcpServer.TOOL_NAME, rpc(server, "tools/list", mapper.createObjectNode()).at("/result/tools/0/name").asText());
+
+            BlockingQueue<JsonNode> events = listen(server);
+            String uuid = UUID.randomUUID().toString();
+            assertFalse(call(server, mapper.createObjectNode().put("action", "subscribe").put("uuid", uuid)).get("isError").asBoolean());
+            JsonNode set = call(server, mapper.createObjectNode().put("action", "set").put("seconds", 2).put("name", "test-timer").put("uuid", uuid));
+            assertTrue(set.at("/content/0/text").asText().contains("test-timer"));
+
+            assertEquals("subscription.started", eventName(events.poll(2, TimeUnit.SECONDS)));
+            JsonNode variable = events.poll(2, TimeUnit.SECONDS);
+            assertEquals("test-timer", variable.at("/params/name").asText());
+            JsonNode finished = events.poll(2, TimeUnit.SECONDS);
+            assertEquals("timer.finished", eventName(finished));
+            assertEquals(uuid, finished.at("/params/uuid").asText());
+        }
+    }
+
+    @Test
+    @DisplayName("The hashed wheel should deliver 100k concurrent timers")
+    void hundredThousandTimers() throws Exception {
+        int timers = 100_000;
+        try (TimerMcpServer server = new TimerMcpServer.Builder().timeScale(0.5).start()) {
+            BlockingQueue<JsonNode> events = listen(server);
+            String uuid = UUID.randomUUID().toString();
+            server.callTool(mapper.createObjectNode().put("action", "subscribe").put("uuid", uuid));
+
+            long start = System.nanoTime();
+            for (int i = 0; i < timers; i++) {
+                // 1..10 seconds, scaled to 0.5..5 s
+                server.callTool(mapper.createObjectNode().put("action", "set").put("seconds", 1 + i % 10).put("name", "t" + i).put("uuid", uuid));
+            }
+
+            AtomicLong finished = new AtomicLong();
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (finished.get() < timers && System.currentTimeMillis() < deadline) {
+                JsonNode event = events.poll(100, TimeUnit.MILLISECONDS);
+                if (event != null && eventName(event).equals("timer.finished")) finished.incrementAndGet();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("timers=%d peakActive=%d delivered=%d elapsedS=%.2f maxLatenessMs=%.1f eventsSent=%d%n",
+                    timers, server.peakActiveTimers(), finished.get(), seconds, server.maxTimerLatenessMillis(), server.eventsSent());
+            assertEquals(timers, finished.get());
+            assertTrue(server.peakActiveTimers() > timers / 2, "timers should be pending concurrently");
+            assertEquals(0, server.activeTimers());
+        }
+    }
+
+    @Test
+    @DisplayName("Fault injection should fail tool calls and drop events on demand")
+    void faultInjection() throws Exception {
+        try (TimerMcpServer failing = new TimerMcpServer.Builder().toolErrorRate(1.0).start()) {
+            JsonNode result = call(failing, mapper.createObjectNode().put("action", "subscribe").put("uuid", UUID.randomUUID().toString()));
+            assertTrue(result.get("isError").asBoolean());
+            assertTrue(result.at("/content/0/text").asText().startsWith("❌"));
+        }
+        try (TimerMcpServer lossy = new TimerMcpServer.Builder().eventDropRate(1.0).timeScale(0.01).start()) {
+            BlockingQueue<JsonNode> events = listen(lossy);
+            String uuid = UUID.randomUUID().toString();
+            lossy.callTool(mapper.createObjectNode().put("action", "subscribe").put("uuid", uuid));
+            lossy.callTool(mapper.createObjectNode().put("action", "set").put("seconds", 1).put("uuid", uuid));
+            Thread.sleep(200);
+            assertEquals(1, lossy.timersFired());
+            assertEquals(3, lossy.eventsDropped());
+            assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Background events should arrive at roughly the configured rate")
+    void backgroundEventRate() throws Exception {
+        try (TimerMcpServer server = new TimerMcpServer.Builder().backgroundEventRate(1000).start()) {
+            BlockingQueue<JsonNode> events = listen(server);
+            Thread.sleep(500);
+            int received = events.size();
+            assertTrue(received > 250 && received < 1000, "expected ~500 background events, got " + received);
+            assertEquals(TimerMcpServer.BACKGROUND_TOPIC, events.peek().at("/params/topic").asText());
+        }
+    }
+}
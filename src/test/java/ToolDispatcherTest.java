@@ -0,0 +1,134 @@
+import agent.tools.DeferredToolProvider;
+import agent.tools.ToolDispatcher;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ToolDispatcherTest {
+
+    /**
+     * Tools that sleep for the given number of milliseconds before answering.
+     */
+    private static ToolProvider sleepingTools(Map<String, Integer> delays) {
+        return request -> {
+            ToolProviderResult.Builder result = ToolProviderResult.builder();
+            delays.forEach((name, delay) -> {
+                ToolExecutor executor = (toolRequest, memoryId) -> {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return "interrupted";
+                    }
+                    return name + " done " + toolRequest.arguments();
+                };
+                result.add(ToolSpecification.builder().name(name).build(), executor);
+            });
+            return result.build();
+        };
+    }
+
+    @Test
+    @DisplayName("Dispatch should return at once and complete with the tool output")
+    void dispatchIsAsynchronous() throws Exception {
+        try (ToolDispatcher dispatcher = new ToolDispatcher.Builder()
+                .provider(sleepingTools(Map.of("setTimer", 100)))
+                .build()) {
+            long start = System.nanoTime();
+            CompletableFuture<String> result = dispatcher.dispatch("setTimer", "{\"seconds\":2}", "a1");
+            long dispatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(dispatchMillis < 50, "dispatch blocked for " + dispatchMillis + " ms");
+            assertFalse(result.isDone());
+            assertEquals("setTimer done {\"seconds\":2}", result.get(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Per-tool timeouts should override the default and fail the future")
+    void perToolTimeouts() {
+        try (ToolDispatcher dispatcher = new ToolDispatcher.Builder()
+                .provider(sleepingTools(Map.of("slow", 500, "fast", 10)))
+                .defaultTimeout(Duration.ofSeconds(5))
+                .timeout("slow", Duration.ofMillis(50))
+                .build()) {
+            CompletableFuture<String> slow = dispatcher.dispatch("slow", "{}", "a1");
+            CompletableFuture<String> fast = dispatcher.dispatch("fast", "{}", "a1");
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> slow.get(2, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof TimeoutException, "expected a timeout, got " + error.getCause());
+            assertEquals("fast done {}", fast.join());
+            assertEquals(Duration.ofSeconds(5), dispatcher.timeout("fast"));
+        }
+    }
+
+    @Test
+    @DisplayName("Unknown tools should fail the future instead of throwing")
+    void unknownToolFails() {
+        try (ToolDispatcher dispatcher = new ToolDispatcher.Builder()
+                .provider(sleepingTools(Map.of()))
+                .build()) {
+            CompletableFuture<String> result = dispatcher.dispatch("missing", "{}", "a1");
+            assertThrows(CompletionException.class, result::join);
+        }
+    }
+
+    @Test
+    @DisplayName("Tools should be listed once, and again only after an invalidation")
+    void executorsAreListedOnce() {
+        AtomicInteger listings = new AtomicInteger();
+        ToolProvider tools = sleepingTools(Map.of("setTimer", 1, "cancelTimer", 1));
+        try (ToolDispatcher dispatcher = new ToolDispatcher.Builder()
+                .provider(request -> {
+                    listings.incrementAndGet();
+                    return tools.provideTools(request);
+                })
+                .build()) {
+            dispatcher.dispatch("setTimer", "{}", "a1").join();
+            dispatcher.dispatch("cancelTimer", "{}", "a2").join();
+            dispatcher.dispatch("setTimer", "{}", "a1").join();
+            assertEquals(1, listings.get());
+
+            dispatcher.invalidate();
+            dispatcher.dispatch("setTimer", "{}", "a1").join();
+            assertEquals(2, listings.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Deferred provider should expose the same tools and only acknowledge calls")
+    void deferredProviderAcknowledges() {
+        List<ToolExecutionRequest> dispatched = new CopyOnWriteArrayList<>();
+        DeferredToolProvider provider = new DeferredToolProvider(sleepingTools(Map.of("setTimer", 1000)), request -> {
+            dispatched.add(request);
+            return "queued";
+        });
+
+        Map<ToolSpecification, ToolExecutor> tools = provider
+                .provideTools(new ToolProviderRequest("a1", UserMessage.from("set a timer")))
+                .tools();
+        assertEquals(1, tools.size());
+
+        ToolExecutor executor = tools.values().iterator().next();
+        long start = System.nanoTime();
+        String reply = executor.execute(ToolExecutionRequest.builder().name("setTimer").arguments("{}").build(), "a1");
+
+        assertEquals("queued", reply);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertEquals(1, dispatched.size());
+    }
+}
@@ -0,0 +1,102 @@
+import agent.activity.TopicRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopicRegistryTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JsonNode event(String name) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("name", name);
+        return node;
+    }
+
+    @Test
+    @DisplayName("Only subscribers of a topic, plus wildcard subscribers, should receive it")
+    void deliversToSubscribersOnly() {
+        TopicRegistry registry = new TopicRegistry();
+        registry.subscribe("a", "clock.tick");
+        registry.subscribe("b", "config.changed");
+        registry.subscribe("c", TopicRegistry.ALL);
+        registry.subscribe("c", "clock.tick");
+
+        Map<String, List<JsonNode>> received = new HashMap<>();
+        int reached = registry.publish("clock.tick", event("clock.tick"), received::put);
+
+        assertEquals(2, reached);
+        assertEquals(Set.of("a", "c"), received.keySet(), "wildcard subscriber reached once");
+
+        registry.unsubscribeAll("a");
+        assertEquals(1, registry.subscriberCount("clock.tick"));
+        assertTrue(registry.topics("a").isEmpty());
+    }
+
+    @Test
+    @DisplayName("A batch should reach every subscriber in a single delivery")
+    void batchesPerSubscriber() {
+        TopicRegistry registry = new TopicRegistry();
+        registry.subscribe("a", "clock.tick");
+        registry.subscribe("a", "config.changed");
+        registry.subscribe("b", "config.changed");
+
+        Map<String, List<JsonNode>> received = new HashMap<>();
+        registry.publishBatch(List.of(
+                Map.entry("clock.tick", event("tick-1")),
+                Map.entry("config.changed", event("config")),
+                Map.entry("clock.tick", event("tick-2"))), (uuid, events) -> {
+            assertNull(received.put(uuid, events), "one delivery per subscriber");
+        });
+
+        assertEquals(List.of("tick-1", "config", "tick-2"), received.get("a").stream().map(e -> e.get("name").asText()).toList());
+        assertEquals(List.of("config"), received.get("b").stream().map(e -> e.get("name").asText()).toList());
+    }
+
+    @Test
+    @DisplayName("Topics should be dropped once their last subscriber leaves")
+    void dropsEmptyTopics() {
+        TopicRegistry registry = new TopicRegistry();
+        for (int i = 0; i < 1000; i++) {
+            String uuid = "activity-" + i;
+            registry.subscribe(uuid, "timer." + i);
+            registry.subscribe(uuid, "clock.tick");
+            if (i % 2 == 0) registry.unsubscribe(uuid, "timer." + i);
+            registry.unsubscribeAll(uuid);
+        }
+
+        assertEquals(0, registry.topicCount());
+        assertEquals(0, registry.subscriberCount("clock.tick"));
+        assertTrue(registry.topics("activity-0").isEmpty());
+    }
+
+    @Test
+    @DisplayName("A broadcast should reach every subscriber once and leave private topics alone")
+    void fanOutReachesEverySubscriber() {
+        TopicRegistry registry = new TopicRegistry();
+        int activities = 1000;
+        for (int i = 0; i < activities; i++) {
+            String uuid = UUID.randomUUID().toString();
+            registry.subscribe(uuid, "clock.tick");
+            registry.subscribe(uuid, "private." + i);
+        }
+
+        AtomicLong deliveries = new AtomicLong();
+        JsonNode tick = event("clock.tick");
+        int events = 5;
+        for (int i = 0; i < events; i++) {
+            assertEquals(activities, registry.publish("clock.tick", tick, (uuid, batch) -> deliveries.addAndGet(batch.size())));
+        }
+
+        assertEquals((long) activities * events, deliveries.get());
+        assertEquals(1, registry.subscriberCount("private.7"));
+        assertEquals(0, registry.publish("private.unknown", tick, (uuid, batch) -> fail("no subscribers expected")));
+    }
+}
@@ -0,0 +1,97 @@
+import agent.Phase;
+import agent.activity.Activity;
+import agent.recording.TraceReader;
+import agent.recording.TraceRecord;
+import agent.recording.TraceReplayer;
+import agent.recording.TraceWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceReplayTest {
+
+    private static final String RECORDED = "6f1c1c7e-0000-4000-8000-000000000001";
+    private static final String CHILD = "6f1c1c7e-0000-4000-8000-000000000002";
+
+    @Test
+    @DisplayName("Trace should round-trip every record kind and drop a truncated tail")
+    void roundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TraceWriter writer = new TraceWriter(bytes)) {
+            writer.start(RECORDED, null, "Set a timer called kettle", List.of("load.tick"));
+            writer.start("not-a-uuid", RECORDED, "child goal ✓", List.of());
+            writer.phase(RECORDED, Phase.OBSERVE, 1_500_000, "{\"completed\": false}");
+            writer.event("{\"params\":{\"uuid\":\"" + RECORDED + "\"}}");
+        }
+        byte[] trace = bytes.toByteArray();
+
+        List<TraceRecord> records = TraceReader.read(new ByteArrayInputStream(trace));
+        assertEquals(4, records.size());
+        TraceRecord.Start start = (TraceRecord.Start) records.get(0);
+        assertEquals(RECORDED, start.uuid());
+        assertNull(start.parentUuid());
+        assertEquals(List.of("load.tick"), start.topics());
+        TraceRecord.Start child = (TraceRecord.Start) records.get(1);
+        assertEquals("not-a-uuid", child.uuid());
+        assertEquals("child goal ✓", child.goal());
+        TraceRecord.PhaseCall call = (TraceRecord.PhaseCall) records.get(2);
+        assertEquals(Phase.OBSERVE, call.phase());
+        assertEquals(1500, call.durationMicros());
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue(records.get(i).offsetMicros() >= records.get(i - 1).offsetMicros());
+        }
+
+        List<TraceRecord> cut = TraceReader.read(new ByteArrayInputStream(Arrays.copyOf(trace, trace.length - 3)));
+        assertEquals(3, cut.size(), "a record cut short by a crash is dropped");
+    }
+
+    @Test
+    @DisplayName("Replay should remap uuids and deliver events only after earlier brain calls")
+    void replayKeepsOrder() throws Exception {
+        String event = "{\"params\":{\"uuid\":\"" + RECORDED + "\",\"mcpType\":\"event\"}}";
+        TraceReplayer replayer = new TraceReplayer.Builder()
+                .records(List.of(
+                        new TraceRecord.Start(0, RECORDED, null, "Set a timer", List.of()),
+                        new TraceRecord.PhaseCall(10, RECORDED, Phase.ACT, 5, "{\"tool_name\": \"timerTool\", \"summary\": \"" + RECORDED + "\"}"),
+                        new TraceRecord.Start(11, CHILD, RECORDED, "Child goal", List.of()),
+                        new TraceRecord.Event(20, event),
+                        new TraceRecord.PhaseCall(30, CHILD, Phase.OBSERVE, 5, "{\"completed\": true}")))
+                .stallTimeout(Duration.ofSeconds(5))
+                .build();
+
+        BlockingQueue<Activity> submitted = new LinkedBlockingQueue<>();
+        BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        replayer.start(start -> {
+            Activity activity = new Activity(start.goal());
+            submitted.add(activity);
+            return activity;
+        }, delivered::add);
+
+        Activity live = submitted.poll(5, TimeUnit.SECONDS);
+        assertNotNull(live);
+        assertNull(delivered.poll(100, TimeUnit.MILLISECONDS), "the event waits for the recorded ACT answer");
+
+        String act = replayer.respond(live, Phase.ACT);
+        assertTrue(act.contains(live.getUuid()) && !act.contains(RECORDED), act);
+        String replayedEvent = delivered.poll(5, TimeUnit.SECONDS);
+        assertEquals(event.replace(RECORDED, live.getUuid()), replayedEvent);
+
+        Activity child = new Activity("Child goal", live);
+        assertEquals("{\"completed\": true}", replayer.respond(child, Phase.OBSERVE));
+        assertEquals("", replayer.respond(child, Phase.OBSERVE), "trace exhausted");
+
+        assertFalse(replayer.done().isDone());
+        live.completion().complete(live);
+        replayer.done().get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,59 @@
+import agent.activity.WakeCondition;
+import agent.activity.WakeIndex;
+import agent.response.ObserveResult;
+import agent.response.PhaseResponseDecoder;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WakeIndexTest {
+
+    @Test
+    @DisplayName("Activities without conditions should wake on any event")
+    void noConditionsWakeOnAnything() {
+        WakeIndex index = new WakeIndex();
+        assertTrue(index.wakesOnEvent("a", "timer.finished"));
+        assertTrue(index.wakesOnEvent("a", "noise"));
+        assertFalse(index.wakesOnBelief("a", "state", TextNode.valueOf("done")));
+    }
+
+    @Test
+    @DisplayName("Only matching events and belief values should wake a conditioned activity")
+    void conditionsFilterWakeUps() {
+        WakeIndex index = new WakeIndex();
+        index.register("a", List.of(WakeCondition.onEvent("timer.finished"), WakeCondition.whenBelief("count", IntNode.valueOf(3))));
+        index.register("b", List.of(WakeCondition.onEvent("subscription.started")));
+
+        assertTrue(index.wakesOnEvent("a", "timer.finished"));
+        assertFalse(index.wakesOnEvent("a", "subscription.started"));
+        assertTrue(index.wakesOnEvent("b", "subscription.started"));
+        assertFalse(index.wakesOnEvent("b", "timer.finished"));
+
+        assertFalse(index.wakesOnBelief("a", "count", IntNode.valueOf(2)));
+        assertTrue(index.wakesOnBelief("a", "count", TextNode.valueOf("3")), "scalars compare by text");
+        assertFalse(index.wakesOnBelief("b", "count", IntNode.valueOf(3)));
+
+        index.unregister("a");
+        assertTrue(index.wakesOnEvent("a", "anything"));
+        assertFalse(index.wakesOnBelief("a", "count", IntNode.valueOf(3)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("Observation wake_on entries should decode into conditions")
+    void observationDeclaresConditions() {
+        ObserveResult result = new PhaseResponseDecoder().decode("""
+                {"completed": false, "summary": "waiting",
+                 "wake_on": ["timer.finished", {"belief": "state", "equals": "ready"}, {"bogus": 1}]}
+                """, ObserveResult.class);
+
+        assertEquals(List.of(WakeCondition.onEvent("timer.finished"), WakeCondition.whenBelief("state", TextNode.valueOf("ready"))),
+                result.wakeOn());
+        assertTrue(new PhaseResponseDecoder().decode("{\"completed\": false}", ObserveResult.class).wakeOn().isEmpty());
+    }
+}
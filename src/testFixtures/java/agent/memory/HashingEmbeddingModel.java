@@ -0,0 +1,35 @@
+package agent.memory;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cheap deterministic bag-of-words embedding for tests and benchmarks, so they exercise
+ * the memory store and indexes rather than the ONNX model.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+    private static final int DIMENSION = 384;
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        List<Embedding> embeddings = new ArrayList<>(segments.size());
+        for (TextSegment segment : segments) {
+            float[] vector = new float[DIMENSION];
+            for (String token : segment.text().toLowerCase().split("[^a-z0-9]+")) {
+                if (token.isEmpty()) continue;
+                vector[Math.floorMod(token.hashCode(), DIMENSION)] += 1f;
+            }
+            double norm = 0;
+            for (float v : vector) norm += v * v;
+            norm = Math.sqrt(norm);
+            for (int i = 0; i < DIMENSION; i++) vector[i] = (float) (vector[i] / Math.max(norm, 1e-9));
+            embeddings.add(Embedding.from(vector));
+        }
+        return Response.from(embeddings);
+    }
+}